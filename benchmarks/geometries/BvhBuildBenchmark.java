@@ -0,0 +1,54 @@
+package geometries;
+
+import org.openjdk.jmh.annotations.*;
+import primitives.Point;
+import primitives.Vector;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of building the bounding volume hierarchy of a collection of small random triangles of several sizes -
+ * as a hierarchy of collections ({@link Geometries#buildBvh()}) and as a {@link CompiledBvh}.
+ * Every invocation builds the hierarchy of a new collection of the same triangles.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BvhBuildBenchmark {
+    /**
+     * Amount of triangles in the collection
+     */
+    @Param({"10000", "100000"})
+    public int size;
+
+    private Intersectable[] triangles;
+
+    /**
+     * Scatters the triangles in a cube
+     */
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        triangles = new Intersectable[size];
+        for (int i = 0; i < size; ++i) {
+            Point p = new Point(random.nextDouble() * 100 - 50, random.nextDouble() * 100 - 50,
+                    random.nextDouble() * 100 - 50);
+            triangles[i] = new Triangle(p, p.add(new Vector(1, random.nextDouble(), 0)),
+                    p.add(new Vector(0, random.nextDouble(), 1)));
+        }
+    }
+
+    @Benchmark
+    public Geometries buildBvh() {
+        return new Geometries(triangles).buildBvh();
+    }
+
+    @Benchmark
+    public CompiledBvh compiledBvh() {
+        return new CompiledBvh(new Geometries(triangles));
+    }
+}
@@ -0,0 +1,98 @@
+package geometries;
+
+import org.openjdk.jmh.annotations.*;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import geometries.Intersectable.GeoPoint;
+
+/**
+ * Throughput of the traversal of a collection of small random triangles of several sizes -
+ * as a flat collection, as a hierarchy of collections ({@link Geometries#buildBvh()}) and as a {@link CompiledBvh}.
+ * Every invocation casts the next ray of a fixed set of rays.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeometriesBenchmark {
+    /**
+     * Amount of rays in the set, a power of 2
+     */
+    private static final int RAYS = 1024;
+
+    /**
+     * Amount of triangles in the collection
+     */
+    @Param({"100", "10000", "100000"})
+    public int size;
+
+    /**
+     * Structure of the collection - "flat", "bvh" or "compiled"
+     */
+    @Param({"flat", "bvh", "compiled"})
+    public String structure;
+
+    private Intersectable geometries;
+    private final Ray[] rays = new Ray[RAYS];
+    private int next = 0;
+
+    /**
+     * Scatters the triangles in a cube and aims the rays at it
+     */
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        Geometries flat = new Geometries();
+        Intersectable[] triangles = new Intersectable[size];
+        for (int i = 0; i < size; ++i) {
+            Point p = new Point(random.nextDouble() * 100 - 50, random.nextDouble() * 100 - 50,
+                    random.nextDouble() * 100 - 50);
+            triangles[i] = new Triangle(p, p.add(new Vector(1, random.nextDouble(), 0)),
+                    p.add(new Vector(0, random.nextDouble(), 1)));
+        }
+        flat.add(triangles);
+        geometries = switch (structure) {
+            case "bvh" -> flat.buildBvh();
+            case "compiled" -> new CompiledBvh(flat);
+            default -> flat;
+        };
+
+        Point p0 = new Point(0, 0, 200);
+        for (int i = 0; i < RAYS; ++i)
+            rays[i] = new Ray(p0, new Vector(random.nextDouble() * 100 - 50, random.nextDouble() * 100 - 50, -200));
+    }
+
+    /**
+     * Takes the next ray of the set
+     *
+     * @return the ray
+     */
+    private Ray nextRay() {
+        next = (next + 1) & (RAYS - 1);
+        return rays[next];
+    }
+
+    @Benchmark
+    public GeoPoint closestIntersection() {
+        return geometries.findClosestGeoIntersection(nextRay(), Double.POSITIVE_INFINITY);
+    }
+
+    @Benchmark
+    public List<GeoPoint> allIntersections() {
+        return geometries.findGeoIntersections(nextRay());
+    }
+
+    @Benchmark
+    public Double3 transmittance() {
+        return geometries.transmittance(nextRay(), 200);
+    }
+}
@@ -0,0 +1,121 @@
+package geometries;
+
+import org.openjdk.jmh.annotations.*;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import geometries.Intersectable.GeoPoint;
+
+/**
+ * Throughput of the intersection calculation of a single ray with each kind of geometry.
+ * Every geometry is tested with a ray that hits it and a ray that misses it (the bounding box is bypassed,
+ * so the intersection calculation itself is measured). Run with {@code -prof gc} to see the allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeometryIntersectionBenchmark {
+    /**
+     * Kind of the ray - "hit" crosses every geometry, "miss" passes beside all of them
+     */
+    @Param({"hit", "miss"})
+    public String rayKind;
+
+    private Sphere sphere;
+    private Triangle triangle;
+    /**
+     * The same triangle as a polygon - intersected by the plane first and then by the edge tests, the former
+     * path of the triangle
+     */
+    private Polygon trianglePolygon;
+    private Polygon polygon;
+    private Plane plane;
+    private Tube tube;
+    private Cylinder cylinder;
+    private Ray ray;
+
+    /**
+     * Creates the geometries around the -Z axis, 5 units in front of the ray origin
+     */
+    @Setup
+    public void setup() {
+        sphere = new Sphere(1, new Point(0, 0, -5));
+        triangle = new Triangle(new Point(-1, -1, -5), new Point(1, -1, -5), new Point(0, 1, -5));
+        trianglePolygon = new Polygon(new Point(-1, -1, -5), new Point(1, -1, -5), new Point(0, 1, -5));
+        polygon = new Polygon(new Point(-1, -1, -5), new Point(1, -1, -5), new Point(1, 1, -5), new Point(-1, 1, -5));
+        plane = new Plane(new Point(0, 0, -5), new Vector(0, 0, 1));
+        tube = new Tube(1, new Ray(new Point(0, 0, -5), new Vector(0, 1, 0)));
+        cylinder = new Cylinder(new Ray(new Point(0, -1, -5), new Vector(0, 1, 0)), 1, 2);
+        // the plane has no border, so the missing ray goes away from it
+        ray = rayKind.equals("hit")
+                ? new Ray(new Point(0, 0, 0), new Vector(0.02, 0.05, -1))
+                : new Ray(new Point(0, 0, 0), new Vector(3, 3, 1));
+    }
+
+    @Benchmark
+    public List<GeoPoint> sphere() {
+        return sphere.findGeoIntersectionsHelper(ray, Double.POSITIVE_INFINITY);
+    }
+
+    @Benchmark
+    public List<GeoPoint> triangle() {
+        return triangle.findGeoIntersectionsHelper(ray, Double.POSITIVE_INFINITY);
+    }
+
+    @Benchmark
+    public List<GeoPoint> trianglePolygon() {
+        return trianglePolygon.findGeoIntersectionsHelper(ray, Double.POSITIVE_INFINITY);
+    }
+
+    @Benchmark
+    public List<GeoPoint> polygon() {
+        return polygon.findGeoIntersectionsHelper(ray, Double.POSITIVE_INFINITY);
+    }
+
+    @Benchmark
+    public List<GeoPoint> plane() {
+        return plane.findGeoIntersectionsHelper(ray, Double.POSITIVE_INFINITY);
+    }
+
+    @Benchmark
+    public List<GeoPoint> tube() {
+        return tube.findGeoIntersectionsHelper(ray, Double.POSITIVE_INFINITY);
+    }
+
+    @Benchmark
+    public List<GeoPoint> cylinder() {
+        return cylinder.findGeoIntersectionsHelper(ray, Double.POSITIVE_INFINITY);
+    }
+
+    @Benchmark
+    public GeoPoint sphereClosest() {
+        return sphere.findClosestGeoIntersectionHelper(ray, Double.POSITIVE_INFINITY);
+    }
+
+    @Benchmark
+    public GeoPoint triangleClosest() {
+        return triangle.findClosestGeoIntersectionHelper(ray, Double.POSITIVE_INFINITY);
+    }
+
+    @Benchmark
+    public GeoPoint trianglePolygonClosest() {
+        return trianglePolygon.findClosestGeoIntersectionHelper(ray, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * The Moller-Trumbore kernel of the triangle alone - the distance, without the intersection record
+     *
+     * @return the distance of the intersection, NaN if there is none
+     */
+    @Benchmark
+    public double triangleKernel() {
+        return triangle.intersectionDistance(ray, Double.POSITIVE_INFINITY);
+    }
+}
@@ -0,0 +1,119 @@
+package renderer;
+
+import geometries.Plane;
+import geometries.Sphere;
+import geometries.Triangle;
+import lighting.AmbientLight;
+import lighting.DirectionalLight;
+import lighting.PointLight;
+import lighting.SpotLight;
+import org.openjdk.jmh.annotations.*;
+import primitives.*;
+import scene.Scene;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.awt.Color.*;
+
+/**
+ * Throughput of the per-pixel work of the renderer - constructing the ray through a pixel
+ * ({@link Camera#constructRay(int, int, int, int)}) and tracing it ({@link RayTracerBasic#traceRay(Ray)})
+ * in representative scenes. Every invocation handles the next pixel of a 500x500 image.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+    /**
+     * Resolution of the image along each axis
+     */
+    private static final int RESOLUTION = 500;
+
+    /**
+     * The scene - "spheres" (transparent sphere around an opaque one, as in the refraction tests),
+     * "mirrors" (spheres reflected by mirror triangles) or "shadows" (a sphere shadowing a plane under three lights)
+     */
+    @Param({"spheres", "mirrors", "shadows"})
+    public String sceneKind;
+
+    private Camera camera;
+    private RayTracerBase rayTracer;
+    private int pixel = 0;
+
+    /**
+     * Builds the scene and the camera
+     */
+    @Setup
+    public void setup() {
+        Scene scene = new Scene(sceneKind);
+        camera = new Camera(new Point(0, 0, 1000), new Vector(0, 1, 0), new Vector(0, 0, -1))
+                .setVPSize(150, 150).setVPDistance(1000);
+        switch (sceneKind) {
+            case "mirrors" -> {
+                camera = new Camera(new Point(0, 0, 10000), new Vector(0, 1, 0), new Vector(0, 0, -1))
+                        .setVPSize(2500, 2500).setVPDistance(10000);
+                scene.setAmbientLight(new AmbientLight(new Color(255, 255, 255), 0.1));
+                scene.geometries.add(
+                        new Sphere(400d, new Point(-950, -900, -1000)).setEmission(new Color(0, 50, 100))
+                                .setMaterial(new Material().setkD(0.25).setkS(0.25).setnShininess(20)
+                                        .setkT(new Double3(0.5, 0, 0))),
+                        new Sphere(200d, new Point(-950, -900, -1000)).setEmission(new Color(100, 50, 20))
+                                .setMaterial(new Material().setkD(0.25).setkS(0.25).setnShininess(20)),
+                        new Triangle(new Point(1500, -1500, -1500), new Point(-1500, 1500, -1500),
+                                new Point(670, 670, 3000)).setEmission(new Color(20, 20, 20))
+                                .setMaterial(new Material().setkR(1)),
+                        new Triangle(new Point(1500, -1500, -1500), new Point(-1500, 1500, -1500),
+                                new Point(-1500, -1500, -2000)).setEmission(new Color(20, 20, 20))
+                                .setMaterial(new Material().setkR(new Double3(0.5, 0, 0.4))));
+                scene.lights.add(new SpotLight(new Color(1020, 400, 400), new Point(-750, -750, -150),
+                        new Vector(-1, -1, -4)).setkL(0.00001).setkQ(0.000005));
+            }
+            case "shadows" -> {
+                scene.setAmbientLight(new AmbientLight(new Color(WHITE), 0.15));
+                scene.geometries.add(
+                        new Plane(new Point(0, 0, -100), new Vector(0, 0, 1))
+                                .setMaterial(new Material().setkD(0.5).setkS(0.5).setnShininess(30)),
+                        new Sphere(30d, new Point(0, 0, -11)).setEmission(new Color(BLUE))
+                                .setMaterial(new Material().setkD(0.5).setkS(0.5).setnShininess(30)));
+                scene.lights.add(new SpotLight(new Color(400, 240, 0), new Point(-100, -100, 200),
+                        new Vector(1, 1, -3)).setkL(1E-5).setkQ(1.5E-7));
+                scene.lights.add(new PointLight(new Color(300, 300, 300), new Point(60, 50, 100))
+                        .setkL(0.0005).setkQ(0.0005));
+                scene.lights.add(new DirectionalLight(new Color(100, 100, 100), new Vector(1, -1, -1)));
+            }
+            default -> {
+                scene.geometries.add(
+                        new Sphere(50d, new Point(0, 0, -50)).setEmission(new Color(BLUE))
+                                .setMaterial(new Material().setkD(0.4).setkS(0.3).setnShininess(100).setkT(0.3)),
+                        new Sphere(25d, new Point(0, 0, -50)).setEmission(new Color(RED))
+                                .setMaterial(new Material().setkD(0.5).setkS(0.5).setnShininess(100)));
+                scene.lights.add(new SpotLight(new Color(1000, 600, 0), new Point(-100, -100, 500),
+                        new Vector(-1, -1, -2)).setkL(0.0004).setkQ(0.0000006));
+            }
+        }
+        rayTracer = new RayTracerBasic(scene);
+    }
+
+    /**
+     * Moves to the next pixel of the image
+     */
+    private void nextPixel() {
+        if (++pixel == RESOLUTION * RESOLUTION)
+            pixel = 0;
+    }
+
+    @Benchmark
+    public Ray constructRay() {
+        nextPixel();
+        return camera.constructRay(RESOLUTION, RESOLUTION, pixel % RESOLUTION, pixel / RESOLUTION);
+    }
+
+    @Benchmark
+    public Color traceRay() {
+        nextPixel();
+        return rayTracer.traceRay(camera.constructRay(RESOLUTION, RESOLUTION, pixel % RESOLUTION, pixel / RESOLUTION));
+    }
+}
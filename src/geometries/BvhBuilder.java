@@ -0,0 +1,261 @@
+package geometries;
+
+import java.util.Arrays;
+
+/**
+ * BvhBuilder splits a set of primitives into a binary bounding volume hierarchy (BVH)
+ * using the binned surface area heuristic (SAH).
+ * The primitives are described only by their axis-aligned bounds, so the builder does not
+ * depend on the kind of the primitives it partitions.
+ */
+final class BvhBuilder {
+    /**
+     * Amount of centroid bins evaluated for each axis
+     */
+    private static final int BINS = 12;
+    /**
+     * Maximal amount of primitives kept in a single leaf
+     */
+    static final int MAX_LEAF_SIZE = 4;
+    /**
+     * Cost of traversing an inner node relative to the cost of intersecting a primitive
+     */
+    private static final double TRAVERSAL_COST = 1;
+
+    /**
+     * Bounds of the primitives - six numbers per primitive: minX, minY, minZ, maxX, maxY, maxZ.
+     * They are reordered in place along with {@link #order}, so the splits read them sequentially.
+     */
+    private final double[] bounds;
+    /**
+     * Primitive indices, reordered in place while splitting
+     */
+    final int[] order;
+
+    // scratch arrays reused by the successive splits
+    private final int[] binCount = new int[3 * BINS];
+    private final double[] binBounds = new double[3 * BINS * 6];
+    private final double[] rightArea = new double[BINS];
+    private final int[] rightCount = new int[BINS];
+    private final double[] box = new double[6];
+    private final double[] cMin = new double[3];
+    private final double[] cMax = new double[3];
+    private final double[] binScale = new double[3];
+
+    /**
+     * Constructs a builder over the given primitive bounds.
+     *
+     * @param bounds six numbers per primitive: minX, minY, minZ, maxX, maxY, maxZ (reordered in place)
+     */
+    BvhBuilder(double[] bounds) {
+        this.bounds = bounds;
+        order = new int[bounds.length / 6];
+        for (int i = 0; i < order.length; ++i)
+            order[i] = i;
+    }
+
+    /**
+     * Calculates the bounds of a range of primitives.
+     *
+     * @param from   first position (inclusive) in {@link #order}
+     * @param to     last position (exclusive) in {@link #order}
+     * @param result array of six numbers to be filled with minX, minY, minZ, maxX, maxY, maxZ
+     */
+    void rangeBounds(int from, int to, double[] result) {
+        resetBox(result, 0);
+        for (int i = from; i < to; ++i)
+            growBox(result, 0, bounds, i * 6);
+    }
+
+    /**
+     * Splits a range of primitives into two groups according to the surface area heuristic.
+     * The range in {@link #order} is reordered so that the first group precedes the second one.
+     *
+     * @param from first position (inclusive) in {@link #order}
+     * @param to   last position (exclusive) in {@link #order}
+     * @return the position where the second group starts, or -1 if the range should stay a leaf
+     */
+    int split(int from, int to) {
+        int count = to - from;
+        if (count <= 1)
+            return -1;
+
+        // bounds of the primitives' centroids - the bins are laid along them
+        for (int axis = 0; axis < 3; ++axis) {
+            cMin[axis] = Double.POSITIVE_INFINITY;
+            cMax[axis] = Double.NEGATIVE_INFINITY;
+        }
+        for (int i = from; i < to; ++i) {
+            int b = i * 6;
+            for (int axis = 0; axis < 3; ++axis) {
+                double c = centroid(b, axis);
+                if (c < cMin[axis]) cMin[axis] = c;
+                if (c > cMax[axis]) cMax[axis] = c;
+            }
+        }
+
+        // small ranges do not need more bins than primitives
+        int bins = Math.min(BINS, count);
+        int bestAxis = -1;
+        int bestBin = -1;
+        double bestCost = Double.POSITIVE_INFINITY;
+
+        // distribute the primitives into the bins of all the axes in a single pass over their bounds
+        for (int axis = 0; axis < 3; ++axis)
+            binScale[axis] = cMax[axis] > cMin[axis] ? bins / (cMax[axis] - cMin[axis]) : 0;
+        Arrays.fill(binCount, 0);
+        for (int bin = 0; bin < 3 * BINS; ++bin)
+            resetBox(binBounds, bin * 6);
+        for (int i = from; i < to; ++i) {
+            int b = i * 6;
+            for (int axis = 0; axis < 3; ++axis) {
+                if (binScale[axis] == 0)
+                    continue;
+                int bin = axis * BINS + binOf(centroid(b, axis), cMin[axis], binScale[axis], bins);
+                ++binCount[bin];
+                growBox(binBounds, bin * 6, bounds, b);
+            }
+        }
+
+        for (int axis = 0; axis < 3; ++axis) {
+            if (cMax[axis] - cMin[axis] <= 0)
+                continue;
+
+            // sweep from the right to accumulate the areas of the right groups
+            resetBox(box, 0);
+            int accumulated = 0;
+            for (int bin = bins - 1; bin > 0; --bin) {
+                growBox(box, 0, binBounds, (axis * BINS + bin) * 6);
+                accumulated += binCount[axis * BINS + bin];
+                rightArea[bin] = area(box, 0);
+                rightCount[bin] = accumulated;
+            }
+
+            // sweep from the left and evaluate every split plane between two bins
+            resetBox(box, 0);
+            accumulated = 0;
+            for (int bin = 0; bin < bins - 1; ++bin) {
+                growBox(box, 0, binBounds, (axis * BINS + bin) * 6);
+                accumulated += binCount[axis * BINS + bin];
+                if (accumulated == 0 || rightCount[bin + 1] == 0)
+                    continue;
+                double cost = area(box, 0) * accumulated + rightArea[bin + 1] * rightCount[bin + 1];
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestAxis = axis;
+                    bestBin = bin;
+                }
+            }
+        }
+
+        // all the centroids are in the same place - split in the middle if the leaf is too big
+        if (bestAxis < 0)
+            return count > MAX_LEAF_SIZE ? from + count / 2 : -1;
+
+        // a range small enough for a leaf is split only if the split is cheaper than intersecting all of it
+        if (count <= MAX_LEAF_SIZE) {
+            rangeBounds(from, to, box);
+            if (TRAVERSAL_COST + bestCost / area(box, 0) >= count)
+                return -1;
+        }
+
+        // partition the range so that the primitives of the left bins come first
+        int left = from;
+        int right = to - 1;
+        while (left <= right) {
+            if (binOf(centroid(left * 6, bestAxis), cMin[bestAxis], binScale[bestAxis], bins) <= bestBin)
+                ++left;
+            else
+                swap(left, right--);
+        }
+        return left;
+    }
+
+    /**
+     * Swaps two primitives in the build order, with their bounds
+     *
+     * @param i first position in {@link #order}
+     * @param j second position in {@link #order}
+     */
+    private void swap(int i, int j) {
+        int temp = order[i];
+        order[i] = order[j];
+        order[j] = temp;
+        for (int k = 0; k < 6; ++k) {
+            double t = bounds[i * 6 + k];
+            bounds[i * 6 + k] = bounds[j * 6 + k];
+            bounds[j * 6 + k] = t;
+        }
+    }
+
+    /**
+     * Calculates a coordinate of the centroid of a primitive
+     *
+     * @param b    index of the primitive's bounds
+     * @param axis the axis of the coordinate
+     * @return the centroid coordinate
+     */
+    private double centroid(int b, int axis) {
+        return (bounds[b + axis] + bounds[b + axis + 3]) * 0.5;
+    }
+
+    /**
+     * Finds the bin of a centroid coordinate
+     *
+     * @param c      the centroid coordinate
+     * @param min    minimal centroid coordinate along the axis
+     * @param scale  amount of bins per unit along the axis
+     * @param bins   amount of bins
+     * @return the bin index
+     */
+    private static int binOf(double c, double min, double scale, int bins) {
+        int bin = (int) ((c - min) * scale);
+        return bin < bins ? bin : bins - 1;
+    }
+
+    /**
+     * Sets a box to an empty (inverted) box
+     *
+     * @param box    array of boxes
+     * @param offset index of the box in the array
+     */
+    private static void resetBox(double[] box, int offset) {
+        for (int axis = 0; axis < 3; ++axis) {
+            box[offset + axis] = Double.POSITIVE_INFINITY;
+            box[offset + axis + 3] = Double.NEGATIVE_INFINITY;
+        }
+    }
+
+    /**
+     * Grows a box to enclose another box
+     *
+     * @param box         array of boxes to grow
+     * @param offset      index of the growing box in its array
+     * @param other       array of boxes to be enclosed
+     * @param otherOffset index of the enclosed box in its array
+     */
+    private static void growBox(double[] box, int offset, double[] other, int otherOffset) {
+        for (int axis = 0; axis < 3; ++axis) {
+            if (other[otherOffset + axis] < box[offset + axis])
+                box[offset + axis] = other[otherOffset + axis];
+            if (other[otherOffset + axis + 3] > box[offset + axis + 3])
+                box[offset + axis + 3] = other[otherOffset + axis + 3];
+        }
+    }
+
+    /**
+     * Calculates the surface area of a box
+     *
+     * @param box    array of boxes
+     * @param offset index of the box in the array
+     * @return the surface area, 0 for an empty box
+     */
+    static double area(double[] box, int offset) {
+        double dx = box[offset + 3] - box[offset];
+        double dy = box[offset + 4] - box[offset + 1];
+        double dz = box[offset + 5] - box[offset + 2];
+        if (dx < 0 || dy < 0 || dz < 0)
+            return 0;
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+}
@@ -0,0 +1,401 @@
+package geometries;
+
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The CompiledBvh class is an immutable bounding volume hierarchy (BVH) compiled from a collection of geometries.
+ * The nodes of the hierarchy are packed into parallel arrays - six bounds per node in a double array, and the
+ * child / primitive offsets in int arrays - so the traversal reads the boxes as raw numbers and allocates no object
+ * per visited node. The hierarchy is traversed iteratively, visiting the child nearer to the ray origin first.
+ * It can replace the geometries of a scene:
+ * <pre>scene.setGeometries(new CompiledBvh(scene.geometries));</pre>
+ */
+public class CompiledBvh extends Geometries {
+    /**
+     * Geometries without a bounding box, tested against every ray
+     */
+    final Intersectable[] unbounded;
+    /**
+     * Bounded geometries, ordered so that the primitives of every leaf are consecutive
+     */
+    final Intersectable[] primitives;
+    /**
+     * Bounds of the nodes - six numbers per node: minX, minY, minZ, maxX, maxY, maxZ
+     */
+    final double[] nodeBounds;
+    /**
+     * For a leaf - index of its first primitive, for an inner node - index of its second child
+     * (the first child always follows its parent)
+     */
+    final int[] nodeOffsets;
+    /**
+     * For a leaf - amount of its primitives, 0 for an inner node
+     */
+    final int[] nodeCounts;
+    /**
+     * For an inner node - the axis along which its children are separated the most (0, 1 or 2 for X, Y or Z),
+     * plus 3 if the second child lies before the first one along this axis
+     */
+    final int[] nodeAxes;
+    /**
+     * Amount of nodes in the hierarchy
+     */
+    int size = 0;
+    /**
+     * Depth of the deepest leaf, it bounds the size of the traversal stack
+     */
+    int depth = 0;
+    /**
+     * Traversal stack of every thread, reused by all its queries of the hierarchy
+     */
+    private final ThreadLocal<int[]> stacks = ThreadLocal.withInitial(() -> new int[depth + 2]);
+
+    /**
+     * Compiles the geometries (including nested collections) into a bounding volume hierarchy.
+     * Later changes of the source collection do not affect the compiled hierarchy.
+     *
+     * @param geometries the geometries to compile
+     */
+    public CompiledBvh(Geometries geometries) {
+        List<Intersectable> all = new ArrayList<>();
+        geometries.flattenInto(all);
+
+        List<Intersectable> unboundedList = new ArrayList<>();
+        List<Intersectable> bounded = new ArrayList<>();
+        for (Intersectable item : all)
+            (item.box == null ? unboundedList : bounded).add(item);
+        unbounded = unboundedList.toArray(new Intersectable[0]);
+
+        int count = bounded.size();
+        double[] bounds = new double[count * 6];
+        for (int i = 0; i < count; ++i)
+            bounded.get(i).box.copyTo(bounds, i * 6);
+
+        int maxNodes = Math.max(1, 2 * count - 1);
+        nodeBounds = new double[maxNodes * 6];
+        nodeOffsets = new int[maxNodes];
+        nodeCounts = new int[maxNodes];
+        nodeAxes = new int[maxNodes];
+
+        BvhBuilder builder = new BvhBuilder(bounds);
+        if (count > 0)
+            buildNode(builder, 0, count, 0);
+        primitives = new Intersectable[count];
+        for (int i = 0; i < count; ++i)
+            primitives[i] = bounded.get(builder.order[i]);
+
+        createBoundingBox();
+    }
+
+    /**
+     * Constructs a hierarchy that was compiled before - for hierarchies restored by a scene cache.
+     * Nothing is checked or rebuilt, and the arrays are kept as they are.
+     *
+     * @param unbounded   geometries without a bounding box
+     * @param primitives  bounded geometries, in the order of the leaves of the hierarchy
+     * @param nodeBounds  bounds of the nodes
+     * @param nodeOffsets offsets of the nodes
+     * @param nodeCounts  amounts of primitives of the nodes
+     * @param nodeAxes    separation axes of the nodes
+     * @param depth       depth of the deepest leaf
+     */
+    CompiledBvh(Intersectable[] unbounded, Intersectable[] primitives, double[] nodeBounds, int[] nodeOffsets,
+                int[] nodeCounts, int[] nodeAxes, int depth) {
+        this.unbounded = unbounded;
+        this.primitives = primitives;
+        this.nodeBounds = nodeBounds;
+        this.nodeOffsets = nodeOffsets;
+        this.nodeCounts = nodeCounts;
+        this.nodeAxes = nodeAxes;
+        size = nodeOffsets.length;
+        this.depth = depth;
+        createBoundingBox();
+    }
+
+    /**
+     * Builds a node of the hierarchy and its sub-tree for a range of primitives
+     *
+     * @param builder the SAH builder holding the primitives' order
+     * @param from    first position (inclusive) in the builder's order
+     * @param to      last position (exclusive) in the builder's order
+     * @param level   depth of the node in the hierarchy
+     * @return index of the built node
+     */
+    private int buildNode(BvhBuilder builder, int from, int to, int level) {
+        int node = size++;
+        if (level > depth)
+            depth = level;
+        double[] bounds = new double[6];
+        builder.rangeBounds(from, to, bounds);
+        System.arraycopy(bounds, 0, nodeBounds, node * 6, 6);
+
+        int middle = builder.split(from, to);
+        if (middle < 0) {
+            nodeOffsets[node] = from;
+            nodeCounts[node] = to - from;
+            return node;
+        }
+        int first = buildNode(builder, from, middle, level + 1);
+        int second = buildNode(builder, middle, to, level + 1);
+        nodeOffsets[node] = second;
+        nodeAxes[node] = separationAxis(first, second);
+        return node;
+    }
+
+    /**
+     * Finds the axis along which the centers of two nodes are the most distant
+     *
+     * @param first  index of the first node
+     * @param second index of the second node
+     * @return the axis - 0, 1 or 2 for X, Y or Z, plus 3 if the second node lies before the first one
+     */
+    private int separationAxis(int first, int second) {
+        int axis = 0;
+        double maxSeparation = -1;
+        boolean reversed = false;
+        for (int i = 0; i < 3; ++i) {
+            double separation = nodeBounds[second * 6 + i] + nodeBounds[second * 6 + i + 3]
+                    - nodeBounds[first * 6 + i] - nodeBounds[first * 6 + i + 3];
+            if (Math.abs(separation) > maxSeparation) {
+                maxSeparation = Math.abs(separation);
+                axis = i;
+                reversed = separation < 0;
+            }
+        }
+        return reversed ? axis + 3 : axis;
+    }
+
+    /**
+     * The compiled hierarchy cannot be changed
+     *
+     * @param geometries ignored
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void add(Intersectable... geometries) {
+        throw new UnsupportedOperationException("Compiled BVH is immutable");
+    }
+
+    /**
+     * The hierarchy is already built
+     *
+     * @return the compiled hierarchy itself
+     */
+    @Override
+    public Geometries buildBvh() {
+        return this;
+    }
+
+    /**
+     * The compiled hierarchy is kept as a single geometry when it is nested in another collection
+     *
+     * @param primitives the list to collect the geometries into
+     */
+    @Override
+    protected void flattenInto(List<Intersectable> primitives) {
+        primitives.add(this);
+    }
+
+    /**
+     * Creates the bounding box of the hierarchy - the bounds of its root node.
+     * A hierarchy containing an unbounded geometry, or no geometry at all, has no bounding box.
+     */
+    @Override
+    public void createBoundingBox() {
+        box = null;
+        if (nodeBounds == null || unbounded.length > 0 || size == 0)
+            return;
+        box = new AABB(new Point(nodeBounds[0], nodeBounds[1], nodeBounds[2]),
+                new Point(nodeBounds[3], nodeBounds[4], nodeBounds[5]));
+    }
+
+    /**
+     * Finds the intersections between a ray and the geometries of the hierarchy
+     *
+     * @param ray         The ray to find intersections with.
+     * @param maxDistance The maximum distance to consider for intersections.
+     * @return A list of intersection points as GeoPoint objects, or null if there are no intersections.
+     * @throws IllegalArgumentException If the ray is null.
+     */
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) throws IllegalArgumentException {
+        List<GeoPoint> result = null;
+        for (Intersectable item : unbounded)
+            result = addAll(result, item.findGeoIntersections(ray, maxDistance));
+        if (size == 0)
+            return result;
+
+        Vector dir = ray.getDir();
+        double dx = dir.getX(), dy = dir.getY(), dz = dir.getZ();
+
+        int[] stack = stacks.get();
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (!ray.intersectsBox(nodeBounds, node * 6, 0, maxDistance))
+                continue;
+
+            int count = nodeCounts[node];
+            if (count > 0) {
+                int first = nodeOffsets[node];
+                for (int i = first; i < first + count; ++i)
+                    result = addAll(result, primitives[i].findGeoIntersections(ray, maxDistance));
+            } else
+                top = pushChildren(node, stack, top, dx, dy, dz);
+        }
+        return result;
+    }
+
+    /**
+     * Finds the intersection closest to the ray origin among the geometries of the hierarchy.
+     * The nearer child of every node is visited first, and every found intersection shortens the
+     * searched distance, so the nodes beyond the closest intersection found so far are skipped.
+     *
+     * @param ray  The ray to find intersections with.
+     * @param tMax The maximum distance to consider for intersections.
+     * @return The closest intersection point with its distance along the ray, or null if there is no intersection.
+     * @throws IllegalArgumentException If the ray is null.
+     */
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double tMax) throws IllegalArgumentException {
+        GeoPoint closest = null;
+        for (Intersectable item : unbounded) {
+            GeoPoint gp = item.findClosestGeoIntersection(ray, tMax);
+            if (gp != null && (closest == null || gp.t < closest.t)) {
+                closest = gp;
+                tMax = gp.t;
+            }
+        }
+        if (size == 0)
+            return closest;
+
+        Vector dir = ray.getDir();
+        double dx = dir.getX(), dy = dir.getY(), dz = dir.getZ();
+
+        int[] stack = stacks.get();
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (!ray.intersectsBox(nodeBounds, node * 6, 0, tMax))
+                continue;
+
+            int count = nodeCounts[node];
+            if (count > 0) {
+                int first = nodeOffsets[node];
+                for (int i = first; i < first + count; ++i) {
+                    GeoPoint gp = primitives[i].findClosestGeoIntersection(ray, tMax);
+                    if (gp != null && (closest == null || gp.t < closest.t)) {
+                        closest = gp;
+                        tMax = gp.t;
+                    }
+                }
+            } else
+                top = pushChildren(node, stack, top, dx, dy, dz);
+        }
+        return closest;
+    }
+
+    /**
+     * Calculates the transmittance of the hierarchy along a ray - the product of the transmittances of the
+     * geometries in front of the maximum distance. The traversal stops as soon as an opaque geometry blocks the ray.
+     *
+     * @param ray         The ray to check.
+     * @param maxDistance The maximum distance to consider for intersections.
+     * @return The transmittance factor.
+     * @throws IllegalArgumentException If the ray is null.
+     */
+    @Override
+    protected Double3 transmittanceHelper(Ray ray, double maxDistance) throws IllegalArgumentException {
+        Double3 ktr = Double3.ONE;
+        for (Intersectable item : unbounded) {
+            ktr = ktr.product(item.transmittance(ray, maxDistance));
+            if (ktr.equals(Double3.ZERO))
+                return Double3.ZERO;
+        }
+        if (size == 0)
+            return ktr;
+
+        Vector dir = ray.getDir();
+        double dx = dir.getX(), dy = dir.getY(), dz = dir.getZ();
+
+        int[] stack = stacks.get();
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (!ray.intersectsBox(nodeBounds, node * 6, 0, maxDistance))
+                continue;
+
+            int count = nodeCounts[node];
+            if (count > 0) {
+                int first = nodeOffsets[node];
+                for (int i = first; i < first + count; ++i) {
+                    Double3 itemKtr = primitives[i].transmittance(ray, maxDistance);
+                    if (itemKtr != Double3.ONE) {
+                        ktr = ktr.product(itemKtr);
+                        if (ktr.equals(Double3.ZERO))
+                            return Double3.ZERO;
+                    }
+                }
+            } else
+                top = pushChildren(node, stack, top, dx, dy, dz);
+        }
+        return ktr;
+    }
+
+    /**
+     * Pushes the children of an inner node to the traversal stack, the farther child first
+     * so that the nearer one is visited first
+     *
+     * @param node  index of the inner node
+     * @param stack the traversal stack
+     * @param top   amount of nodes in the stack
+     * @param dx    X coordinate of the ray direction
+     * @param dy    Y coordinate of the ray direction
+     * @param dz    Z coordinate of the ray direction
+     * @return the new amount of nodes in the stack
+     */
+    private int pushChildren(int node, int[] stack, int top, double dx, double dy, double dz) {
+        int axis = nodeAxes[node];
+        double axisDir = switch (axis) {
+            case 0 -> dx;
+            case 1 -> dy;
+            case 2 -> dz;
+            case 3 -> -dx;
+            case 4 -> -dy;
+            default -> -dz;
+        };
+        if (axisDir < 0) {
+            stack[top++] = node + 1;
+            stack[top++] = nodeOffsets[node];
+        } else {
+            stack[top++] = nodeOffsets[node];
+            stack[top++] = node + 1;
+        }
+        return top;
+    }
+
+    /**
+     * Adds intersection points to the result list, creating the list when needed
+     *
+     * @param result the result list, may be null
+     * @param points the points to add, may be null
+     * @return the result list, or null if there are still no points
+     */
+    private static List<GeoPoint> addAll(List<GeoPoint> result, List<GeoPoint> points) {
+        if (points == null)
+            return result;
+        if (result == null)
+            result = new ArrayList<>();
+        result.addAll(points);
+        return result;
+    }
+}
@@ -32,6 +32,7 @@ public class Cylinder extends Tube {
         if (height <= 0)
             throw new IllegalArgumentException("Height must be a positive value");
         this.height = height;
+        if (bvhIsOn) createBoundingBox();
     }
 
     /**
@@ -108,10 +109,10 @@ public class Cylinder extends Tube {
                 Point pt = p.point;
                 // Intersection point is the base point itself
                 if (pt.equals(basePoint))
-                    result.add(new GeoPoint(this, basePoint));
+                    result.add(new GeoPoint(this, basePoint, p.t));
                     // Intersection point is different from the base point but is on the bottom base
                 else if (pt.subtract(basePoint).dotProduct(pt.subtract(basePoint)) < radius * radius)
-                    result.add(new GeoPoint(this, pt));
+                    result.add(new GeoPoint(this, pt, p.t));
             }
         }
 
@@ -127,10 +128,10 @@ public class Cylinder extends Tube {
                 Point pt = p.point;
                 // Intersection point is the top point itself
                 if (pt.equals(topPoint))
-                    result.add(new GeoPoint(this, topPoint));
+                    result.add(new GeoPoint(this, topPoint, p.t));
                     // Intersection point is different from the base point but is on the top base
                 else if (pt.subtract(topPoint).dotProduct(pt.subtract(topPoint)) < radius * radius)
-                    result.add(new GeoPoint(this, pt));
+                    result.add(new GeoPoint(this, pt, p.t));
             }
         }
 
@@ -149,7 +150,7 @@ public class Cylinder extends Tube {
             for (var p : intersectionsTube) {
                 Point pt = p.point;
                 if (vC.dotProduct(pt.subtract(basePoint)) > 0 && vC.dotProduct(pt.subtract(topPoint)) < 0)
-                    result.add(new GeoPoint(this, pt));
+                    result.add(new GeoPoint(this, pt, p.t));
             }
         }
 
@@ -164,4 +165,26 @@ public class Cylinder extends Tube {
         // No intersections
         return null;
     }
+
+    /**
+     * Creates a bounding box for the cylinder.
+     * The box encloses both bases: along each axis a base disc extends from its center
+     * by radius * sqrt(1 - d²), where d is the matching coordinate of the cylinder's direction.
+     */
+    @Override
+    protected void createBoundingBox() {
+        Vector dir = axisRay.getDir();
+        Point base = axisRay.getP0();
+        Point top = axisRay.getPoint(height);
+        double eX = radius * Math.sqrt(Math.max(0, 1 - dir.getX() * dir.getX()));
+        double eY = radius * Math.sqrt(Math.max(0, 1 - dir.getY() * dir.getY()));
+        double eZ = radius * Math.sqrt(Math.max(0, 1 - dir.getZ() * dir.getZ()));
+        box = new AABB(
+                new Point(Math.min(base.getX(), top.getX()) - eX,
+                        Math.min(base.getY(), top.getY()) - eY,
+                        Math.min(base.getZ(), top.getZ()) - eZ),
+                new Point(Math.max(base.getX(), top.getX()) + eX,
+                        Math.max(base.getY(), top.getY()) + eY,
+                        Math.max(base.getZ(), top.getZ()) + eZ));
+    }
 }
@@ -1,7 +1,9 @@
 package geometries;
 
+import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
@@ -27,10 +29,10 @@ public class Geometries extends Intersectable {
      * @param geometry The intersectable geometries to add to the collection.
      */
     public Geometries(Intersectable... geometry) {
-        if (bvhIsOn)
-            createBoundingBox();
         intersectables = new LinkedList<>();
         Collections.addAll(intersectables, geometry);
+        if (bvhIsOn)
+            createBoundingBox();
     }
 
     /**
@@ -39,9 +41,78 @@ public class Geometries extends Intersectable {
      * @param geometries The intersectable geometries to add to the collection.
      */
     public void add(Intersectable... geometries) {
+        Collections.addAll(intersectables, geometries);
         if (bvhIsOn)
             createBoundingBox();
-        Collections.addAll(intersectables, geometries);
+    }
+
+    /**
+     * Rebuilds the collection as a bounding volume hierarchy (BVH).
+     * Nested collections are flattened and the bounded geometries are organized in a binary tree
+     * of collections, split by the binned surface area heuristic, so that a ray is tested only
+     * against the geometries whose bounding boxes it crosses.
+     * Unbounded geometries (such as planes and tubes) are kept at the top level of the tree.
+     *
+     * @return the Geometries object itself, for method chaining
+     */
+    public Geometries buildBvh() {
+        List<Intersectable> primitives = new ArrayList<>();
+        flattenInto(primitives);
+
+        List<Intersectable> unbounded = new LinkedList<>();
+        List<Intersectable> bounded = new ArrayList<>();
+        for (Intersectable primitive : primitives)
+            (primitive.box == null ? unbounded : bounded).add(primitive);
+
+        intersectables = unbounded;
+        if (!bounded.isEmpty()) {
+            double[] bounds = new double[bounded.size() * 6];
+            for (int i = 0; i < bounded.size(); ++i)
+                bounded.get(i).box.copyTo(bounds, i * 6);
+            BvhBuilder builder = new BvhBuilder(bounds);
+            intersectables.add(buildNode(builder, bounded, 0, bounded.size()));
+        }
+        createBoundingBox();
+        return this;
+    }
+
+    /**
+     * Builds a node of the bounding volume hierarchy for a range of primitives
+     *
+     * @param builder    the SAH builder holding the primitives' order
+     * @param primitives the bounded primitives
+     * @param from       first position (inclusive) in the builder's order
+     * @param to         last position (exclusive) in the builder's order
+     * @return a single primitive or a collection node enclosing the range
+     */
+    private static Intersectable buildNode(BvhBuilder builder, List<Intersectable> primitives, int from, int to) {
+        if (to - from == 1)
+            return primitives.get(builder.order[from]);
+
+        Geometries node = new Geometries();
+        int middle = builder.split(from, to);
+        if (middle < 0)
+            for (int i = from; i < to; ++i)
+                node.intersectables.add(primitives.get(builder.order[i]));
+        else {
+            node.intersectables.add(buildNode(builder, primitives, from, middle));
+            node.intersectables.add(buildNode(builder, primitives, middle, to));
+        }
+        node.createBoundingBox();
+        return node;
+    }
+
+    /**
+     * Collects the geometries of this collection and of its nested collections into a single list
+     *
+     * @param primitives the list to collect the geometries into
+     */
+    protected void flattenInto(List<Intersectable> primitives) {
+        for (Intersectable item : intersectables)
+            if (item instanceof Geometries geometries)
+                geometries.flattenInto(primitives);
+            else
+                primitives.add(item);
     }
 
     /**
@@ -73,13 +144,62 @@ public class Geometries extends Intersectable {
         return result;
     }
 
+    /**
+     * Finds the intersection point closest to the ray origin among the geometries of the collection.
+     * Every found intersection shortens the maximum distance for the following geometries,
+     * so geometries (and bounding boxes) beyond the closest intersection found so far are skipped.
+     *
+     * @param ray  The ray to find intersections with.
+     * @param tMax The maximum distance to consider for intersections.
+     * @return The closest intersection point with its distance along the ray, or null if there is no intersection.
+     * @throws IllegalArgumentException If the ray is null.
+     */
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double tMax) throws IllegalArgumentException {
+        GeoPoint closest = null;
+        for (var item : intersectables) {
+            GeoPoint gp = item.findClosestGeoIntersection(ray, tMax);
+            // on equal distances the first found intersection is kept
+            if (gp != null && (closest == null || gp.t < closest.t)) {
+                closest = gp;
+                tMax = gp.t;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Calculates the transmittance of the collection along a ray - the product of the transmittances of its
+     * geometries. The search stops as soon as the ray is found to be fully blocked.
+     *
+     * @param ray         The ray to check.
+     * @param maxDistance The maximum distance to consider for intersections.
+     * @return The transmittance factor.
+     * @throws IllegalArgumentException If the ray is null.
+     */
+    @Override
+    protected Double3 transmittanceHelper(Ray ray, double maxDistance) throws IllegalArgumentException {
+        Double3 ktr = Double3.ONE;
+        for (var item : intersectables) {
+            Double3 itemKtr = item.transmittance(ray, maxDistance);
+            if (itemKtr != Double3.ONE) {
+                ktr = ktr.product(itemKtr);
+                if (ktr.equals(Double3.ZERO))
+                    return Double3.ZERO;
+            }
+        }
+        return ktr;
+    }
+
     /**
      * Creates a bounding box for the collection of geometries.
      * The bounding box is an axis-aligned bounding box (AABB) that encloses all geometries in the collection.
+     * An empty collection, or a collection containing an unbounded geometry, has no bounding box.
      */
     @Override
     public void createBoundingBox() {
-        if (intersectables == null)
+        box = null;
+        if (intersectables == null || intersectables.isEmpty())
             return;
         double minX = Double.POSITIVE_INFINITY;
         double minY = Double.POSITIVE_INFINITY;
@@ -88,14 +208,14 @@ public class Geometries extends Intersectable {
         double maxY = Double.NEGATIVE_INFINITY;
         double maxZ = Double.NEGATIVE_INFINITY;
         for (Intersectable geo : intersectables) {
-            if (geo.box != null) {
-                minX = Math.min(minX, geo.box.minimums.getX());
-                minY = Math.min(minY, geo.box.minimums.getY());
-                minZ = Math.min(minZ, geo.box.minimums.getZ());
-                maxX = Math.max(maxX, geo.box.maximums.getX());
-                maxY = Math.max(maxY, geo.box.maximums.getY());
-                maxZ = Math.max(maxZ, geo.box.maximums.getZ());
-            }
+            if (geo.box == null)
+                return;
+            minX = Math.min(minX, geo.box.minimums.getX());
+            minY = Math.min(minY, geo.box.minimums.getY());
+            minZ = Math.min(minZ, geo.box.minimums.getZ());
+            maxX = Math.max(maxX, geo.box.maximums.getX());
+            maxY = Math.max(maxY, geo.box.maximums.getY());
+            maxZ = Math.max(maxZ, geo.box.maximums.getZ());
         }
         box = new AABB(new Point(minX, minY, minZ), new Point(maxX, maxY, maxZ));
     }
@@ -1,10 +1,14 @@
 package geometries;
 
 import primitives.Color;
+import primitives.Double3;
 import primitives.Material;
 import primitives.Point;
+import primitives.Ray;
 import primitives.Vector;
 
+import java.util.List;
+
 /**
  * The Geometry interface defines methods that all geometric shapes should implement.
  */
@@ -38,4 +42,28 @@ public abstract class Geometry extends Intersectable {
         this.material = material;
         return this;
     }
-}
\ No newline at end of file
+
+    /**
+     * Calculates the transmittance of the geometry along a ray.
+     * An opaque geometry blocks the ray on any intersection, so only the closest one is searched for.
+     *
+     * @param ray         The ray to check.
+     * @param maxDistance The maximum distance to consider for intersections.
+     * @return The transmittance factor - kT of the material for every intersection.
+     * @throws IllegalArgumentException If the ray is null.
+     */
+    @Override
+    protected Double3 transmittanceHelper(Ray ray, double maxDistance) throws IllegalArgumentException {
+        Double3 kT = material.kT;
+        if (kT.equals(Double3.ZERO))
+            return findClosestGeoIntersectionHelper(ray, maxDistance) == null ? Double3.ONE : Double3.ZERO;
+
+        List<GeoPoint> points = findGeoIntersectionsHelper(ray, maxDistance);
+        if (points == null)
+            return Double3.ONE;
+        Double3 ktr = Double3.ONE;
+        for (int i = 0; i < points.size(); ++i)
+            ktr = ktr.product(kT);
+        return ktr;
+    }
+}
@@ -0,0 +1,484 @@
+package geometries;
+
+import primitives.Color;
+import primitives.Double3;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * GeometryCodec writes a tree of intersectables into a binary stream and reads it back, for the scene cache.
+ * Every geometry is written with all that it has computed - the planes of the polygons, the bounding boxes and
+ * the whole hierarchies of {@link CompiledBvh} and {@link TriangleMesh} - and it is restored by constructors that
+ * trust the data: the geometries are not validated again, no plane or box is recalculated and no hierarchy is
+ * rebuilt. The arrays of the meshes and of the hierarchies are read in bulk.<br/>
+ * A material or an emission color shared by several geometries is written once and shared again when it is read.
+ * The numbers are big-endian, as written by {@link DataOutputStream}.<br/>
+ * A codec keeps the shared objects of a single stream, so a new codec should be used for every stream.
+ */
+public final class GeometryCodec {
+    // tags of the kinds of the intersectables
+    private static final byte GEOMETRIES = 0;
+    private static final byte COMPILED_BVH = 1;
+    private static final byte SPHERE = 2;
+    private static final byte PLANE = 3;
+    private static final byte POLYGON = 4;
+    private static final byte TRIANGLE = 5;
+    private static final byte TUBE = 6;
+    private static final byte CYLINDER = 7;
+    private static final byte MESH = 8;
+
+    /**
+     * Size of the buffer through which the arrays are written, in bytes
+     */
+    private static final int CHUNK = 1 << 16;
+
+    /**
+     * Indices of the shared objects (materials and colors) already written
+     */
+    private final Map<Object, Integer> written = new IdentityHashMap<>();
+    /**
+     * The shared objects already read, by their indices
+     */
+    private final List<Object> read = new ArrayList<>();
+    /**
+     * Buffer through which the arrays are written
+     */
+    private ByteBuffer chunk;
+
+    /**
+     * Writes an intersectable with everything it contains
+     *
+     * @param item the intersectable
+     * @param out  the stream to write into
+     * @throws IOException              if the stream could not be written
+     * @throws IllegalArgumentException if the tree contains an intersectable of an unknown kind (such as a
+     *                                  subclass of a geometry class)
+     */
+    public void write(Intersectable item, DataOutputStream out) throws IOException, IllegalArgumentException {
+        Class<?> kind = item.getClass();
+        if (kind == Geometries.class) {
+            out.writeByte(GEOMETRIES);
+            List<Intersectable> items = ((Geometries) item).intersectables;
+            out.writeInt(items.size());
+            for (Intersectable child : items)
+                write(child, out);
+        } else if (kind == CompiledBvh.class) {
+            CompiledBvh bvh = (CompiledBvh) item;
+            out.writeByte(COMPILED_BVH);
+            out.writeInt(bvh.unbounded.length);
+            for (Intersectable child : bvh.unbounded)
+                write(child, out);
+            out.writeInt(bvh.primitives.length);
+            for (Intersectable child : bvh.primitives)
+                write(child, out);
+            writeDoubles(out, bvh.nodeBounds, bvh.size * 6);
+            writeInts(out, bvh.nodeOffsets, bvh.size);
+            writeInts(out, bvh.nodeCounts, bvh.size);
+            writeInts(out, bvh.nodeAxes, bvh.size);
+            out.writeInt(bvh.depth);
+        } else if (kind == Sphere.class) {
+            Sphere sphere = (Sphere) item;
+            out.writeByte(SPHERE);
+            out.writeDouble(sphere.radius);
+            writePoint(out, sphere.getCenter());
+        } else if (kind == Plane.class) {
+            out.writeByte(PLANE);
+            writePlane(out, (Plane) item);
+        } else if (kind == Polygon.class) {
+            Polygon polygon = (Polygon) item;
+            out.writeByte(POLYGON);
+            writePlane(out, polygon.plane);
+            out.writeInt(polygon.vertices.size());
+            for (Point vertex : polygon.vertices)
+                writePoint(out, vertex);
+        } else if (kind == Triangle.class) {
+            Triangle triangle = (Triangle) item;
+            out.writeByte(TRIANGLE);
+            writePlane(out, triangle.plane);
+            for (Point vertex : triangle.vertices)
+                writePoint(out, vertex);
+        } else if (kind == Tube.class) {
+            Tube tube = (Tube) item;
+            out.writeByte(TUBE);
+            out.writeDouble(tube.radius);
+            writeRay(out, tube.axisRay);
+        } else if (kind == Cylinder.class) {
+            Cylinder cylinder = (Cylinder) item;
+            out.writeByte(CYLINDER);
+            out.writeDouble(cylinder.radius);
+            writeRay(out, cylinder.axisRay);
+            out.writeDouble(cylinder.getHeight());
+        } else if (kind == TriangleMesh.class) {
+            TriangleMesh mesh = (TriangleMesh) item;
+            out.writeByte(MESH);
+            writeFloats(out, mesh.vertices, mesh.vertices.length);
+            writeInts(out, mesh.indices, mesh.indices.length);
+            writeFloats(out, mesh.nodeBounds, mesh.size * 6);
+            writeInts(out, mesh.nodeOffsets, mesh.size);
+            writeInts(out, mesh.nodeCounts, mesh.size);
+            out.writeInt(mesh.depth);
+        } else
+            throw new IllegalArgumentException("Cannot write an intersectable of " + kind);
+
+        // the state common to all the intersectables
+        out.writeBoolean(item.bvhIsOn);
+        out.writeBoolean(item.box != null);
+        if (item.box != null) {
+            writePoint(out, item.box.minimums);
+            writePoint(out, item.box.maximums);
+        }
+        if (item instanceof Geometry geometry) {
+            writeMaterial(out, geometry.getMaterial());
+            writeColor(out, geometry.getEmission());
+        }
+    }
+
+    /**
+     * Reads an intersectable with everything it contains
+     *
+     * @param in the buffer to read from, at the position of the intersectable
+     * @return the intersectable
+     * @throws IllegalArgumentException if the buffer contains an intersectable of an unknown kind
+     */
+    public Intersectable read(ByteBuffer in) throws IllegalArgumentException {
+        byte kind = in.get();
+        Intersectable item = switch (kind) {
+            case GEOMETRIES -> {
+                Geometries geometries = new Geometries();
+                for (int i = in.getInt(); i > 0; --i)
+                    geometries.intersectables.add(read(in));
+                yield geometries;
+            }
+            case COMPILED_BVH -> {
+                Intersectable[] unbounded = new Intersectable[in.getInt()];
+                for (int i = 0; i < unbounded.length; ++i)
+                    unbounded[i] = read(in);
+                Intersectable[] primitives = new Intersectable[in.getInt()];
+                for (int i = 0; i < primitives.length; ++i)
+                    primitives[i] = read(in);
+                yield new CompiledBvh(unbounded, primitives, readDoubles(in), readInts(in), readInts(in),
+                        readInts(in), in.getInt());
+            }
+            case SPHERE -> new Sphere(in.getDouble(), readPoint(in));
+            case PLANE -> readPlane(in);
+            case POLYGON -> {
+                Plane plane = readPlane(in);
+                Point[] vertices = new Point[in.getInt()];
+                for (int i = 0; i < vertices.length; ++i)
+                    vertices[i] = readPoint(in);
+                yield new Polygon(plane, vertices);
+            }
+            case TRIANGLE -> new Triangle(readPlane(in), readPoint(in), readPoint(in), readPoint(in));
+            case TUBE -> new Tube(in.getDouble(), readRay(in));
+            case CYLINDER -> {
+                double radius = in.getDouble();
+                yield new Cylinder(readRay(in), radius, in.getDouble());
+            }
+            case MESH -> new TriangleMesh(readFloats(in), readInts(in), readFloats(in), readInts(in), readInts(in),
+                    in.getInt());
+            default -> throw new IllegalArgumentException("Unknown kind of intersectable " + kind);
+        };
+
+        item.bvhIsOn = in.get() != 0;
+        item.box = in.get() != 0 ? item.new AABB(readPoint(in), readPoint(in)) : null;
+        if (item instanceof Geometry geometry)
+            geometry.setMaterial(readMaterial(in)).setEmission(readColor(in));
+        return item;
+    }
+
+    /**
+     * Writes a material, or only its index if it was written already
+     *
+     * @param out      the stream to write into
+     * @param material the material
+     * @throws IOException if the stream could not be written
+     */
+    private void writeMaterial(DataOutputStream out, Material material) throws IOException {
+        if (writeShared(out, material))
+            return;
+        writeDouble3(out, material.kD);
+        writeDouble3(out, material.kS);
+        out.writeInt(material.nShininess);
+        writeDouble3(out, material.kR);
+        writeDouble3(out, material.kT);
+    }
+
+    /**
+     * Reads a material, or finds it if it was read already
+     *
+     * @param in the buffer to read from
+     * @return the material
+     */
+    private Material readMaterial(ByteBuffer in) {
+        int index = in.getInt();
+        if (index < read.size())
+            return (Material) read.get(index);
+        Material material = new Material().setkD(readDouble3(in)).setkS(readDouble3(in))
+                .setnShininess(in.getInt()).setkR(readDouble3(in)).setkT(readDouble3(in));
+        read.add(material);
+        return material;
+    }
+
+    /**
+     * Writes a color, or only its index if it was written already
+     *
+     * @param out   the stream to write into
+     * @param color the color
+     * @throws IOException if the stream could not be written
+     */
+    private void writeColor(DataOutputStream out, Color color) throws IOException {
+        if (writeShared(out, color))
+            return;
+        out.writeDouble(color.getRed());
+        out.writeDouble(color.getGreen());
+        out.writeDouble(color.getBlue());
+    }
+
+    /**
+     * Reads a color, or finds it if it was read already
+     *
+     * @param in the buffer to read from
+     * @return the color
+     */
+    private Color readColor(ByteBuffer in) {
+        int index = in.getInt();
+        if (index < read.size())
+            return (Color) read.get(index);
+        Color color = new Color(in.getDouble(), in.getDouble(), in.getDouble());
+        read.add(color);
+        return color;
+    }
+
+    /**
+     * Writes the index of a shared object - a new index if the object was not written yet
+     *
+     * @param out    the stream to write into
+     * @param shared the shared object
+     * @return true if the object was written already, false if it should be written after its index
+     * @throws IOException if the stream could not be written
+     */
+    private boolean writeShared(DataOutputStream out, Object shared) throws IOException {
+        Integer index = written.get(shared);
+        if (index != null) {
+            out.writeInt(index);
+            return true;
+        }
+        out.writeInt(written.size());
+        written.put(shared, written.size());
+        return false;
+    }
+
+    /**
+     * Writes a plane - its point and its normal
+     *
+     * @param out   the stream to write into
+     * @param plane the plane
+     * @throws IOException if the stream could not be written
+     */
+    private static void writePlane(DataOutputStream out, Plane plane) throws IOException {
+        writePoint(out, plane.getP0());
+        writePoint(out, plane.getNormal());
+    }
+
+    /**
+     * Reads a plane
+     *
+     * @param in the buffer to read from
+     * @return the plane
+     */
+    private static Plane readPlane(ByteBuffer in) {
+        return new Plane(readPoint(in), readVector(in));
+    }
+
+    /**
+     * Writes a ray - its origin and its direction
+     *
+     * @param out the stream to write into
+     * @param ray the ray
+     * @throws IOException if the stream could not be written
+     */
+    private static void writeRay(DataOutputStream out, Ray ray) throws IOException {
+        writePoint(out, ray.getP0());
+        writePoint(out, ray.getDir());
+    }
+
+    /**
+     * Reads a ray
+     *
+     * @param in the buffer to read from
+     * @return the ray
+     */
+    private static Ray readRay(ByteBuffer in) {
+        return new Ray(readPoint(in), readVector(in));
+    }
+
+    /**
+     * Writes the coordinates of a point (or of a vector)
+     *
+     * @param out   the stream to write into
+     * @param point the point
+     * @throws IOException if the stream could not be written
+     */
+    private static void writePoint(DataOutputStream out, Point point) throws IOException {
+        out.writeDouble(point.getX());
+        out.writeDouble(point.getY());
+        out.writeDouble(point.getZ());
+    }
+
+    /**
+     * Reads a point
+     *
+     * @param in the buffer to read from
+     * @return the point
+     */
+    private static Point readPoint(ByteBuffer in) {
+        return new Point(in.getDouble(), in.getDouble(), in.getDouble());
+    }
+
+    /**
+     * Reads a vector
+     *
+     * @param in the buffer to read from
+     * @return the vector
+     */
+    private static Vector readVector(ByteBuffer in) {
+        return new Vector(in.getDouble(), in.getDouble(), in.getDouble());
+    }
+
+    /**
+     * Writes a triad of numbers
+     *
+     * @param out   the stream to write into
+     * @param triad the triad
+     * @throws IOException if the stream could not be written
+     */
+    private static void writeDouble3(DataOutputStream out, Double3 triad) throws IOException {
+        out.writeDouble(triad.getD1());
+        out.writeDouble(triad.getD2());
+        out.writeDouble(triad.getD3());
+    }
+
+    /**
+     * Reads a triad of numbers
+     *
+     * @param in the buffer to read from
+     * @return the triad
+     */
+    private static Double3 readDouble3(ByteBuffer in) {
+        return new Double3(in.getDouble(), in.getDouble(), in.getDouble());
+    }
+
+    /**
+     * Returns the buffer through which the arrays are written, cleared
+     *
+     * @return the buffer
+     */
+    private ByteBuffer chunk() {
+        if (chunk == null)
+            chunk = ByteBuffer.allocate(CHUNK);
+        return chunk.clear();
+    }
+
+    /**
+     * Writes the length and the beginning of an array of floats
+     *
+     * @param out    the stream to write into
+     * @param array  the array
+     * @param length amount of numbers to write
+     * @throws IOException if the stream could not be written
+     */
+    private void writeFloats(DataOutputStream out, float[] array, int length) throws IOException {
+        out.writeInt(length);
+        for (int from = 0, count; from < length; from += count) {
+            count = Math.min(length - from, CHUNK / Float.BYTES);
+            ByteBuffer buffer = chunk();
+            buffer.asFloatBuffer().put(array, from, count);
+            out.write(buffer.array(), 0, count * Float.BYTES);
+        }
+    }
+
+    /**
+     * Writes the length and the beginning of an array of doubles
+     *
+     * @param out    the stream to write into
+     * @param array  the array
+     * @param length amount of numbers to write
+     * @throws IOException if the stream could not be written
+     */
+    private void writeDoubles(DataOutputStream out, double[] array, int length) throws IOException {
+        out.writeInt(length);
+        for (int from = 0, count; from < length; from += count) {
+            count = Math.min(length - from, CHUNK / Double.BYTES);
+            ByteBuffer buffer = chunk();
+            buffer.asDoubleBuffer().put(array, from, count);
+            out.write(buffer.array(), 0, count * Double.BYTES);
+        }
+    }
+
+    /**
+     * Writes the length and the beginning of an array of integers
+     *
+     * @param out    the stream to write into
+     * @param array  the array
+     * @param length amount of numbers to write
+     * @throws IOException if the stream could not be written
+     */
+    private void writeInts(DataOutputStream out, int[] array, int length) throws IOException {
+        out.writeInt(length);
+        for (int from = 0, count; from < length; from += count) {
+            count = Math.min(length - from, CHUNK / Integer.BYTES);
+            ByteBuffer buffer = chunk();
+            buffer.asIntBuffer().put(array, from, count);
+            out.write(buffer.array(), 0, count * Integer.BYTES);
+        }
+    }
+
+    /**
+     * Reads an array of floats in bulk
+     *
+     * @param in the buffer to read from
+     * @return the array
+     */
+    private static float[] readFloats(ByteBuffer in) {
+        float[] array = new float[in.getInt()];
+        in.asFloatBuffer().get(array);
+        in.position(in.position() + array.length * Float.BYTES);
+        return array;
+    }
+
+    /**
+     * Reads an array of doubles in bulk
+     *
+     * @param in the buffer to read from
+     * @return the array
+     */
+    private static double[] readDoubles(ByteBuffer in) {
+        double[] array = new double[in.getInt()];
+        in.asDoubleBuffer().get(array);
+        in.position(in.position() + array.length * Double.BYTES);
+        return array;
+    }
+
+    /**
+     * Reads an array of integers in bulk
+     *
+     * @param in the buffer to read from
+     * @return the array
+     */
+    private static int[] readInts(ByteBuffer in) {
+        int[] array = new int[in.getInt()];
+        in.asIntBuffer().get(array);
+        in.position(in.position() + array.length * Integer.BYTES);
+        return array;
+    }
+}
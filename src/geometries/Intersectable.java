@@ -1,5 +1,6 @@
 package geometries;
 
+import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
@@ -7,6 +8,8 @@ import primitives.Vector;
 import java.util.List;
 import java.util.Objects;
 
+import static primitives.Util.alignZero;
+
 /**
  * The Intersectable interface represents a geometric object that can be intersected by a ray.
  */
@@ -29,6 +32,10 @@ public abstract class Intersectable {
     public class AABB {
         public Point minimums;
         public Point maximums;
+        /**
+         * The bounds as raw numbers for the slab test - minX, minY, minZ, maxX, maxY, maxZ
+         */
+        private final double[] bounds;
 
         /**
          * Constructs an AABB with the specified minimum and maximum points.
@@ -39,6 +46,17 @@ public abstract class Intersectable {
         public AABB(Point min, Point max) {
             minimums = min;
             maximums = max;
+            bounds = new double[]{min.getX(), min.getY(), min.getZ(), max.getX(), max.getY(), max.getZ()};
+        }
+
+        /**
+         * Copies the bounds of the box into an array of numbers.
+         *
+         * @param bounds the array to copy into - minX, minY, minZ, maxX, maxY, maxZ
+         * @param offset index of the first number in the array
+         */
+        void copyTo(double[] bounds, int offset) {
+            System.arraycopy(this.bounds, 0, bounds, offset, 6);
         }
     }
 
@@ -49,52 +67,50 @@ public abstract class Intersectable {
      * @return true if the ray intersects the bounding box, false otherwise.
      */
     public boolean isIntersectingBoundingBox(Ray ray) {
+        return isIntersectingBoundingBox(ray, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Checks if the ray intersects the bounding box of this object in front of the ray origin,
+     * not farther than a maximum distance.
+     *
+     * @param ray         The ray to check for intersection with the bounding box.
+     * @param maxDistance The maximum distance along the ray.
+     * @return true if the ray intersects the bounding box, false otherwise.
+     */
+    public boolean isIntersectingBoundingBox(Ray ray, double maxDistance) {
         if (!bvhIsOn || box == null)
             return true;
-        Vector dir = ray.getDir();
-        Point p0 = ray.getP0();
-        double tMin = (box.minimums.getX() - p0.getX()) / dir.getX();
-        double tMax = (box.maximums.getX() - p0.getX()) / dir.getX();
-        if (tMin > tMax) {
-            double temp = tMin;
-            tMin = tMax;
-            tMax = temp;
-        }
-        double tyMin = (box.minimums.getY() - p0.getY()) / dir.getY();
-        double tyMax = (box.maximums.getY() - p0.getY()) / dir.getY();
-        if (tyMin > tyMax) {
-            double temp = tyMin;
-            tyMin = tyMax;
-            tyMax = temp;
-        }
-        if ((tMin > tyMax) || (tyMin > tMax))
-            return false;
-        if (tyMin > tMin)
-            tMin = tyMin;
-        if (tyMax < tMax)
-            tMax = tyMax;
-        double tzMin = (box.minimums.getZ() - p0.getZ()) / dir.getZ();
-        double tzMax = (box.maximums.getZ() - p0.getZ()) / dir.getZ();
-        if (tzMin > tzMax) {
-            double temp = tzMin;
-            tzMin = tzMax;
-            tzMax = temp;
-        }
-        if ((tMin > tzMax) || (tzMin > tMax))
-            return false;
-        if (tzMin > tMin)
-            tMin = tzMin;
-        if (tzMax < tMax)
-            tMax = tzMax;
-        return true;
+        return ray.intersectsBox(box.bounds, 0, 0, maxDistance);
     }
 
     /**
      * The GeoPoint class represents a point of intersection between a ray and a geometry object.
+     * It is the hit record of the shading: besides the point it carries the ray parameter t, the geometric normal
+     * (filled by the intersector if it is known there for free, or calculated once on demand), the side of the
+     * surface the ray hit, and the barycentric coordinates of a hit on a triangle.
      */
     public static class GeoPoint {
         public Geometry geometry;
         public Point point;
+        /**
+         * The distance of the intersection point along the ray (the ray parameter t), NaN if unknown
+         */
+        public double t = Double.NaN;
+        /**
+         * The barycentric coordinates of a hit on a triangle - the weights of its second and third vertices
+         * (the weight of the first one is 1 - u - v), NaN for other geometries
+         */
+        public double u = Double.NaN, v = Double.NaN;
+        /**
+         * The geometric normal at the intersection point, null until it is filled or calculated
+         */
+        private Vector normal;
+        /**
+         * The dot product of the ray direction and the normal (aligned to zero), NaN until the hit is oriented
+         * by {@link #orient(Ray)}
+         */
+        private double cosine = Double.NaN;
 
         /**
          * Constructs a GeoPoint with the specified geometry and intersection point.
@@ -107,6 +123,74 @@ public abstract class Intersectable {
             this.point = point;
         }
 
+        /**
+         * Constructs a GeoPoint with the specified geometry, intersection point and its distance along the ray.
+         *
+         * @param geometry The geometry object.
+         * @param point    The intersection point.
+         * @param t        The distance of the intersection point along the ray.
+         */
+        public GeoPoint(Geometry geometry, Point point, double t) {
+            this.geometry = geometry;
+            this.point = point;
+            this.t = t;
+        }
+
+        /**
+         * Fills the geometric normal at the intersection point - by intersectors that know it for free.
+         *
+         * @param normal The normal (normalized) at the intersection point.
+         * @return The GeoPoint itself, for method chaining.
+         */
+        public GeoPoint setNormal(Vector normal) {
+            this.normal = normal;
+            return this;
+        }
+
+        /**
+         * Returns the geometric normal at the intersection point, calculated by the geometry on the first call
+         * if the intersector did not fill it.
+         *
+         * @return The normal at the intersection point.
+         * @throws IllegalArgumentException If the geometry cannot calculate the normal at the point.
+         */
+        public Vector getNormal() throws IllegalArgumentException {
+            if (normal == null)
+                normal = geometry.getNormal(point);
+            return normal;
+        }
+
+        /**
+         * Completes the hit record for the ray that found it - the normal and its dot product with the ray
+         * direction, which tells the side of the surface the ray hit. Called once for the closest hit of a ray.
+         *
+         * @param ray The ray that found the intersection.
+         * @return The GeoPoint itself, for method chaining.
+         * @throws IllegalArgumentException If the geometry cannot calculate the normal at the point.
+         */
+        public GeoPoint orient(Ray ray) throws IllegalArgumentException {
+            cosine = alignZero(getNormal().dotProduct(ray.getDir()));
+            return this;
+        }
+
+        /**
+         * Returns the dot product of the ray direction and the normal, as calculated by {@link #orient(Ray)}.
+         *
+         * @return The dot product, zero if the ray grazes the surface.
+         */
+        public double getCosine() {
+            return cosine;
+        }
+
+        /**
+         * Checks whether the ray hit the front face of the surface - the side its normal points to.
+         *
+         * @return true if the ray hit the front face, false if it hit the back face or grazes the surface.
+         */
+        public boolean isFrontFace() {
+            return cosine < 0;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -144,13 +228,12 @@ public abstract class Intersectable {
      * @throws IllegalArgumentException If the ray is null.
      */
     public final List<GeoPoint> findGeoIntersections(Ray ray) throws IllegalArgumentException {
-        if (bvhIsOn && !isIntersectingBoundingBox(ray))
-            return null;
         return findGeoIntersections(ray, Double.POSITIVE_INFINITY);
     }
 
     /**
      * Finds the intersection points between a ray and this object, up to a specified maximum distance.
+     * If the ray misses the bounding box of the object, the intersection calculation is skipped.
      *
      * @param ray         The ray to intersect with this object.
      * @param maxDistance The maximum distance to consider for intersections.
@@ -158,9 +241,55 @@ public abstract class Intersectable {
      * @throws IllegalArgumentException If the ray is null.
      */
     public final List<GeoPoint> findGeoIntersections(Ray ray, double maxDistance) throws IllegalArgumentException {
+        if (bvhIsOn && !isIntersectingBoundingBox(ray, maxDistance))
+            return null;
         return findGeoIntersectionsHelper(ray, maxDistance);
     }
 
+    /**
+     * Finds the intersection point closest to the ray origin, up to a specified maximum distance.
+     * Unlike {@link #findGeoIntersections(Ray, double)} it does not collect all the intersections:
+     * every found intersection shortens the searched distance, so farther objects are skipped.
+     *
+     * @param ray  The ray to intersect with this object.
+     * @param tMax The maximum distance to consider for intersections.
+     * @return The closest intersection point with its distance along the ray, or null if there is no intersection.
+     * @throws IllegalArgumentException If the ray is null.
+     */
+    public final GeoPoint findClosestGeoIntersection(Ray ray, double tMax) throws IllegalArgumentException {
+        if (bvhIsOn && !isIntersectingBoundingBox(ray, tMax))
+            return null;
+        return findClosestGeoIntersectionHelper(ray, tMax);
+    }
+
+    /**
+     * Helper method to be overridden by subclasses that can find the closest intersection directly.
+     * The default implementation finds all the intersections and picks the closest one.
+     *
+     * @param ray  The ray to intersect with this object.
+     * @param tMax The maximum distance to consider for intersections.
+     * @return The closest intersection point with its distance along the ray, or null if there is no intersection.
+     * @throws IllegalArgumentException If the ray is null.
+     */
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double tMax) throws IllegalArgumentException {
+        List<GeoPoint> points = findGeoIntersectionsHelper(ray, tMax);
+        if (points == null)
+            return null;
+        Point p0 = ray.getP0();
+        Vector dir = ray.getDir();
+        GeoPoint closest = null;
+        for (GeoPoint gp : points) {
+            // the direction is normalized, so the projection on it is the distance along the ray
+            if (Double.isNaN(gp.t))
+                gp.t = (gp.point.getX() - p0.getX()) * dir.getX()
+                        + (gp.point.getY() - p0.getY()) * dir.getY()
+                        + (gp.point.getZ() - p0.getZ()) * dir.getZ();
+            if (closest == null || gp.t < closest.t)
+                closest = gp;
+        }
+        return closest;
+    }
+
     /**
      * Helper method to be implemented by subclasses.
      * Finds the intersection points between a ray and this object, up to a specified maximum distance.
@@ -172,6 +301,46 @@ public abstract class Intersectable {
      */
     protected abstract List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) throws IllegalArgumentException;
 
+    /**
+     * Calculates the part of the light that passes through this object along a ray, up to a specified maximum
+     * distance - the product of the transparency factors (kT) of all the intersections in front of that distance.
+     * The search stops as soon as an opaque intersection is found.
+     *
+     * @param ray         The ray to check, usually from a point towards a light source.
+     * @param maxDistance The maximum distance to consider for intersections, usually the distance to the light.
+     * @return The transmittance factor, {@link Double3#ONE} if nothing blocks the ray and {@link Double3#ZERO}
+     * if an opaque object blocks it.
+     * @throws IllegalArgumentException If the ray is null.
+     */
+    public final Double3 transmittance(Ray ray, double maxDistance) throws IllegalArgumentException {
+        if (bvhIsOn && !isIntersectingBoundingBox(ray, maxDistance))
+            return Double3.ONE;
+        return transmittanceHelper(ray, maxDistance);
+    }
+
+    /**
+     * Checks whether an opaque object blocks the ray before a specified maximum distance.
+     *
+     * @param ray         The ray to check, usually from a point towards a light source.
+     * @param maxDistance The maximum distance to consider for intersections, usually the distance to the light.
+     * @return true if no light passes along the ray, false otherwise.
+     * @throws IllegalArgumentException If the ray is null.
+     */
+    public final boolean occluded(Ray ray, double maxDistance) throws IllegalArgumentException {
+        return transmittance(ray, maxDistance).equals(Double3.ZERO);
+    }
+
+    /**
+     * Helper method to be implemented by subclasses.
+     * Calculates the transmittance of this object along a ray, up to a specified maximum distance.
+     *
+     * @param ray         The ray to check.
+     * @param maxDistance The maximum distance to consider for intersections.
+     * @return The transmittance factor.
+     * @throws IllegalArgumentException If the ray is null.
+     */
+    protected abstract Double3 transmittanceHelper(Ray ray, double maxDistance) throws IllegalArgumentException;
+
     /**
      * Creates a bounding box for this object.
      * The bounding box is an axis-aligned bounding box (AABB) that encloses the object.
@@ -9,6 +9,7 @@ import java.util.List;
 
 import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
+import static primitives.VectorMath.dotProduct;
 
 /**
  * The Plane class represents a plane in 3D space.
@@ -98,15 +99,41 @@ public class Plane extends Geometry {
      * @param ray ray towards the plane
      * @return immutable list of one intersection point as  {@link GeoPoint} object
      */
-
+    @Override
     protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance)  {
+        GeoPoint gp = findClosestGeoIntersectionHelper(ray, maxDistance);
+        //return immutable List
+        return gp == null ? null : List.of(gp);
+    }
+
+    /**
+     * find the single intersection between ray and plane
+     *
+     * @param ray  ray towards the plane
+     * @param tMax maximum distance of the intersection from the ray origin
+     * @return the intersection point with its distance along the ray, or null if there is none
+     */
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double tMax) {
+        double t = intersectionDistance(ray, tMax);
+        return Double.isNaN(t) ? null : new GeoPoint(this, ray.getPoint(t), t).setNormal(normal);
+    }
+
+    /**
+     * Calculates the distance along a ray to its intersection with the plane
+     *
+     * @param ray         ray towards the plane
+     * @param maxDistance maximum distance of the intersection from the ray origin
+     * @return the distance (ray parameter t), or NaN if the ray does not intersect the plane within max distance
+     */
+    double intersectionDistance(Ray ray, double maxDistance) {
         Point P0 = ray.getP0();
         Vector v = ray.getDir();
         Vector n = normal;
 
         // ray cannot start at plane's origin point
         if (p0.equals(P0))
-            return null;
+            return Double.NaN;
 
         // ray points -> P = p0 + t*v_ (v_ = direction vector)
         // points on plane  if normal vector dot product with vector from
@@ -119,27 +146,25 @@ public class Plane extends Geometry {
 
         // ray direction cannot be parallel to plane orientation
         if (isZero(nv)) {
-            return null;
+            return Double.NaN;
         }
 
         // vector from origin to point
-        Vector Q_P0 = p0.subtract(P0);
-
-        double nQMinusP0 = alignZero(n.dotProduct(Q_P0));
+        double nQMinusP0 = alignZero(dotProduct(n.getX(), n.getY(), n.getZ(),
+                p0.getX() - P0.getX(), p0.getY() - P0.getY(), p0.getZ() - P0.getZ()));
 
         //t should not be equal to 0
         if (isZero(nQMinusP0)) {
-            return null;
+            return Double.NaN;
         }
         // scaling factor for ray , if value is positive
         // ray intersects plane
         double t = alignZero(nQMinusP0 / nv);
         if (t > 0 && alignZero(t - maxDistance) <= 0) {
-            //return immutable List
-            return List.of(new GeoPoint(this, ray.getPoint(t)));
+            return t;
         }
         // no intersection point  - ray and plane in opposite  direction
-        return null;
+        return Double.NaN;
     }
 
     /**
@@ -2,6 +2,7 @@ package geometries;
 
 import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
+import static primitives.VectorMath.tripleProduct;
 
 import java.util.List;
 import java.util.OptionalDouble;
@@ -82,6 +83,17 @@ public class Polygon extends Geometry {
 
    }
 
+   /** Polygon constructor of vertices that are known to be valid, with their plane
+    * already calculated - for geometries restored by a scene cache. Nothing is
+    * checked and the bounding box is not created.
+    * @param plane    the plane of the polygon
+    * @param vertices list of vertices according to their order by edge path */
+   Polygon(Plane plane, Point... vertices) {
+      this.vertices = List.of(vertices);
+      size          = vertices.length;
+      this.plane    = plane;
+   }
+
    /**
     * Returns the normal vector of the plane geometry at the specified point.
     * This method delegates the calculation of the normal vector to the underlying plane.
@@ -120,36 +132,55 @@ public class Polygon extends Geometry {
     */
    @Override
    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance)  {
-      // find intersection between ray and plane containing the polygon
-      List<GeoPoint> points=plane.findGeoIntersections(ray,maxDistance);
-      // no intersections with plane , ray does not intersect polygon
-      if (points==null)
-         return null;
+      GeoPoint gp = findClosestGeoIntersectionHelper(ray, maxDistance);
+      return gp == null ? null : List.of(gp);
+   }
 
-      //check that intersection point is closer to ray origin than
-      // max distance parameter
-      double distance = points.get(0).point.distance(ray.getP0());
-      if(alignZero(distance-maxDistance)>0)
+   /**
+    * find the single intersection between ray and polygon
+    * @param ray  ray towards the plane
+    * @param tMax maximum distance of the intersection from the ray origin
+    * @return the intersection point with its distance along the ray, or null if there is none
+    */
+   @Override
+   protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double tMax) {
+      // find intersection between ray and plane containing the polygon,
+      // not farther from ray origin than max distance parameter
+      double t = plane.intersectionDistance(ray, tMax);
+      // no intersections with plane , ray does not intersect polygon
+      if (Double.isNaN(t) || !isCrossingInside(ray))
          return null;
+      return new GeoPoint(this, ray.getPoint(t), t).setNormal(plane.getNormal());
+   }
 
+   /**
+    * check that the ray crosses the plane of the polygon within the polygon boundary
+    * @param ray ray towards the plane
+    * @return true if the ray crosses the polygon inside its boundary (edges excluded)
+    */
+   protected boolean isCrossingInside(Ray ray) {
       // check that intersection point is within polygon boundary
       // by  creating vectors from ray origin to each pair of adjacent vertices in polygon
       // if the sign of the dot product of the vertices for all pairs is matching. ray intersects polygon
       Point p0 = ray.getP0();
       Vector direction = ray.getDir();
+      double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+      double dx = direction.getX(), dy = direction.getY(), dz = direction.getZ();
 
       // get vector from ray origin to first vertices of polygon
-      Vector v1 = vertices.get(0).subtract(p0);
+      Point vertex = vertices.get(0);
+      double v1x = vertex.getX() - ox, v1y = vertex.getY() - oy, v1z = vertex.getZ() - oz;
 
       // get vector from ray origin to adjacent vertices of previous vertices
-      Vector v2 = vertices.get(1).subtract(p0);
+      vertex = vertices.get(1);
+      double v2x = vertex.getX() - ox, v2y = vertex.getY() - oy, v2z = vertex.getZ() - oz;
 
       // get sign of dot product of the vectors
-      double sign = direction.dotProduct(v2.crossProduct(v1));
+      double sign = tripleProduct(dx, dy, dz, v2x, v2y, v2z, v1x, v1y, v1z);
 
       // if dot product == 0 ray does not intersect polygon
       if (isZero(sign))
-         return null;
+         return false;
 
       // flag setting the sign of the dot product of the first pair of vertices
       boolean checkSign = sign > 0;
@@ -157,21 +188,26 @@ public class Polygon extends Geometry {
       // loop over all adjacent vertices in polygon and check sign of dot-product for constructed
       // vectors
       for (int i = vertices.size() - 1; i > 0; --i) {
-         v2 = v1;
-         v1 = vertices.get(i).subtract(p0);
-         sign = alignZero(direction.dotProduct(v2.crossProduct(v1)));
+         v2x = v1x;
+         v2y = v1y;
+         v2z = v1z;
+         vertex = vertices.get(i);
+         v1x = vertex.getX() - ox;
+         v1y = vertex.getY() - oy;
+         v1z = vertex.getZ() - oz;
+         sign = alignZero(tripleProduct(dx, dy, dz, v2x, v2y, v2z, v1x, v1y, v1z));
 
          // vectors constructed are orthogonal , ray does not intersect polygon
          if (isZero(sign))
-            return null;
+            return false;
 
          //  sign is not matching
          if (checkSign != (sign > 0))
-            return null;
+            return false;
       }
 
-      // all signs were matching return the intersection point
-      return List.of(new GeoPoint(this,points.get(0).point));
+      // all signs were matching
+      return true;
    }
 
 }
\ No newline at end of file
@@ -7,6 +7,8 @@ import primitives.Vector;
 import java.util.List;
 
 import static primitives.Util.alignZero;
+import static primitives.VectorMath.dotProduct;
+import static primitives.VectorMath.lengthSquared;
 
 /**
  * The Sphere class represents a sphere in 3D space.
@@ -24,6 +26,7 @@ public class Sphere extends RadialGeometry {
     public Sphere(double radius, Point center) {
         super(radius);
         this.center = center;
+        if (bvhIsOn) createBoundingBox();
     }
 
     /**
@@ -59,16 +62,16 @@ public class Sphere extends RadialGeometry {
         // ray starts at center point of sphere
         // return point on surface in direction of ray
         if (P0.equals(center)) {
-            return List.of( new GeoPoint(this,ray.getPoint(radius)));
+            return List.of( new GeoPoint(this,ray.getPoint(radius),radius));
         }
 
         // vector from ray origin to center point
-        Vector U = center.subtract(P0);
+        double ux = center.getX() - P0.getX(), uy = center.getY() - P0.getY(), uz = center.getZ() - P0.getZ();
 
         // tm = U's projection on ray's vector
-        double tm = alignZero(v.dotProduct(U));
+        double tm = alignZero(dotProduct(v.getX(), v.getY(), v.getZ(), ux, uy, uz));
         // d between u and ray (at center point)
-        double d = alignZero(Math.sqrt(U.lengthSquared() - tm * tm));
+        double d = alignZero(Math.sqrt(lengthSquared(ux, uy, uz) - tm * tm));
 
         //distance from center to ray is larger than the radius
         // no intersections : the ray direction is above the sphere
@@ -96,23 +99,55 @@ public class Sphere extends RadialGeometry {
         if (t1 > 0 && t2 > 0 && distanceT1 && distanceT2) {
             Point P1 =ray.getPoint(t1);
             Point P2 =ray.getPoint(t2);
-            return List.of(new GeoPoint(this,P1), new GeoPoint (this,P2));
+            return List.of(new GeoPoint(this,P1,t1), new GeoPoint (this,P2,t2));
         }
         // ray constructed inside sphere and intersect in back direction
         if (t1 > 0 && distanceT1) {
             Point P1 =ray.getPoint(t1);
-            return List.of(new GeoPoint(this,P1));
+            return List.of(new GeoPoint(this,P1,t1));
         }
         // ray constructed inside sphere and intersect in forward direction
         if (t2 > 0 && distanceT2) {
             Point P2 =ray.getPoint(t2);
-            return List.of(new GeoPoint (this,P2));
+            return List.of(new GeoPoint (this,P2,t2));
         }
         // no intersection points found - assurance return
         // code should not be reaching this point
         return null;
 
     }
+
+    /**
+     * Finds the intersection of the ray with the sphere that is closest to the ray origin
+     *
+     * @param ray  The ray to intersect with the sphere.
+     * @param tMax The maximum distance of the intersection from the ray origin.
+     * @return The closest intersection point with its distance along the ray, or null if there is none.
+     */
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double tMax) throws IllegalArgumentException {
+        Point P0 = ray.getP0();
+
+        // ray starts at center point of sphere
+        if (P0.equals(center))
+            return alignZero(radius - tMax) <= 0 ? new GeoPoint(this, ray.getPoint(radius), radius) : null;
+
+        double ux = center.getX() - P0.getX(), uy = center.getY() - P0.getY(), uz = center.getZ() - P0.getZ();
+        Vector v = ray.getDir();
+        double tm = alignZero(dotProduct(v.getX(), v.getY(), v.getZ(), ux, uy, uz));
+        double d = alignZero(Math.sqrt(lengthSquared(ux, uy, uz) - tm * tm));
+        if (d >= radius)
+            return null;
+
+        double th = alignZero(Math.sqrt(radius * radius - d * d));
+        // the nearer intersection is in front of the ray origin only if the ray starts outside the sphere
+        double t = alignZero(tm - th);
+        if (t <= 0)
+            t = alignZero(tm + th);
+        if (t <= 0 || alignZero(t - tMax) > 0)
+            return null;
+        return new GeoPoint(this, ray.getPoint(t), t);
+    }
     /**
      * Creates a bounding box for this object.
      * The bounding box is an axis-aligned bounding box (AABB) that encloses the object.
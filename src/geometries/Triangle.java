@@ -4,15 +4,31 @@ import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
-import java.util.List;
-
 import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
+import static primitives.VectorMath.lengthSquared;
+import static primitives.VectorMath.tripleProduct;
 
 /**
  * The Triangle class represents a triangle in 3D space.
  */
 public class Triangle extends Polygon {
+    /**
+     * Coordinates of the first vertex
+     */
+    private final double ax, ay, az;
+    /**
+     * Edge from the first vertex to the second one
+     */
+    private final double e1x, e1y, e1z;
+    /**
+     * Edge from the first vertex to the third one
+     */
+    private final double e2x, e2y, e2z;
+    /**
+     * Reciprocal of the length of the cross product of the edges (of twice the area of the triangle)
+     */
+    private final double inverseNormalLength;
 
     /**
      * Constructs a Triangle object with the given points.
@@ -23,67 +39,97 @@ public class Triangle extends Polygon {
      * @throws IllegalArgumentException if any of the given points are null
      */
     public Triangle(Point p1, Point p2, Point p3) throws IllegalArgumentException {
-        super(p1, p2, p3);
+        this(new Plane(p1, p2, p3), p1, p2, p3);
         if (bvhIsOn) createBoundingBox();
     }
 
     /**
-     * find intersection between ray and  2D triangle
+     * Constructs a Triangle object of points that are known to be valid, with their plane already calculated -
+     * for triangles restored by a scene cache. The bounding box is not created.
      *
-     * @param ray ray towards object
-     * @return immutable list of one intersection point as  {@link GeoPoint} object
+     * @param plane the plane of the triangle
+     * @param p1    the first Point of the triangle
+     * @param p2    the second Point of the triangle
+     * @param p3    the third Point of the triangle
      */
-    @Override
-    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) throws IllegalArgumentException {
-        // check if ray intersects plane containing the triangle
-        List<GeoPoint> result = plane.findGeoIntersections(ray);
-        // no intersections
-        if (result == null)
-            return null;
+    Triangle(Plane plane, Point p1, Point p2, Point p3) {
+        super(plane, p1, p2, p3);
+        ax = p1.getX();
+        ay = p1.getY();
+        az = p1.getZ();
+        e1x = p2.getX() - ax;
+        e1y = p2.getY() - ay;
+        e1z = p2.getZ() - az;
+        e2x = p3.getX() - ax;
+        e2y = p3.getY() - ay;
+        e2z = p3.getZ() - az;
+        inverseNormalLength = 1 / Math.sqrt(lengthSquared(e1y * e2z - e1z * e2y, e1z * e2x - e1x * e2z,
+                e1x * e2y - e1y * e2x));
+    }
 
-        //check that intersection point is closer to ray origin than
-        // max distance parameter
-        double distance = result.get(0).point.distance(ray.getP0());
-        if (alignZero(distance - maxDistance) > 0)
+    /**
+     * find the single intersection between ray and triangle, with its barycentric coordinates
+     *
+     * @param ray  ray towards the triangle
+     * @param tMax maximum distance of the intersection from the ray origin
+     * @return the intersection point with its distance along the ray, or null if there is none
+     */
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double tMax) {
+        double t = intersectionDistance(ray, tMax);
+        if (Double.isNaN(t))
             return null;
+        Point point = ray.getPoint(t);
+        GeoPoint gp = new GeoPoint(this, point, t).setNormal(plane.getNormal());
+
+        // the weights of the second and the third vertices are the areas of the sub-triangles facing them, over
+        // the area of the triangle: (q x e2) . n / |n|^2 and (e1 x q) . n / |n|^2, where q is from the first vertex
+        // to the point and n = e1 x e2
+        double qx = point.getX() - ax, qy = point.getY() - ay, qz = point.getZ() - az;
+        double nx = e1y * e2z - e1z * e2y, ny = e1z * e2x - e1x * e2z, nz = e1x * e2y - e1y * e2x;
+        double scale = inverseNormalLength * inverseNormalLength;
+        gp.u = tripleProduct(qx, qy, qz, e2x, e2y, e2z, nx, ny, nz) * scale;
+        gp.v = tripleProduct(e1x, e1y, e1z, qx, qy, qz, nx, ny, nz) * scale;
+        return gp;
+    }
 
-        // check if intersection points are in Triangle
+    /**
+     * Calculates the distance along a ray to its intersection with the triangle by the Moller-Trumbore
+     * algorithm, over the precomputed edges of the triangle. It creates no object.
+     *
+     * @param ray         ray towards the triangle
+     * @param maxDistance maximum distance of the intersection from the ray origin
+     * @return the distance (ray parameter t), or NaN if the ray does not intersect the triangle (edges excluded)
+     * within max distance
+     */
+    double intersectionDistance(Ray ray, double maxDistance) {
         Vector v = ray.getDir();
         Point p0 = ray.getP0();
-
-        // create three vectors between ray origin and
-        //each of triangle vertices
-        Point p1 = vertices.get(0);
-        Point p2 = vertices.get(1);
-        Point p3 = vertices.get(2);
-        Vector v1 = p1.subtract(p0);
-        Vector v2 = p2.subtract(p0);
-        Vector v3 = p3.subtract(p0);
-
-        // n1,n2 ,n3 = value of dot product between ray vector
-        // and the result vector of cross product between pairs
-        // of vectors from ray origin and triangle vertices
-        // if n1 or n2 pr m3 == 0 - intersection on border -> no intersection
-
-        double n1 = v.dotProduct(v1.crossProduct(v2));
-        if (isZero(n1))
-            return null;
-
-        double n2 = v.dotProduct(v2.crossProduct(v3));
-        if (isZero(n2))
-            return null;
-
-        double n3 = v.dotProduct(v3.crossProduct(v1));
-        if (isZero(n3))
-            return null;
-
-        // if sign of all three values ,n1 ,n2 ,n3 is not equal
-        // intersection point is not on triangle
-        if (!((n1 < 0 && n2 < 0 && n3 < 0) || (n1 > 0 && n2 > 0 && n3 > 0)))
-            return null;
-
-        // ray intersects triangle
-        return List.of(new GeoPoint(this, result.get(0).point));
+        double vx = v.getX(), vy = v.getY(), vz = v.getZ();
+
+        // p = v x e2, the determinant e1 . p is -(v . (e1 x e2)) - the ray direction cannot be parallel to the
+        // triangle
+        double px = vy * e2z - vz * e2y, py = vz * e2x - vx * e2z, pz = vx * e2y - vy * e2x;
+        double det = e1x * px + e1y * py + e1z * pz;
+        if (isZero(det * inverseNormalLength))
+            return Double.NaN;
+        double inverse = 1 / det;
+
+        // weights of the second and the third vertices
+        double sx = p0.getX() - ax, sy = p0.getY() - ay, sz = p0.getZ() - az;
+        double u = (sx * px + sy * py + sz * pz) * inverse;
+        if (u <= 0)
+            return Double.NaN;
+        // q = s x e1
+        double qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z, qz = sx * e1y - sy * e1x;
+        double w = (vx * qx + vy * qy + vz * qz) * inverse;
+        if (w <= 0 || u + w >= 1)
+            return Double.NaN;
+
+        double t = alignZero((e2x * qx + e2y * qy + e2z * qz) * inverse);
+        if (t <= 0 || alignZero(t - maxDistance) > 0)
+            return Double.NaN;
+        return t;
     }
 
     /**
@@ -0,0 +1,527 @@
+package geometries;
+
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
+
+/**
+ * The TriangleMesh class represents a mesh of triangles sharing a single material and emission.
+ * The mesh is stored in flat buffers - three float coordinates per vertex and three vertex indices per
+ * triangle, so a vertex shared by several triangles is stored once - and it has its own compact bounding
+ * volume hierarchy (built by the surface area heuristic of {@link BvhBuilder}), with float bounds and the
+ * triangles of every leaf consecutive in the index buffer. There is no object per triangle: a mesh of a million
+ * triangles takes a few tens of MB.<br/>
+ * The triangles are intersected by the Moller-Trumbore algorithm, which also gives the barycentric
+ * coordinates of the hit. Unlike {@link Triangle}, the edges of the triangles are part of them, so a ray
+ * through a shared edge does not slip between two neighbouring triangles - and it crosses the edge once, so a
+ * transparent mesh has no dark seams in its shadow.
+ */
+public class TriangleMesh extends Geometry {
+    /**
+     * Coordinates of the vertices - x, y and z of every vertex in turn
+     */
+    final float[] vertices;
+    /**
+     * Vertex indices of the triangles - three per triangle, ordered so that the triangles of every leaf of the
+     * hierarchy are consecutive
+     */
+    final int[] indices;
+    /**
+     * Inverse lengths of the normals (the cross products of the edges) of the triangles, in the order of the index
+     * buffer - zero for a degenerate triangle, so that no ray hits it
+     */
+    private final float[] inverseNormalLengths;
+    /**
+     * Bounds of the nodes - six numbers per node: minX, minY, minZ, maxX, maxY, maxZ
+     */
+    float[] nodeBounds;
+    /**
+     * For a leaf - index of its first triangle, for an inner node - index of its second child
+     * (the first child always follows its parent)
+     */
+    int[] nodeOffsets;
+    /**
+     * For a leaf - amount of its triangles, for an inner node - minus one minus the axis along which its children
+     * are separated the most (0, 1 or 2 for X, Y or Z, plus 3 if the second child lies before the first one)
+     */
+    int[] nodeCounts;
+    /**
+     * Amount of nodes in the hierarchy
+     */
+    int size = 0;
+    /**
+     * Depth of the deepest leaf, it bounds the size of the traversal stack
+     */
+    int depth = 0;
+    /**
+     * Traversal stack of every thread, reused by all its queries of the mesh
+     */
+    private final ThreadLocal<int[]> stacks = ThreadLocal.withInitial(() -> new int[depth + 2]);
+
+    /**
+     * Constructs a mesh of the given buffers and builds its hierarchy.
+     * The mesh keeps the vertex buffer (it should not be changed later) and a reordered copy of the index buffer.
+     *
+     * @param vertices coordinates of the vertices - x, y and z of every vertex in turn
+     * @param indices  vertex indices of the triangles - three per triangle
+     * @throws IllegalArgumentException if the buffers do not describe at least one triangle, or an index is not
+     *                                  the index of a vertex
+     */
+    public TriangleMesh(float[] vertices, int[] indices) throws IllegalArgumentException {
+        if (vertices.length % 3 != 0)
+            throw new IllegalArgumentException("A vertex buffer must have three coordinates per vertex");
+        if (indices.length % 3 != 0 || indices.length == 0)
+            throw new IllegalArgumentException("An index buffer must have three indices per triangle");
+        int vertexCount = vertices.length / 3;
+        for (int index : indices)
+            if (index < 0 || index >= vertexCount)
+                throw new IllegalArgumentException("Vertex index " + index + " is out of the vertex buffer");
+        this.vertices = vertices;
+
+        int count = indices.length / 3;
+        double[] bounds = new double[count * 6];
+        for (int i = 0; i < count; ++i)
+            triangleBounds(indices, i, bounds, i * 6);
+
+        int maxNodes = 2 * count - 1;
+        nodeBounds = new float[maxNodes * 6];
+        nodeOffsets = new int[maxNodes];
+        nodeCounts = new int[maxNodes];
+        BvhBuilder builder = new BvhBuilder(bounds);
+        buildNode(builder, 0, count, 0);
+        nodeBounds = Arrays.copyOf(nodeBounds, size * 6);
+        nodeOffsets = Arrays.copyOf(nodeOffsets, size);
+        nodeCounts = Arrays.copyOf(nodeCounts, size);
+
+        this.indices = new int[indices.length];
+        for (int i = 0; i < count; ++i)
+            System.arraycopy(indices, builder.order[i] * 3, this.indices, i * 3, 3);
+        inverseNormalLengths = inverseNormalLengths();
+        createBoundingBox();
+    }
+
+    /**
+     * Constructs a mesh of the given buffers, with the vertex coordinates converted to floats
+     *
+     * @param vertices coordinates of the vertices - x, y and z of every vertex in turn
+     * @param indices  vertex indices of the triangles - three per triangle
+     * @throws IllegalArgumentException if the buffers do not describe at least one triangle, or an index is not
+     *                                  the index of a vertex
+     */
+    public TriangleMesh(double[] vertices, int[] indices) throws IllegalArgumentException {
+        this(toFloats(vertices), indices);
+    }
+
+    /**
+     * Constructs a mesh of buffers and a hierarchy that were built before - for meshes restored by a scene cache.
+     * Nothing is checked or rebuilt, and the arrays are kept as they are.
+     *
+     * @param vertices    coordinates of the vertices - x, y and z of every vertex in turn
+     * @param indices     vertex indices of the triangles, in the order of the leaves of the hierarchy
+     * @param nodeBounds  bounds of the nodes of the hierarchy
+     * @param nodeOffsets offsets of the nodes of the hierarchy
+     * @param nodeCounts  amounts of triangles (or the separation axes) of the nodes of the hierarchy
+     * @param depth       depth of the deepest leaf of the hierarchy
+     */
+    TriangleMesh(float[] vertices, int[] indices, float[] nodeBounds, int[] nodeOffsets, int[] nodeCounts,
+                 int depth) {
+        this.vertices = vertices;
+        this.indices = indices;
+        this.nodeBounds = nodeBounds;
+        this.nodeOffsets = nodeOffsets;
+        this.nodeCounts = nodeCounts;
+        size = nodeOffsets.length;
+        this.depth = depth;
+        inverseNormalLengths = inverseNormalLengths();
+        createBoundingBox();
+    }
+
+    /**
+     * Calculates the inverse lengths of the normals of the triangles
+     *
+     * @return the inverse normal lengths, zero for a degenerate triangle
+     */
+    private float[] inverseNormalLengths() {
+        float[] result = new float[indices.length / 3];
+        for (int triangle = 0; triangle < result.length; ++triangle) {
+            int a = indices[triangle * 3] * 3, b = indices[triangle * 3 + 1] * 3, c = indices[triangle * 3 + 2] * 3;
+            double e1x = vertices[b] - vertices[a], e1y = vertices[b + 1] - vertices[a + 1];
+            double e1z = vertices[b + 2] - vertices[a + 2];
+            double e2x = vertices[c] - vertices[a], e2y = vertices[c + 1] - vertices[a + 1];
+            double e2z = vertices[c + 2] - vertices[a + 2];
+            double nx = e1y * e2z - e1z * e2y, ny = e1z * e2x - e1x * e2z, nz = e1x * e2y - e1y * e2x;
+            double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+            result[triangle] = length == 0 ? 0 : (float) (1 / length);
+        }
+        return result;
+    }
+
+    /**
+     * Converts coordinates to floats
+     *
+     * @param coordinates the coordinates
+     * @return the coordinates as floats
+     */
+    private static float[] toFloats(double[] coordinates) {
+        float[] result = new float[coordinates.length];
+        for (int i = 0; i < coordinates.length; ++i)
+            result[i] = (float) coordinates[i];
+        return result;
+    }
+
+    /**
+     * Returns the amount of triangles in the mesh
+     *
+     * @return the amount of triangles
+     */
+    public int getTriangleCount() {
+        return indices.length / 3;
+    }
+
+    /**
+     * Calculates the bounds of a triangle
+     *
+     * @param indices  the index buffer of the triangles
+     * @param triangle the triangle
+     * @param bounds   array of boxes to be filled with minX, minY, minZ, maxX, maxY, maxZ
+     * @param offset   index of the box in the array
+     */
+    private void triangleBounds(int[] indices, int triangle, double[] bounds, int offset) {
+        for (int axis = 0; axis < 3; ++axis) {
+            double a = vertices[indices[triangle * 3] * 3 + axis];
+            double b = vertices[indices[triangle * 3 + 1] * 3 + axis];
+            double c = vertices[indices[triangle * 3 + 2] * 3 + axis];
+            bounds[offset + axis] = Math.min(a, Math.min(b, c));
+            bounds[offset + axis + 3] = Math.max(a, Math.max(b, c));
+        }
+    }
+
+    /**
+     * Builds a node of the hierarchy and its sub-tree for a range of triangles
+     *
+     * @param builder the SAH builder holding the triangles' order
+     * @param from    first position (inclusive) in the builder's order
+     * @param to      last position (exclusive) in the builder's order
+     * @param level   depth of the node in the hierarchy
+     * @return index of the built node
+     */
+    private int buildNode(BvhBuilder builder, int from, int to, int level) {
+        int node = size++;
+        if (level > depth)
+            depth = level;
+
+        int middle = builder.split(from, to);
+        if (middle < 0) {
+            double[] bounds = new double[6];
+            builder.rangeBounds(from, to, bounds);
+            // the bounds are coordinates of vertices, so they are floats already
+            for (int i = 0; i < 6; ++i)
+                nodeBounds[node * 6 + i] = (float) bounds[i];
+            nodeOffsets[node] = from;
+            nodeCounts[node] = to - from;
+            return node;
+        }
+        buildNode(builder, from, middle, level + 1);
+        int second = buildNode(builder, middle, to, level + 1);
+        // the bounds of an inner node are the union of the bounds of its children
+        for (int axis = 0; axis < 3; ++axis) {
+            nodeBounds[node * 6 + axis] = Math.min(nodeBounds[(node + 1) * 6 + axis], nodeBounds[second * 6 + axis]);
+            nodeBounds[node * 6 + axis + 3] =
+                    Math.max(nodeBounds[(node + 1) * 6 + axis + 3], nodeBounds[second * 6 + axis + 3]);
+        }
+        nodeOffsets[node] = second;
+        nodeCounts[node] = -1 - separationAxis(node + 1, second);
+        return node;
+    }
+
+    /**
+     * Finds the axis along which the centers of two nodes are the most distant
+     *
+     * @param first  index of the first node
+     * @param second index of the second node
+     * @return the axis - 0, 1 or 2 for X, Y or Z, plus 3 if the second node lies before the first one
+     */
+    private int separationAxis(int first, int second) {
+        int axis = 0;
+        double maxSeparation = -1;
+        boolean reversed = false;
+        for (int i = 0; i < 3; ++i) {
+            double separation = (double) nodeBounds[second * 6 + i] + nodeBounds[second * 6 + i + 3]
+                    - nodeBounds[first * 6 + i] - nodeBounds[first * 6 + i + 3];
+            if (Math.abs(separation) > maxSeparation) {
+                maxSeparation = Math.abs(separation);
+                axis = i;
+                reversed = separation < 0;
+            }
+        }
+        return reversed ? axis + 3 : axis;
+    }
+
+    /**
+     * Creates the bounding box of the mesh - the bounds of the root node of its hierarchy
+     */
+    @Override
+    protected void createBoundingBox() {
+        box = new AABB(new Point(nodeBounds[0], nodeBounds[1], nodeBounds[2]),
+                new Point(nodeBounds[3], nodeBounds[4], nodeBounds[5]));
+    }
+
+    /**
+     * Returns the normal of the mesh at a point - the normal of the triangle that contains the point.
+     * The triangle is searched among all the triangles, so this is slow: the intersections of the mesh carry
+     * the normal of their triangle already (see {@link GeoPoint#getNormal()}).
+     *
+     * @param p a point on the mesh
+     * @return the normal of the triangle that contains the point
+     * @throws IllegalArgumentException if the point is not on the mesh
+     */
+    @Override
+    public Vector getNormal(Point p) throws IllegalArgumentException {
+        for (int triangle = 0; triangle < indices.length / 3; ++triangle) {
+            int a = indices[triangle * 3] * 3, b = indices[triangle * 3 + 1] * 3, c = indices[triangle * 3 + 2] * 3;
+            double e1x = vertices[b] - vertices[a], e1y = vertices[b + 1] - vertices[a + 1];
+            double e1z = vertices[b + 2] - vertices[a + 2];
+            double e2x = vertices[c] - vertices[a], e2y = vertices[c + 1] - vertices[a + 1];
+            double e2z = vertices[c + 2] - vertices[a + 2];
+            double nx = e1y * e2z - e1z * e2y, ny = e1z * e2x - e1x * e2z, nz = e1x * e2y - e1y * e2x;
+            if (inverseNormalLengths[triangle] == 0)
+                continue;
+            double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+            double px = p.getX() - vertices[a], py = p.getY() - vertices[a + 1], pz = p.getZ() - vertices[a + 2];
+            if (!isZero((px * nx + py * ny + pz * nz) / length))
+                continue;
+            // the barycentric coordinates of the point by the areas of its sub-triangles
+            double u = ((py * e2z - pz * e2y) * nx + (pz * e2x - px * e2z) * ny + (px * e2y - py * e2x) * nz)
+                    / (length * length);
+            double v = ((e1y * pz - e1z * py) * nx + (e1z * px - e1x * pz) * ny + (e1x * py - e1y * px) * nz)
+                    / (length * length);
+            if (alignZero(u) >= 0 && alignZero(v) >= 0 && alignZero(1 - u - v) >= 0)
+                return normal(triangle);
+        }
+        throw new IllegalArgumentException("The point is not on the mesh");
+    }
+
+    /**
+     * Calculates the normal of a triangle - by the right-hand rule over its vertices in order
+     *
+     * @param triangle the triangle
+     * @return the normal
+     */
+    private Vector normal(int triangle) {
+        int a = indices[triangle * 3] * 3, b = indices[triangle * 3 + 1] * 3, c = indices[triangle * 3 + 2] * 3;
+        double e1x = vertices[b] - vertices[a], e1y = vertices[b + 1] - vertices[a + 1];
+        double e1z = vertices[b + 2] - vertices[a + 2];
+        double e2x = vertices[c] - vertices[a], e2y = vertices[c + 1] - vertices[a + 1];
+        double e2z = vertices[c + 2] - vertices[a + 2];
+        // scaled to about a unit length first, so that the normal of a tiny triangle is not a zero vector
+        double scale = inverseNormalLengths[triangle];
+        return new Vector((e1y * e2z - e1z * e2y) * scale, (e1z * e2x - e1x * e2z) * scale,
+                (e1x * e2y - e1y * e2x) * scale).normalize();
+    }
+
+    /**
+     * Intersects a ray with a triangle by the Moller-Trumbore algorithm
+     *
+     * @param triangle the triangle
+     * @param ox       X coordinate of the ray origin
+     * @param oy       Y coordinate of the ray origin
+     * @param oz       Z coordinate of the ray origin
+     * @param dx       X coordinate of the ray direction
+     * @param dy       Y coordinate of the ray direction
+     * @param dz       Z coordinate of the ray direction
+     * @param tMax     the maximum distance of the intersection
+     * @param uv       array to be filled with the barycentric coordinates of the intersection
+     * @return the distance of the intersection along the ray, or NaN if there is none
+     */
+    private double intersect(int triangle, double ox, double oy, double oz, double dx, double dy, double dz,
+                             double tMax, double[] uv) {
+        int a = indices[triangle * 3] * 3, b = indices[triangle * 3 + 1] * 3, c = indices[triangle * 3 + 2] * 3;
+        double ax = vertices[a], ay = vertices[a + 1], az = vertices[a + 2];
+        double e1x = vertices[b] - ax, e1y = vertices[b + 1] - ay, e1z = vertices[b + 2] - az;
+        double e2x = vertices[c] - ax, e2y = vertices[c + 1] - ay, e2z = vertices[c + 2] - az;
+
+        // p = d x e2, the determinant is e1 . p = d . (e1 x e2) - zero for a ray parallel to the triangle,
+        // scaled by the normal length to the cosine of the angle between them, as in Triangle
+        double px = dy * e2z - dz * e2y, py = dz * e2x - dx * e2z, pz = dx * e2y - dy * e2x;
+        double det = e1x * px + e1y * py + e1z * pz;
+        if (isZero(det * inverseNormalLengths[triangle]))
+            return Double.NaN;
+        double inverse = 1 / det;
+
+        double sx = ox - ax, sy = oy - ay, sz = oz - az;
+        double u = (sx * px + sy * py + sz * pz) * inverse;
+        if (u < 0 || u > 1)
+            return Double.NaN;
+
+        // q = s x e1
+        double qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z, qz = sx * e1y - sy * e1x;
+        double v = (dx * qx + dy * qy + dz * qz) * inverse;
+        if (v < 0 || u + v > 1)
+            return Double.NaN;
+
+        double t = alignZero((e2x * qx + e2y * qy + e2z * qz) * inverse);
+        if (t <= 0 || alignZero(t - tMax) > 0)
+            return Double.NaN;
+        uv[0] = u;
+        uv[1] = v;
+        return t;
+    }
+
+    /**
+     * Creates the intersection record of a hit on a triangle
+     *
+     * @param ray      the ray
+     * @param triangle the triangle
+     * @param t        the distance of the intersection along the ray
+     * @param u        the weight of the second vertex of the triangle
+     * @param v        the weight of the third vertex of the triangle
+     * @return the intersection point with its normal and barycentric coordinates
+     */
+    private GeoPoint hit(Ray ray, int triangle, double t, double u, double v) {
+        GeoPoint gp = new GeoPoint(this, ray.getPoint(t), t).setNormal(normal(triangle));
+        gp.u = u;
+        gp.v = v;
+        return gp;
+    }
+
+    /**
+     * Finds the intersections between a ray and the triangles of the mesh
+     *
+     * @param ray         The ray to find intersections with.
+     * @param maxDistance The maximum distance to consider for intersections.
+     * @return A list of intersection points as GeoPoint objects, or null if there are no intersections.
+     */
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        Point p0 = ray.getP0();
+        Vector dir = ray.getDir();
+        double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+        double dx = dir.getX(), dy = dir.getY(), dz = dir.getZ();
+        double[] uv = new double[2];
+        List<GeoPoint> result = null;
+
+        int[] stack = stacks.get();
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (!ray.intersectsBox(nodeBounds, node * 6, 0, maxDistance))
+                continue;
+
+            int count = nodeCounts[node];
+            if (count > 0) {
+                int first = nodeOffsets[node];
+                for (int i = first; i < first + count; ++i) {
+                    double t = intersect(i, ox, oy, oz, dx, dy, dz, maxDistance, uv);
+                    if (!Double.isNaN(t) && !isFound(result, t)) {
+                        if (result == null)
+                            result = new ArrayList<>();
+                        result.add(hit(ray, i, t, uv[0], uv[1]));
+                    }
+                }
+            } else
+                top = pushChildren(node, stack, top, dx, dy, dz);
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether an intersection at a distance was found already. The edges and the vertices of a triangle are
+     * inside it, so a ray through an edge (or a vertex) shared by several triangles hits all of them at the same
+     * point - which is a single crossing of the surface of the mesh, and it is counted once.
+     *
+     * @param found the intersections found so far, null if there are none
+     * @param t     the distance of the intersection along the ray
+     * @return true if an intersection at the distance was found already
+     */
+    private static boolean isFound(List<GeoPoint> found, double t) {
+        if (found != null)
+            for (GeoPoint gp : found)
+                if (isZero(gp.t - t))
+                    return true;
+        return false;
+    }
+
+    /**
+     * Finds the intersection closest to the ray origin among the triangles of the mesh.
+     * The nearer child of every node is visited first, and every found intersection shortens the searched
+     * distance; the intersection record is created only for the closest triangle.
+     *
+     * @param ray  The ray to find intersections with.
+     * @param tMax The maximum distance to consider for intersections.
+     * @return The closest intersection point with its distance along the ray, or null if there is no intersection.
+     */
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double tMax) {
+        Point p0 = ray.getP0();
+        Vector dir = ray.getDir();
+        double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+        double dx = dir.getX(), dy = dir.getY(), dz = dir.getZ();
+        double[] uv = new double[2];
+        int closest = -1;
+        double closestU = 0, closestV = 0;
+
+        int[] stack = stacks.get();
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (!ray.intersectsBox(nodeBounds, node * 6, 0, tMax))
+                continue;
+
+            int count = nodeCounts[node];
+            if (count > 0) {
+                int first = nodeOffsets[node];
+                for (int i = first; i < first + count; ++i) {
+                    double t = intersect(i, ox, oy, oz, dx, dy, dz, tMax, uv);
+                    if (!Double.isNaN(t) && (closest < 0 || t < tMax)) {
+                        closest = i;
+                        tMax = t;
+                        closestU = uv[0];
+                        closestV = uv[1];
+                    }
+                }
+            } else
+                top = pushChildren(node, stack, top, dx, dy, dz);
+        }
+        return closest < 0 ? null : hit(ray, closest, tMax, closestU, closestV);
+    }
+
+    /**
+     * Pushes the children of an inner node to the traversal stack, the farther child first
+     * so that the nearer one is visited first
+     *
+     * @param node  index of the inner node
+     * @param stack the traversal stack
+     * @param top   amount of nodes in the stack
+     * @param dx    X coordinate of the ray direction
+     * @param dy    Y coordinate of the ray direction
+     * @param dz    Z coordinate of the ray direction
+     * @return the new amount of nodes in the stack
+     */
+    private int pushChildren(int node, int[] stack, int top, double dx, double dy, double dz) {
+        double axisDir = switch (-1 - nodeCounts[node]) {
+            case 0 -> dx;
+            case 1 -> dy;
+            case 2 -> dz;
+            case 3 -> -dx;
+            case 4 -> -dy;
+            default -> -dz;
+        };
+        if (axisDir < 0) {
+            stack[top++] = node + 1;
+            stack[top++] = nodeOffsets[node];
+        } else {
+            stack[top++] = nodeOffsets[node];
+            stack[top++] = node + 1;
+        }
+        return top;
+    }
+}
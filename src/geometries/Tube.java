@@ -174,11 +174,11 @@ public class Tube extends RadialGeometry {
             // root < 0 indicates scale factor is in opposite direction
             // no intersection occurs
             if (t1 > 0 && t2 > 0 && distanceT1 && distanceT2)
-                return List.of(new GeoPoint(this,ray.getPoint(t2)), new GeoPoint(this,ray.getPoint(t1)));
+                return List.of(new GeoPoint(this,ray.getPoint(t2),t2), new GeoPoint(this,ray.getPoint(t1),t1));
             if (t1 > 0 && distanceT1)
-                return List.of(new GeoPoint(this,ray.getPoint(t1)));
+                return List.of(new GeoPoint(this,ray.getPoint(t1),t1));
             if (t2 > 0 && distanceT2)
-                return List.of(new GeoPoint(this,ray.getPoint(t2)));
+                return List.of(new GeoPoint(this,ray.getPoint(t2),t2));
         }
 
         return null;
@@ -23,6 +23,15 @@ public class DirectionalLight extends Light implements LightSource {
         this.direction = direction.normalize();
     }
 
+    /**
+     * Returns the direction of the light.
+     *
+     * @return The normalized direction of the light.
+     */
+    public Vector getDirection() {
+        return direction;
+    }
+
     /**
      * Returns the direction vector of the light.
      *
@@ -25,6 +25,42 @@ public class PointLight extends Light implements LightSource {
         this.position = position;
     }
 
+    /**
+     * Returns the position of the light source.
+     *
+     * @return The position of the light source.
+     */
+    public Point getPosition() {
+        return position;
+    }
+
+    /**
+     * Returns the constant attenuation factor of the light source.
+     *
+     * @return The constant attenuation factor.
+     */
+    public double getkC() {
+        return kC;
+    }
+
+    /**
+     * Returns the linear attenuation factor of the light source.
+     *
+     * @return The linear attenuation factor.
+     */
+    public double getkL() {
+        return kL;
+    }
+
+    /**
+     * Returns the quadratic attenuation factor of the light source.
+     *
+     * @return The quadratic attenuation factor.
+     */
+    public double getkQ() {
+        return kQ;
+    }
+
     /**
      * Sets the constant attenuation factor of the light source.
      *
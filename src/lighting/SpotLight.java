@@ -24,6 +24,15 @@ public class SpotLight extends PointLight {
         this.direction = direction.normalize();
     }
 
+    /**
+     * Returns the direction of the spotlight.
+     *
+     * @return The normalized direction of the spotlight.
+     */
+    public Vector getDirection() {
+        return direction;
+    }
+
     /**
      * Returns the intensity of the spotlight at the specified point.
      * The intensity is determined by the basic intensity of the PointLight
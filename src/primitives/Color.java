@@ -53,6 +53,18 @@ public class Color {
         return new java.awt.Color(ir > 255 ? 255 : ir, ig > 255 ? 255 : ig, ib > 255 ? 255 : ib);
     }
 
+    /** Red component of the color
+     * @return the red component, not clamped to the 8-bit range */
+    public double getRed() { return rgb.d1; }
+
+    /** Green component of the color
+     * @return the green component, not clamped to the 8-bit range */
+    public double getGreen() { return rgb.d2; }
+
+    /** Blue component of the color
+     * @return the blue component, not clamped to the 8-bit range */
+    public double getBlue() { return rgb.d3; }
+
     /** Operation of adding this and one or more other colors (by component)
      * @param  colors one or more other colors to add
      * @return        new Color object which is a result of the operation */
@@ -102,6 +114,16 @@ public class Color {
         return new Color(rgb.d1 / k.d1, rgb.d2 / k.d2, rgb.d3 / k.d3);
     }
 
+    /** The difference between this and another color - the largest difference
+     * of their components, so that colors within a difference of 1 (or less)
+     * are usually written to the image as the same 8-bit color
+     * @param  other the other color
+     * @return       the largest absolute difference between the components */
+    public double difference(Color other) {
+        return Math.max(Math.abs(rgb.d1 - other.rgb.d1),
+                        Math.max(Math.abs(rgb.d2 - other.rgb.d2), Math.abs(rgb.d3 - other.rgb.d3)));
+    }
+
     @Override
     public String toString() { return "rgb:" + rgb; }
 }
@@ -5,6 +5,8 @@ import geometries.Intersectable.GeoPoint;
 import java.util.List;
 import java.util.Objects;
 
+import static primitives.Util.isZero;
+
 /**
  * A class representing a ray in 3D space, defined by a starting point and a direction.
  */
@@ -20,6 +22,17 @@ public class Ray {
      */
     final Vector dir;
 
+    /**
+     * Inverses of the direction coordinates, precomputed once for the bounding box tests of the ray
+     * (an infinity for a zero coordinate)
+     */
+    private final double invDirX, invDirY, invDirZ;
+    /**
+     * Offsets (0 or 3) of the near bound of a box for each axis, in a bounds array ordered
+     * minX, minY, minZ, maxX, maxY, maxZ - the maximum is nearer if the direction is negative along the axis
+     */
+    private final int nearX, nearY, nearZ;
+
     /**
      * Constructs a new Ray object with the specified starting point and direction vector.
      *
@@ -30,7 +43,47 @@ public class Ray {
     public Ray(Point p0, Vector dir) throws IllegalArgumentException {
         this.p0 = p0;
         this.dir = dir.normalize();
+        invDirX = 1 / this.dir.getX();
+        invDirY = 1 / this.dir.getY();
+        invDirZ = 1 / this.dir.getZ();
+        nearX = invDirX < 0 ? 3 : 0;
+        nearY = invDirY < 0 ? 3 : 0;
+        nearZ = invDirZ < 0 ? 3 : 0;
     }
+
+    /**
+     * Constructs a new Ray object with the specified starting point and the coordinates of its direction.
+     * The direction is normalized from the raw coordinates, without creating an intermediate vector.
+     *
+     * @param p0   the starting point of the ray
+     * @param dirX X coordinate of the direction
+     * @param dirY Y coordinate of the direction
+     * @param dirZ Z coordinate of the direction
+     * @throws IllegalArgumentException if the direction is the zero vector
+     */
+    public Ray(Point p0, double dirX, double dirY, double dirZ) throws IllegalArgumentException {
+        if (isZero(dirX) && isZero(dirY) && isZero(dirZ))
+            throw new IllegalArgumentException("Vector Zero is not allowed");
+        double length = Math.sqrt(VectorMath.lengthSquared(dirX, dirY, dirZ));
+        this.p0 = p0;
+        this.dir = new Vector(dirX / length, dirY / length, dirZ / length);
+        invDirX = 1 / dir.getX();
+        invDirY = 1 / dir.getY();
+        invDirZ = 1 / dir.getZ();
+        nearX = invDirX < 0 ? 3 : 0;
+        nearY = invDirY < 0 ? 3 : 0;
+        nearZ = invDirZ < 0 ? 3 : 0;
+    }
+
+    /**
+     * Constructs a new Ray object from a point on a surface, moved slightly along the surface normal
+     * towards the side of the direction, so that the ray does not intersect the surface itself.
+     *
+     * @param point          the point on the surface
+     * @param lightDirection the normalized direction vector of the ray
+     * @param n              the normal of the surface at the point
+     * @throws IllegalArgumentException if the direction vector is the zero vector
+     */
     public Ray(Point point, Vector lightDirection,Vector n) throws IllegalArgumentException {
         this.dir = lightDirection;
         // Calculate an epsilon vector to slightly move the point in the direction of the normal
@@ -38,8 +91,12 @@ public class Ray {
 
         // Move the point slightly in the direction of the normal
         this.p0 = point.add(epsVector);
-
-
+        invDirX = 1 / dir.getX();
+        invDirY = 1 / dir.getY();
+        invDirZ = 1 / dir.getZ();
+        nearX = invDirX < 0 ? 3 : 0;
+        nearY = invDirY < 0 ? 3 : 0;
+        nearZ = invDirZ < 0 ? 3 : 0;
     }
 
     /**
@@ -60,6 +117,71 @@ public class Ray {
         return dir;
     }
 
+    /**
+     * Checks whether the ray crosses an axis-aligned box within an interval of distances along the ray
+     * (the slab test). It uses the precomputed inverse direction, so there is no division, and picks the near
+     * and far bounds of each axis by the direction sign, so there is no swapping.
+     * A slab that yields an undefined value (a ray parallel to the slab that starts on its border) is ignored.
+     *
+     * @param bounds array of boxes - six numbers per box: minX, minY, minZ, maxX, maxY, maxZ
+     * @param offset index of the box's first number in the array
+     * @param tMin   the minimal distance along the ray
+     * @param tMax   the maximal distance along the ray
+     * @return true if the ray crosses the box between the minimal and the maximal distances
+     */
+    public boolean intersectsBox(double[] bounds, int offset, double tMin, double tMax) {
+        double ox = p0.xyz.d1, oy = p0.xyz.d2, oz = p0.xyz.d3;
+
+        double tNear = (bounds[offset + nearX] - ox) * invDirX;
+        double tFar = (bounds[offset + 3 - nearX] - ox) * invDirX;
+        // the comparisons are false for an undefined value, which keeps the interval as is
+        tMin = tNear > tMin ? tNear : tMin;
+        tMax = tFar < tMax ? tFar : tMax;
+
+        tNear = (bounds[offset + 1 + nearY] - oy) * invDirY;
+        tFar = (bounds[offset + 4 - nearY] - oy) * invDirY;
+        tMin = tNear > tMin ? tNear : tMin;
+        tMax = tFar < tMax ? tFar : tMax;
+
+        tNear = (bounds[offset + 2 + nearZ] - oz) * invDirZ;
+        tFar = (bounds[offset + 5 - nearZ] - oz) * invDirZ;
+        tMin = tNear > tMin ? tNear : tMin;
+        tMax = tFar < tMax ? tFar : tMax;
+
+        return tMin <= tMax;
+    }
+
+    /**
+     * Checks whether the ray crosses an axis-aligned box of float bounds within an interval of distances along
+     * the ray - the slab test of {@link #intersectsBox(double[], int, double, double)} for compact hierarchies.
+     *
+     * @param bounds array of boxes - six numbers per box: minX, minY, minZ, maxX, maxY, maxZ
+     * @param offset index of the box's first number in the array
+     * @param tMin   the minimal distance along the ray
+     * @param tMax   the maximal distance along the ray
+     * @return true if the ray crosses the box between the minimal and the maximal distances
+     */
+    public boolean intersectsBox(float[] bounds, int offset, double tMin, double tMax) {
+        double ox = p0.xyz.d1, oy = p0.xyz.d2, oz = p0.xyz.d3;
+
+        double tNear = (bounds[offset + nearX] - ox) * invDirX;
+        double tFar = (bounds[offset + 3 - nearX] - ox) * invDirX;
+        tMin = tNear > tMin ? tNear : tMin;
+        tMax = tFar < tMax ? tFar : tMax;
+
+        tNear = (bounds[offset + 1 + nearY] - oy) * invDirY;
+        tFar = (bounds[offset + 4 - nearY] - oy) * invDirY;
+        tMin = tNear > tMin ? tNear : tMin;
+        tMax = tFar < tMax ? tFar : tMax;
+
+        tNear = (bounds[offset + 2 + nearZ] - oz) * invDirZ;
+        tFar = (bounds[offset + 5 - nearZ] - oz) * invDirZ;
+        tMin = tNear > tMin ? tNear : tMin;
+        tMax = tFar < tMax ? tFar : tMax;
+
+        return tMin <= tMax;
+    }
+
     public Point getPoint(double t) throws IllegalArgumentException {
         Vector scl_p = dir.scale(t);
         Point P = p0.add(scl_p);
@@ -86,7 +208,7 @@ public class Ray {
         if (pointList.isEmpty()) {
             return null;
         }
-        GeoPoint minPoint = new GeoPoint(pointList.get(0).geometry, pointList.get(0).point);
+        GeoPoint minPoint = pointList.get(0);
         double min = p0.distance(pointList.get(0).point);
         double d;
         for (GeoPoint pl : pointList) {
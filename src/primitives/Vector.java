@@ -100,11 +100,15 @@ public class Vector extends Point {
 
     /**
      * Returns a normalized version of this vector.
+     * A vector that is already of unit length is returned as is.
      *
      * @return the normalized version of this vector
      * @throws IllegalArgumentException if the resulting vector is zero
      */
     public Vector normalize() throws IllegalArgumentException {
-        return new Vector(this.xyz.reduce(this.length()));
+        double lengthSquared = lengthSquared();
+        if (lengthSquared == 1)
+            return this;
+        return new Vector(this.xyz.reduce(Math.sqrt(lengthSquared)));
     }
 }
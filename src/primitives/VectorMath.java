@@ -0,0 +1,63 @@
+package primitives;
+
+/**
+ * VectorMath class holds vector operations on raw coordinates.<br/>
+ * The operations take the coordinates of the vectors as separate double numbers
+ * and return a number, so - unlike {@link Vector} operations - they create no
+ * object. They are meant for the intersection calculations that run for every
+ * ray and every geometry.
+ */
+public final class VectorMath {
+	/**
+	 * Empty private constructor to hide the public one
+	 */
+	private VectorMath() {}
+
+	/**
+	 * Calculates the dot product of two vectors
+	 *
+	 * @param ax X coordinate of the first vector
+	 * @param ay Y coordinate of the first vector
+	 * @param az Z coordinate of the first vector
+	 * @param bx X coordinate of the second vector
+	 * @param by Y coordinate of the second vector
+	 * @param bz Z coordinate of the second vector
+	 * @return the dot product a·b
+	 */
+	public static double dotProduct(double ax, double ay, double az, double bx, double by, double bz) {
+		return ax * bx + ay * by + az * bz;
+	}
+
+	/**
+	 * Calculates the squared length of a vector
+	 *
+	 * @param x X coordinate of the vector
+	 * @param y Y coordinate of the vector
+	 * @param z Z coordinate of the vector
+	 * @return the squared length
+	 */
+	public static double lengthSquared(double x, double y, double z) {
+		return x * x + y * y + z * z;
+	}
+
+	/**
+	 * Calculates the scalar triple product of three vectors - the dot product of
+	 * the first vector with the cross product of the other two
+	 *
+	 * @param ax X coordinate of the first vector
+	 * @param ay Y coordinate of the first vector
+	 * @param az Z coordinate of the first vector
+	 * @param bx X coordinate of the second vector
+	 * @param by Y coordinate of the second vector
+	 * @param bz Z coordinate of the second vector
+	 * @param cx X coordinate of the third vector
+	 * @param cy Y coordinate of the third vector
+	 * @param cz Z coordinate of the third vector
+	 * @return the triple product a·(b×c)
+	 */
+	public static double tripleProduct(double ax, double ay, double az, //
+			double bx, double by, double bz, //
+			double cx, double cy, double cz) {
+		return ax * (by * cz - bz * cy) + ay * (bz * cx - bx * cz) + az * (bx * cy - by * cx);
+	}
+}
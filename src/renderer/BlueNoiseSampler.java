@@ -0,0 +1,102 @@
+package renderer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Blue noise sampler - the samples are a precomputed set of points with no two points close to each other
+ * (but without the regular pattern of a grid), generated once for every amount of samples by Mitchell's
+ * best-candidate algorithm. Every pixel shifts the set by its own random offset, wrapping around the pixel
+ * borders - the set is generated on the torus, so the shifted set keeps its blue noise distribution.
+ * Every pass of a pixel shifts the set by another offset.
+ */
+public class BlueNoiseSampler extends Sampler {
+    /**
+     * Amount of random candidates for each point of a set - the farthest candidate from the points already in
+     * the set is added to it
+     */
+    private static final int CANDIDATES = 32;
+
+    /**
+     * The seed of the generation of the sets and of the random shifts of the pixels
+     */
+    private final long seed;
+    /**
+     * The precomputed sets by their amount of points, each set holds x and y of every point in turn (a cache,
+     * so it is transient)
+     */
+    private final transient Map<Integer, double[]> sets = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a blue noise sampler with the default seed
+     */
+    public BlueNoiseSampler() {
+        this(0);
+    }
+
+    /**
+     * Constructs a blue noise sampler
+     *
+     * @param seed the seed of the generation of the sets and of the random shifts of the pixels
+     */
+    public BlueNoiseSampler(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public void samplePixel(int col, int row, int pass, double[] x, double[] y) {
+        double[] set = sets.computeIfAbsent(x.length, this::generate);
+        double shiftX = random(seed, col, row, 2 * pass);
+        double shiftY = random(seed, col, row, 2 * pass + 1);
+        for (int i = 0; i < x.length; ++i) {
+            x[i] = wrap(set[2 * i] + shiftX) - 0.5;
+            y[i] = wrap(set[2 * i + 1] + shiftY) - 0.5;
+        }
+    }
+
+    /**
+     * Generates a set of points in the unit square by the best-candidate algorithm, measuring the distances
+     * on the torus (around the borders of the square)
+     *
+     * @param n the amount of points
+     * @return the x and y of every point in turn
+     */
+    private double[] generate(int n) {
+        double[] set = new double[2 * n];
+        // the pseudo-random numbers of the generation are those of an imaginary pixel (-1, -1)
+        int next = 0;
+        for (int i = 0; i < n; ++i) {
+            double bestDistance = -1;
+            for (int c = 0; c < CANDIDATES; ++c) {
+                double cx = random(seed, -1, -1, next++);
+                double cy = random(seed, -1, -1, next++);
+                double distance = Double.POSITIVE_INFINITY;
+                for (int p = 0; p < i && distance > bestDistance; ++p)
+                    distance = Math.min(distance, torusDistanceSquared(cx, cy, set[2 * p], set[2 * p + 1]));
+                if (distance > bestDistance) {
+                    bestDistance = distance;
+                    set[2 * i] = cx;
+                    set[2 * i + 1] = cy;
+                }
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Calculates the squared distance between two points of the unit square on the torus
+     *
+     * @param x1 x of the first point
+     * @param y1 y of the first point
+     * @param x2 x of the second point
+     * @param y2 y of the second point
+     * @return the squared distance
+     */
+    private static double torusDistanceSquared(double x1, double y1, double x2, double y2) {
+        double dx = Math.abs(x1 - x2);
+        double dy = Math.abs(y1 - y2);
+        dx = Math.min(dx, 1 - dx);
+        dy = Math.min(dy, 1 - dy);
+        return dx * dx + dy * dy;
+    }
+}
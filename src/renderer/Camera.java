@@ -5,14 +5,15 @@ import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 import java.util.MissingResourceException;
 
 import static java.lang.Double.isNaN;
-import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
-import java.util.stream.*;
 
 /**
  * Camera class represents a virtual camera in a 3D scene.
@@ -31,6 +32,10 @@ public class Camera {
     private double height;
 
     private int nss;
+    private Sampler sampler = new StratifiedSampler();
+    private int minSamples;
+    private int maxSamples;
+    private double targetError;
 
 
 
@@ -38,9 +43,52 @@ public class Camera {
     private RayTracerBase rayTracerBase;
 
     private int threadsCount;
-    private PixelManager pixelManager;
-    private long printInterval = 0l;
+    private volatile PixelManager pixelManager;
+    private double printInterval = 0;
     private int maxLevelAdaptiveSS;
+    private int tileSize = 16;
+    private double adaptiveThreshold = 1;
+    private String checkpointPath;
+    private double checkpointInterval;
+    private boolean resume;
+
+    /**
+     * Maximal amount of cached view plane resolutions
+     */
+    private static final int MAX_VIEW_PLANE_GRIDS = 8;
+    /**
+     * Ray generation contexts of the recently used view plane resolutions, the newest first
+     */
+    private volatile ViewPlaneGrid[] viewPlaneGrids = new ViewPlaneGrid[0];
+
+    /**
+     * Calculates the color of a single pixel - one for each rendering mode.
+     */
+    @FunctionalInterface
+    private interface PixelColor {
+        /**
+         * Calculates the color of a pixel.
+         *
+         * @param nX  the number of pixels in the x-axis of the image
+         * @param nY  the number of pixels in the y-axis of the image
+         * @param col the x-coordinate of the pixel in the image
+         * @param row the y-coordinate of the pixel in the image
+         * @return the color of the pixel
+         * @throws IllegalArgumentException if there is an error accessing the scene or objects in the scene
+         */
+        Color calcColor(int nX, int nY, int col, int row) throws IllegalArgumentException;
+
+        /**
+         * Prepares the calculation of the pixels of a tile - called before the colors of its pixels are
+         * calculated, for rendering modes that share work between the pixels of a tile.
+         *
+         * @param nX   the number of pixels in the x-axis of the image
+         * @param nY   the number of pixels in the y-axis of the image
+         * @param tile the tile
+         */
+        default void startTile(int nX, int nY, PixelManager.Tile tile) {
+        }
+    }
 
     /**
      * Constructs a camera with the given position and orientation vectors.
@@ -82,31 +130,33 @@ public class Camera {
      * @throws IllegalArgumentException If vUp and vTo are not orthogonal.
      */
     public Ray constructRay(int nX, int nY, int j, int i) throws IllegalArgumentException {
-        //view plane center point
-        Point Pc = p0.add(vTo.scale(distance));
-
-        //pixels ratios
-        double Rx = width / nX;
-        double Ry = height / nY;
-
-        //Pij point[i,j] in view plane coordinates
-        Point Pij = Pc;
-
-        //delta values for moving on the view-plane
-        double Xj = (j - (nX - 1) / 2d) * Rx;
-        double Yi = -(i - (nY - 1) / 2d) * Ry;
-
-        if (!isZero(Xj)) {
-            Pij = Pij.add(vRight.scale(Xj));
-        }
-        if (!isZero(Yi)) {
-            Pij = Pij.add(vUp.scale(Yi));
-        }
-
-        //vector from camera's eye in the direction of point(i,j) in the view-plane
-        Vector Vij = Pij.subtract(p0);
+        return viewPlaneGrid(nX, nY).constructRay(j, i);
+    }
 
-        return new Ray(p0, Vij);
+    /**
+     * Returns the ray generation context of a view plane resolution. The contexts of the recently used
+     * resolutions (the image resolution and the virtual resolutions of the super-sampling) are kept in a small
+     * cache, which is replaced as a whole when a resolution is added, so the rendering threads read it without
+     * locking.
+     *
+     * @param nX The number of pixels in the x-axis of the view plane.
+     * @param nY The number of pixels in the y-axis of the view plane.
+     * @return the ray generation context of the resolution
+     */
+    private ViewPlaneGrid viewPlaneGrid(int nX, int nY) {
+        ViewPlaneGrid[] cache = viewPlaneGrids;
+        for (ViewPlaneGrid grid : cache)
+            if (grid.isOf(nX, nY))
+                return grid;
+
+        ViewPlaneGrid grid = new ViewPlaneGrid(p0, vTo, vUp, vRight, distance, width, height, nX, nY);
+        // the oldest context is dropped when the cache is full
+        int size = Math.min(cache.length + 1, MAX_VIEW_PLANE_GRIDS);
+        ViewPlaneGrid[] newCache = new ViewPlaneGrid[size];
+        newCache[0] = grid;
+        System.arraycopy(cache, 0, newCache, 1, size - 1);
+        viewPlaneGrids = newCache;
+        return grid;
     }
 
     /**
@@ -117,11 +167,115 @@ public class Camera {
     public Point getP0() {
         return p0;
     }
-    public Camera setThreadsCount(int threadsCount) {
+
+    /**
+     * Sets the number of worker threads rendering the image tiles.
+     * Zero renders the image in the calling thread.
+     *
+     * @param threadsCount the number of worker threads
+     * @return a reference to this Camera object, for method chaining
+     * @throws IllegalArgumentException if the number of threads is negative
+     */
+    public Camera setThreadsCount(int threadsCount) throws IllegalArgumentException {
+        if (threadsCount < 0)
+            throw new IllegalArgumentException("threads count cannot be negative");
         this.threadsCount = threadsCount;
         return this;
     }
 
+    /**
+     * Sets the interval of printing the rendering progress to the console.
+     *
+     * @param interval the progress interval between two printings in percents (e.g. 0.5 prints every half
+     *                 percent), 0 disables the printing
+     * @return a reference to this Camera object, for method chaining
+     */
+    public Camera setDebugPrint(double interval) {
+        this.printInterval = interval;
+        return this;
+    }
+
+    /**
+     * Returns the progress of the current (or the last) rendering. It may be called from another thread
+     * while the image is being rendered.
+     *
+     * @return the part of the pixels already rendered - between 0 and 1, or 0 if nothing was rendered yet
+     */
+    public double getRenderProgress() {
+        PixelManager manager = pixelManager;
+        return manager == null ? 0 : manager.progress();
+    }
+
+    /**
+     * Returns the average rendering rate of the current (or the last) rendering.
+     *
+     * @return the amount of rendered pixels per second, or 0 if nothing was rendered yet
+     */
+    public double getPixelsPerSecond() {
+        PixelManager manager = pixelManager;
+        return manager == null ? 0 : manager.pixelsPerSecond();
+    }
+
+    /**
+     * Returns the estimated time left until the current rendering is done, at its average rendering rate.
+     *
+     * @return the estimated remaining time in seconds, infinity if the rendering has not started yet
+     */
+    public double getEtaSeconds() {
+        PixelManager manager = pixelManager;
+        return manager == null ? Double.POSITIVE_INFINITY : manager.etaSeconds();
+    }
+
+    /**
+     * Returns the average amount of primary rays per pixel of the current (or the last) rendering - the cost of
+     * the super-sampling modes, which trace a varying amount of rays per pixel.
+     *
+     * @return the amount of rays per rendered pixel, or 0 if nothing was rendered yet
+     */
+    public double getSamplesPerPixel() {
+        PixelManager manager = pixelManager;
+        return manager == null ? 0 : manager.samplesPerPixel();
+    }
+
+    /**
+     * Sets the size of the square tiles the image is split into for rendering (16 by default).
+     * Every thread renders whole tiles, so neighbouring pixels are traced by the same thread.
+     *
+     * @param tileSize the size (in pixels) of the side of a tile
+     * @return a reference to this Camera object, for method chaining
+     * @throws IllegalArgumentException if the tile size is not positive
+     */
+    public Camera setTileSize(int tileSize) throws IllegalArgumentException {
+        if (tileSize <= 0)
+            throw new IllegalArgumentException("tile size must be positive");
+        this.tileSize = tileSize;
+        return this;
+    }
+
+    /**
+     * Sets a checkpoint file of the rendering - the image is rendered into a memory-mapped frame buffer in the
+     * file, and the completed tiles are flushed to the file periodically, so a rendering that was stopped (or
+     * crashed) may be resumed by rendering only the tiles that were not flushed yet.<br/>
+     * A checkpoint is resumed only if it was written for the same scene, camera settings, rendering mode and
+     * image size - it is identified by their hash - otherwise a new checkpoint is started. The file is kept after
+     * the rendering, and resuming a complete checkpoint renders nothing.
+     *
+     * @param checkpointPath the path of the checkpoint file, null to render without a checkpoint
+     * @param interval       the interval between flushes of the completed tiles, in seconds
+     * @param resume         true to resume the completed tiles of an existing checkpoint, false to start a new one
+     * @return a reference to this Camera object, for method chaining
+     * @throws IllegalArgumentException if the interval is negative
+     */
+    public Camera setCheckpoint(String checkpointPath, double interval, boolean resume)
+            throws IllegalArgumentException {
+        if (interval < 0)
+            throw new IllegalArgumentException("checkpoint interval cannot be negative");
+        this.checkpointPath = checkpointPath;
+        this.checkpointInterval = interval;
+        this.resume = resume;
+        return this;
+    }
+
     /**
      * Sets the viewport size of this Camera object to the specified width and height.
      * The viewport is the area of the screen where the Camera's view is displayed.
@@ -134,6 +288,7 @@ public class Camera {
     public Camera setVPSize(double width, double height) {
         this.width = width;
         this.height = height;
+        viewPlaneGrids = new ViewPlaneGrid[0];
         return this;
     }
 
@@ -145,12 +300,14 @@ public class Camera {
      */
     public Camera setVPDistance(double distance) {
         this.distance = distance;
+        viewPlaneGrids = new ViewPlaneGrid[0];
         return this;
     }
     /**
      * Sets the number of rays to be used for super sampling (nss).
      * Super sampling helps to reduce aliasing artifacts in the rendered image.
      * Higher values of nss result in smoother images but require more computation.
+     * A pixel is sampled by nss rays, 1 (or less) casts a single ray through the center of the pixel.
      *
      * @param nss the number of rays to be used for super sampling
      * @return the camera instance after setting the value of nss
@@ -160,6 +317,49 @@ public class Camera {
         return this;
     }
 
+    /**
+     * Sets the distribution of the rays of super sampling inside a pixel ({@link StratifiedSampler} by default).
+     *
+     * @param sampler the sampler of the pixels
+     * @return the camera instance after setting the sampler
+     * @throws IllegalArgumentException if the sampler is null
+     */
+    public Camera setSampler(Sampler sampler) throws IllegalArgumentException {
+        if (sampler == null)
+            throw new IllegalArgumentException("sampler cannot be null");
+        this.sampler = sampler;
+        return this;
+    }
+
+    /**
+     * Turns on the variance-driven budget of super sampling - every pixel is sampled in passes of minSamples rays
+     * until the estimated error of its color is within the target error, and the rays saved by the pixels that
+     * converge early are spent on the noisy pixels of their tile, up to maxSamples rays per pixel.
+     * The average budget of the pixels is nss rays. The error is estimated by the running variance of the samples
+     * of the pixel, as the half-width of the 95% confidence interval of its mean color (in the component that
+     * varies the most).
+     *
+     * @param minSamples  the amount of rays of a pass, and the minimal amount of rays of a pixel (2 at least)
+     * @param maxSamples  the maximal amount of rays of a pixel
+     * @param targetError the target error of the color of a pixel, in color units (255 for a full 8-bit component)
+     * @return the camera instance after setting the sample budget
+     * @throws IllegalArgumentException if minSamples is less than 2, maxSamples is less than minSamples or
+     *                                  the target error is not positive
+     */
+    public Camera setVarianceSampling(int minSamples, int maxSamples, double targetError)
+            throws IllegalArgumentException {
+        if (minSamples < 2)
+            throw new IllegalArgumentException("minimal samples must be at least 2");
+        if (maxSamples < minSamples)
+            throw new IllegalArgumentException("maximal samples cannot be less than minimal samples");
+        if (targetError <= 0)
+            throw new IllegalArgumentException("target error must be positive");
+        this.minSamples = minSamples;
+        this.maxSamples = maxSamples;
+        this.targetError = targetError;
+        return this;
+    }
+
     /**
      * Sets the maximum level of adaptive super sampling (maxLevelAdaptiveSS).
      * Adaptive super sampling is a technique that selectively applies super sampling
@@ -176,6 +376,23 @@ public class Camera {
     }
 
 
+    /**
+     * Sets the color difference threshold of adaptive super sampling (1 by default). A cell of the view plane is
+     * subdivided only if the colors of two of its corners differ by more than the threshold in some component
+     * (see {@link Color#difference(Color)}) - 1 refines only the cells that would not be written to the image as
+     * a flat color, higher values trade the quality of the edges for fewer rays.
+     *
+     * @param adaptiveThreshold the largest color difference of a cell that is not subdivided
+     * @return the camera instance after setting the threshold
+     * @throws IllegalArgumentException if the threshold is negative
+     */
+    public Camera setAdaptiveThreshold(double adaptiveThreshold) throws IllegalArgumentException {
+        if (adaptiveThreshold < 0)
+            throw new IllegalArgumentException("adaptive threshold cannot be negative");
+        this.adaptiveThreshold = adaptiveThreshold;
+        return this;
+    }
+
     /**
      * Sets the {@link ImageWriter} object to be used for rendering the image.
      *
@@ -241,164 +458,432 @@ public class Camera {
      */
     public Camera renderImage() throws IllegalArgumentException {
         everythingInitialized();
-        int nX = this.imageWriter.getNx();
-        int nY = this.imageWriter.getNy();
-        pixelManager = new PixelManager(nY, nX, printInterval);
-        if (threadsCount == 0) {
-            for (int i = 0; i < nY; ++i)
-                for (int j = 0; j < nX; ++j)
-                    castRay(nX, nY, j, i);
-        } else {
-            IntStream.range(0, nY).parallel()
-                    .forEach(i -> IntStream.range(0, nX).parallel() // for each row:
-                            .forEach(j -> {
-                                try {
-                                    castRay(nX, nY, j, i);
-                                } catch (IllegalArgumentException e) {
-                                    throw new RuntimeException(e);
-                                }
-                            }));
-        }
+        renderTiles("render", () -> this::castRay);
         return this;
     }
 
-
     /**
-     * Writes the image to file using the ImageWriter.
+     * Renders the image tile by tile. The tiles are handed out by the pixel manager to a fixed pool of
+     * {@link #threadsCount} worker threads, or rendered in the calling thread if there are no worker threads.
+     * If a checkpoint file is set, the image is rendered into its frame buffer, and the tiles completed by a
+     * former rendering are skipped. The image is copied back into its own frame buffer when the rendering ends.
      *
-     * @throws MissingResourceException If the imageWriter is null.
+     * @param mode        the name of the rendering mode, for the hash of the checkpoint
+     * @param pixelColors creates the pixel color calculation of each worker thread
+     * @throws IllegalArgumentException if there is an error accessing the scene or objects in the scene
      */
-    public Camera writeToImage() throws MissingResourceException {
-        if (imageWriter == null) {
-            throw new MissingResourceException("imageWriter", "Camera", "The value of imageWriter is null.");
+    private void renderTiles(String mode, Supplier<PixelColor> pixelColors) throws IllegalArgumentException {
+        int nX = imageWriter.getNx();
+        int nY = imageWriter.getNy();
+        Checkpoint checkpoint = null;
+        FrameBuffer frameBuffer = null;
+        if (checkpointPath != null) {
+            long hash = Checkpoint.fingerprint(mode, nX, nY, tileSize, p0, vTo, vUp, distance, width, height, nss,
+                    sampler, minSamples, maxSamples, targetError, maxLevelAdaptiveSS, adaptiveThreshold,
+                    rayTracerBase);
+            checkpoint = new Checkpoint(Path.of(checkpointPath), hash, nX, nY, tileSize, checkpointInterval, resume);
+            frameBuffer = imageWriter.setFrameBuffer(checkpoint.frameBuffer());
+        }
+        pixelManager = new PixelManager(nY, nX, tileSize, printInterval);
+        imageWriter.startEncoding();
+        try {
+            renderTiles(nX, nY, pixelColors, checkpoint);
+        } finally {
+            // the tiles completed so far are kept, also if the rendering failed, and the image is copied back
+            // into its own frame buffer, so it is not written into the checkpoint file any more
+            if (checkpoint != null) {
+                checkpoint.flush();
+                imageWriter.restoreFrameBuffer(frameBuffer);
+            }
         }
-        imageWriter.writeToImage();
-        return this;
     }
+
     /**
-     * Constructs a beam of rays for regular super-sampling at the specified pixel coordinates (j, i).
-     * The method creates a list of rays that includes the center ray of the pixel and additional rays
-     * distributed around the center to perform super-sampling.
+     * Renders the tiles by the worker threads, or in the calling thread if there are no worker threads.
      *
-     * @param nX the number of pixels in the x-axis of the image
-     * @param nY the number of pixels in the y-axis of the image
-     * @param j  the x-coordinate of the pixel in the image
-     * @param i  the y-coordinate of the pixel in the image
-     * @return a list of rays for super-sampling at the specified pixel coordinates
+     * @param nX          the number of pixels in the x-axis of the image
+     * @param nY          the number of pixels in the y-axis of the image
+     * @param pixelColors creates the pixel color calculation of each worker thread
+     * @param checkpoint  the checkpoint of the rendering, null if there is no checkpoint
      * @throws IllegalArgumentException if there is an error accessing the scene or objects in the scene
      */
-    private List<Ray> constructBeamSuperSampling(int nX, int nY, int j, int i) throws IllegalArgumentException {
-        // creating rays
-        List<Ray> beam = new LinkedList<>();
-        // add the ray of the center of the pixel
-        beam.add(constructRay(nX, nY, j, i));
-        // calculate the measures of each pixel
-        double ry = height / nY;
-        double rx = width / nX;
-        // find how many steps to go on the x and y coordinates
-        double yScale = alignZero((j - nX / 2d) * rx + rx / 2d);
-        double xScale = alignZero((i - nY / 2d) * ry + ry / 2d);
-        // get to the middle of the picture by adding the right distance
-        Point pixelCenter = p0.add(vTo.scale(distance));
-        if (!isZero(yScale))
-            pixelCenter = pixelCenter.add(vRight.scale(yScale));
-        if (!isZero(xScale))
-            pixelCenter = pixelCenter.add(vUp.scale(-1 * xScale));
-        Random rand = new Random();
-        for (int c = 0; c < nss; c++) {
-            // the rand returns randomly true or false and according to it positive or negative random number is chosen
-            double dxfactor = rand.nextBoolean() ? rand.nextDouble() : -1 * rand.nextDouble();
-            double dyfactor = rand.nextBoolean() ? rand.nextDouble() : -1 * rand.nextDouble();
-            double dx = rx * dxfactor;
-            double dy = ry * dyfactor;
-            Point randomPoint = pixelCenter;
-            if (!isZero(dx))
-                randomPoint = randomPoint.add(vRight.scale(dx));
-            if (!isZero(dy))
-                randomPoint = randomPoint.add(vUp.scale(-1 * dy));
-
-            beam.add(new Ray(p0, randomPoint.subtract(p0)));
+    private void renderTiles(int nX, int nY, Supplier<PixelColor> pixelColors, Checkpoint checkpoint)
+            throws IllegalArgumentException {
+        if (threadsCount == 0) {
+            renderTilesWorker(nX, nY, pixelColors.get(), checkpoint);
+            return;
         }
-        return beam;
+
+        // the first failure of a worker is re-thrown in the calling thread
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        List<Thread> threads = new LinkedList<>();
+        for (int t = 0; t < threadsCount; ++t)
+            threads.add(new Thread(() -> {
+                try {
+                    renderTilesWorker(nX, nY, pixelColors.get(), checkpoint);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }));
+        for (Thread thread : threads)
+            thread.start();
+        try {
+            for (Thread thread : threads)
+                thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("rendering was interrupted", e);
+        }
+        if (failure.get() != null)
+            throw failure.get();
     }
 
     /**
-     * Calculates the color using adaptive super-sampling at the specified pixel coordinates (j, i).
-     * The method constructs a beam of rays for the pixel and checks the color of each ray.
-     * If the colors differ from the center color, the method recursively calls itself with a higher level of super-sampling.
-     * The final color is obtained by summing the colors and reducing them.
+     * Renders tiles until the pixel manager has no more tiles to hand out.
      *
-     * @param nX          the number of pixels in the x-axis of the image
-     * @param nY          the number of pixels in the y-axis of the image
-     * @param j           the x-coordinate of the pixel in the image
-     * @param i           the y-coordinate of the pixel in the image
-     * @param maxLevel    the maximum level of super-sampling
-     * @param centerColor the color of the center ray
-     * @return the final color obtained by adaptive super-sampling
+     * @param nX         the number of pixels in the x-axis of the image
+     * @param nY         the number of pixels in the y-axis of the image
+     * @param pixelColor calculates the color of each pixel
+     * @param checkpoint the checkpoint of the rendering, null if there is no checkpoint
      * @throws IllegalArgumentException if there is an error accessing the scene or objects in the scene
      */
-    private Color calcAdaptiveSuperSampling(int nX, int nY, int j, int i, int maxLevel, Color centerColor) throws IllegalArgumentException {
-        if (maxLevel <= 0)
-            return centerColor;
-        Color color = centerColor;
-        Ray[] beam = new Ray[]{constructRay(2 * nX, 2 * nY, 2 * j, 2 * i),
-                constructRay(2 * nX, 2 * nY, 2 * j, 2 * i + 1),
-                constructRay(2 * nX, 2 * nY, 2 * j + 1, 2 * i),
-                constructRay(2 * nX, 2 * nY, 2 * j + 1, 2 * i + 1)};
-        for (int ray = 0; ray < 4; ray++) {
-            Color currentColor = rayTracerBase.traceRay(beam[ray]);
-            if (!currentColor.equals(centerColor))
-                currentColor = calcAdaptiveSuperSampling(2 * nX, 2 * nY,
-                        2 * j + ray / 2, 2 * i + ray % 2, (maxLevel - 1), currentColor);
-            color = color.add(currentColor);
+    private void renderTilesWorker(int nX, int nY, PixelColor pixelColor, Checkpoint checkpoint)
+            throws IllegalArgumentException {
+        PixelManager.Tile tile;
+        while ((tile = pixelManager.nextTile()) != null) {
+            if (checkpoint == null || !checkpoint.isDone(tile)) {
+                pixelColor.startTile(nX, nY, tile);
+                for (int row = tile.fromRow(); row < tile.toRow(); ++row)
+                    for (int col = tile.fromCol(); col < tile.toCol(); ++col)
+                        imageWriter.writePixel(col, row, pixelColor.calcColor(nX, nY, col, row));
+                if (checkpoint != null)
+                    checkpoint.tileDone(tile);
+            }
+            // the complete rows of tiles are encoded while the rest of the image is rendered
+            if (pixelManager.tileDone(tile))
+                imageWriter.rowsCompleted(tile.fromRow(), tile.toRow());
         }
-        return color.reduce(5);
     }
 
 
-    /** Cast ray from camera and color a pixel
+    /**
+     * Writes the image to file using the ImageWriter.
+     *
+     * @throws MissingResourceException If the imageWriter is null.
+     */
+    public Camera writeToImage() throws MissingResourceException {
+        if (imageWriter == null) {
+            throw new MissingResourceException("imageWriter", "Camera", "The value of imageWriter is null.");
+        }
+        imageWriter.writeToImage();
+        return this;
+    }
+    /**
+     * Checks whether the colors of the corners of a cell are similar - every two of them differ by the adaptive
+     * threshold at most.
+     *
+     * @param c1 the color of the first corner
+     * @param c2 the color of the second corner
+     * @param c3 the color of the third corner
+     * @param c4 the color of the fourth corner
+     * @return true if the cell does not need to be subdivided
+     */
+    private boolean isUniform(Color c1, Color c2, Color c3, Color c4) {
+        return c1.difference(c2) <= adaptiveThreshold && c1.difference(c3) <= adaptiveThreshold
+                && c1.difference(c4) <= adaptiveThreshold && c2.difference(c3) <= adaptiveThreshold
+                && c2.difference(c4) <= adaptiveThreshold && c3.difference(c4) <= adaptiveThreshold;
+    }
+
+    /** Cast ray from camera to calculate the color of a pixel
      * @param nX resolution on X axis (number of pixels in row)
      * @param nY resolution on Y axis (number of pixels in column)
      * @param col pixel's column number (pixel index in row)
      * @param row pixel's row number (pixel index in column)
+     * @return the color of the pixel
      */
-    private void castRay(int nX, int nY, int col, int row) throws IllegalArgumentException {
-        imageWriter.writePixel(col, row, rayTracerBase.traceRay(constructRay(nX, nY, col, row)));
-        pixelManager.pixelDone();
+    private Color castRay(int nX, int nY, int col, int row) throws IllegalArgumentException {
+        pixelManager.samplesDone(1);
+        return rayTracerBase.traceRay(constructRay(nX, nY, col, row));
     }
     /**
-     * Casts a beam of rays for adaptive super-sampling at the specified pixel coordinates (j, i).
-     * The method calculates the color of the center ray and then applies adaptive super-sampling
-     * to improve the color accuracy in areas of the image where aliasing is more prominent.
-     *
-     * @param j the x-coordinate of the pixel in the image
-     * @param i the y-coordinate of the pixel in the image
-     * @throws IllegalArgumentException if there is an error accessing the scene or objects in the scene
+     * Adaptive super-sampling of the pixels of a tile on a lattice of samples shared by the pixels.
+     * The lattice divides every pixel into 2^maxLevelAdaptiveSS by 2^maxLevelAdaptiveSS cells, and a sample is
+     * the color of the ray through a point of the lattice. Every pixel starts from its four corners, and a cell
+     * whose corners differ by more than the adaptive threshold is split into four quarters (down to the cells of
+     * the lattice) - the quarters share the corners of the cell and five new samples, the middles of its edges
+     * and its center. The samples are cached for the whole tile, so the corners and the edges shared by
+     * neighbouring pixels are traced once, and a flat area costs about one ray per pixel.<br/>
+     * Each worker thread has its own object, which is reused for all its tiles.
      */
-    private void castBeamAdaptiveSuperSampling(int j, int i) throws IllegalArgumentException {
-        Ray center = constructRay(imageWriter.getNx(), imageWriter.getNy(), j, i);
-        Color centerColor = rayTracerBase.traceRay(center);
-        imageWriter.writePixel(j, i, calcAdaptiveSuperSampling(imageWriter.getNx(), imageWriter.getNy(), j, i, maxLevelAdaptiveSS, centerColor));
-        pixelManager.pixelDone();
+    private class AdaptiveSuperSampling implements PixelColor {
+        /**
+         * Maximal amount of samples in the lattice of a tile to be cached in an array, a larger lattice
+         * (of a very deep adaptive super-sampling) is cached in a map of the traced samples only
+         */
+        private static final int MAX_DENSE_SAMPLES = 1 << 20;
+
+        /**
+         * Amount of lattice cells along the side of a pixel
+         */
+        private final int scale = 1 << maxLevelAdaptiveSS;
+        /**
+         * Samples of the lattice of the current tile, row by row - null for a sample that was not traced yet
+         */
+        private Color[] samples = new Color[0];
+        /**
+         * Samples of the lattice of the current tile if it is too large for an array, by their index
+         */
+        private final Map<Long, Color> sparseSamples = new HashMap<>();
+        /**
+         * Whether the samples of the current tile are cached in the map
+         */
+        private boolean sparse;
+        /**
+         * Amount of samples in a row of the lattice of the current tile
+         */
+        private int stride;
+        /**
+         * Column and row of the top left pixel of the current tile
+         */
+        private int fromCol, fromRow;
+        /**
+         * Ray generation context of the image resolution
+         */
+        private ViewPlaneGrid grid;
+
+        @Override
+        public void startTile(int nX, int nY, PixelManager.Tile tile) {
+            grid = viewPlaneGrid(nX, nY);
+            fromCol = tile.fromCol();
+            fromRow = tile.fromRow();
+            stride = (tile.toCol() - fromCol) * scale + 1;
+            long size = (long) stride * ((tile.toRow() - fromRow) * scale + 1);
+            sparse = size > MAX_DENSE_SAMPLES;
+            if (sparse)
+                sparseSamples.clear();
+            else if (samples.length < size)
+                samples = new Color[(int) size];
+            else
+                Arrays.fill(samples, 0, (int) size, null);
+        }
+
+        @Override
+        public Color calcColor(int nX, int nY, int col, int row) throws IllegalArgumentException {
+            int x = (col - fromCol) * scale;
+            int y = (row - fromRow) * scale;
+            return calcColor(x, y, scale, sample(x, y), sample(x + scale, y),
+                    sample(x, y + scale), sample(x + scale, y + scale));
+        }
+
+        /**
+         * Calculates the color of a square cell of the lattice, given the colors of its corners. If the corners
+         * are of similar colors or the cell cannot be split, the color of the cell is the average of its
+         * corners, otherwise it is the average of its quarters.
+         *
+         * @param x           the column of the top left corner of the cell in the lattice
+         * @param y           the row of the top left corner of the cell in the lattice
+         * @param size        the size of the side of the cell in lattice cells
+         * @param topLeft     the color of the top left corner
+         * @param topRight    the color of the top right corner
+         * @param bottomLeft  the color of the bottom left corner
+         * @param bottomRight the color of the bottom right corner
+         * @return the color of the cell
+         * @throws IllegalArgumentException if there is an error accessing the scene or objects in the scene
+         */
+        private Color calcColor(int x, int y, int size, Color topLeft, Color topRight, Color bottomLeft,
+                                Color bottomRight) throws IllegalArgumentException {
+            if (size == 1 || isUniform(topLeft, topRight, bottomLeft, bottomRight))
+                return topLeft.add(topRight, bottomLeft, bottomRight).reduce(4);
+
+            int half = size / 2;
+            Color top = sample(x + half, y);
+            Color left = sample(x, y + half);
+            Color center = sample(x + half, y + half);
+            Color right = sample(x + size, y + half);
+            Color bottom = sample(x + half, y + size);
+            return calcColor(x, y, half, topLeft, top, left, center)
+                    .add(calcColor(x + half, y, half, top, topRight, center, right),
+                            calcColor(x, y + half, half, left, center, bottomLeft, bottom),
+                            calcColor(x + half, y + half, half, center, right, bottom, bottomRight))
+                    .reduce(4);
+        }
+
+        /**
+         * Returns a sample of the lattice of the current tile, tracing its ray if it was not traced yet.
+         *
+         * @param x the column of the sample in the lattice
+         * @param y the row of the sample in the lattice
+         * @return the color of the sample
+         * @throws IllegalArgumentException if there is an error accessing the scene or objects in the scene
+         */
+        private Color sample(int x, int y) throws IllegalArgumentException {
+            long index = (long) y * stride + x;
+            Color color = sparse ? sparseSamples.get(index) : samples[(int) index];
+            if (color != null)
+                return color;
+
+            // the lattice point in pixels, where the center of the pixel (col, row) is the point (col, row)
+            pixelManager.samplesDone(1);
+            color = rayTracerBase.traceRay(grid.constructRay(fromCol - 0.5 + (double) x / scale,
+                    fromRow - 0.5 + (double) y / scale));
+            if (sparse)
+                sparseSamples.put(index, color);
+            else
+                samples[(int) index] = color;
+            return color;
+        }
+    }
+
+    /**
+     * Super-sampling with a variance-driven budget of rays per pixel (see
+     * {@link #setVarianceSampling(int, int, double)}). The whole tile is sampled when it starts: first every
+     * pixel is sampled until it converges or reaches the average budget, then the rays saved by the converged
+     * pixels are spent, a pass at a time, on the pixel of the tile with the largest error.
+     * The mean and the variance of every pixel are accumulated by Welford's algorithm.<br/>
+     * Each worker thread has its own object, which is reused for all its tiles.
+     */
+    private class VarianceSuperSampling implements PixelColor {
+        /**
+         * Half-width of the two-sided 95% confidence interval in standard deviations of the normal distribution
+         */
+        private static final double CONFIDENCE = 1.96;
+
+        /**
+         * Offsets of the samples of a pass
+         */
+        private final double[] x = new double[minSamples], y = new double[minSamples];
+        /**
+         * Mean colors of the pixels of the current tile - red, green and blue of every pixel in turn
+         */
+        private double[] means = new double[0];
+        /**
+         * Sums of squared differences from the mean colors of the pixels of the current tile, in the same order
+         */
+        private double[] squares = new double[0];
+        /**
+         * Amounts of samples of the pixels of the current tile
+         */
+        private int[] counts = new int[0];
+        /**
+         * Estimated errors of the colors of the pixels of the current tile
+         */
+        private double[] errors = new double[0];
+        /**
+         * Column and row of the top left pixel of the current tile and its width
+         */
+        private int fromCol, fromRow, width;
+        /**
+         * Ray generation context of the image resolution
+         */
+        private ViewPlaneGrid grid;
+
+        @Override
+        public void startTile(int nX, int nY, PixelManager.Tile tile) throws IllegalArgumentException {
+            grid = viewPlaneGrid(nX, nY);
+            fromCol = tile.fromCol();
+            fromRow = tile.fromRow();
+            width = tile.toCol() - fromCol;
+            int pixels = tile.pixels();
+            if (counts.length < pixels) {
+                means = new double[3 * pixels];
+                squares = new double[3 * pixels];
+                counts = new int[pixels];
+                errors = new double[pixels];
+            } else {
+                Arrays.fill(means, 0);
+                Arrays.fill(squares, 0);
+                Arrays.fill(counts, 0);
+            }
+
+            // every pixel until it converges or reaches the average budget
+            int budget = Math.max(minSamples, Math.min(nss, maxSamples));
+            long spent = 0;
+            for (int pixel = 0; pixel < pixels; ++pixel) {
+                do
+                    samplePass(pixel);
+                while (counts[pixel] + minSamples <= budget && errors[pixel] > targetError);
+                spent += counts[pixel];
+            }
+
+            // the saved rays go to the noisiest pixels
+            for (long saved = (long) budget * pixels - spent; saved >= minSamples; saved -= minSamples) {
+                int noisiest = -1;
+                double largestError = targetError;
+                for (int pixel = 0; pixel < pixels; ++pixel)
+                    if (errors[pixel] > largestError && counts[pixel] + minSamples <= maxSamples) {
+                        noisiest = pixel;
+                        largestError = errors[pixel];
+                    }
+                if (noisiest < 0)
+                    break;
+                samplePass(noisiest);
+                spent += minSamples;
+            }
+            pixelManager.samplesDone(spent);
+        }
+
+        @Override
+        public Color calcColor(int nX, int nY, int col, int row) {
+            int pixel = 3 * ((row - fromRow) * width + col - fromCol);
+            return new Color(means[pixel], means[pixel + 1], means[pixel + 2]);
+        }
+
+        /**
+         * Traces the next pass of samples of a pixel of the tile and updates its mean, variance and error
+         *
+         * @param pixel the index of the pixel in the tile, row by row
+         * @throws IllegalArgumentException if there is an error accessing the scene or objects in the scene
+         */
+        private void samplePass(int pixel) throws IllegalArgumentException {
+            int col = fromCol + pixel % width;
+            int row = fromRow + pixel / width;
+            int n = counts[pixel];
+            sampler.samplePixel(col, row, n / minSamples, x, y);
+            int i = 3 * pixel;
+            for (int ray = 0; ray < minSamples; ++ray) {
+                Color color = rayTracerBase.traceRay(grid.constructRay(col + x[ray], row + y[ray]));
+                ++n;
+                // Welford's update of the mean and the sum of squared differences of every component
+                double delta = color.getRed() - means[i];
+                means[i] += delta / n;
+                squares[i] += delta * (color.getRed() - means[i]);
+                delta = color.getGreen() - means[i + 1];
+                means[i + 1] += delta / n;
+                squares[i + 1] += delta * (color.getGreen() - means[i + 1]);
+                delta = color.getBlue() - means[i + 2];
+                means[i + 2] += delta / n;
+                squares[i + 2] += delta * (color.getBlue() - means[i + 2]);
+            }
+            counts[pixel] = n;
+            // the standard error of the mean is the standard deviation of the samples divided by sqrt(n)
+            double variance = Math.max(squares[i], Math.max(squares[i + 1], squares[i + 2])) / (n - 1);
+            errors[pixel] = CONFIDENCE * Math.sqrt(variance / n);
+        }
     }
 
     /**
      * Casts a beam of rays for regular super-sampling at the specified pixel coordinates (j, i).
-     * The method calculates the color for multiple rays in the beam and averages the colors to
-     * obtain the final color for the pixel.
+     * The rays pass through the sample positions of the pixel given by the sampler, and the color of
+     * the pixel is the average of their colors.
      *
-     * @param j the x-coordinate of the pixel in the image
-     * @param i the y-coordinate of the pixel in the image
+     * @param nX the number of pixels in the x-axis of the image
+     * @param nY the number of pixels in the y-axis of the image
+     * @param j  the x-coordinate of the pixel in the image
+     * @param i  the y-coordinate of the pixel in the image
+     * @param x  buffer for the horizontal offsets of the samples, its length is the number of rays
+     * @param y  buffer for the vertical offsets of the samples, of the same length
      * @return the color obtained by averaging the colors of the rays in the beam
      * @throws IllegalArgumentException if there is an error accessing the scene or objects in the scene
      */
-    private Color castBeamSuperSampling(int j, int i) throws IllegalArgumentException {
-        List<Ray> beam = constructBeamSuperSampling(imageWriter.getNx(), imageWriter.getNy(), j, i);
+    private Color castBeamSuperSampling(int nX, int nY, int j, int i, double[] x, double[] y)
+            throws IllegalArgumentException {
+        ViewPlaneGrid grid = viewPlaneGrid(nX, nY);
+        sampler.samplePixel(j, i, x, y);
+        pixelManager.samplesDone(x.length);
         Color color = Color.BLACK;
-        for (Ray ray : beam) {
-            color = color.add(rayTracerBase.traceRay(ray));
-        }
-        return color.reduce(nss);
+        for (int ray = 0; ray < x.length; ++ray)
+            color = color.add(rayTracerBase.traceRay(grid.constructRay(j + x[ray], i + y[ray])));
+        return color.reduce(x.length);
     }
 
     /**
@@ -432,20 +917,28 @@ public class Camera {
      * Renders the image using super-sampling for improved image quality.
      * Casts a beam of rays for each pixel in the image, applies regular super-sampling,
      * and writes the final color to the imageWriter for each pixel.
+     * The amount of rays of a pixel is nss, or driven by the variance of the pixel if it was turned on by
+     * {@link #setVarianceSampling(int, int, double)}.
      *
      * @return the camera object after rendering the image with super-sampling
      * @throws IllegalArgumentException if there is an error accessing the scene or objects in the scene
      */
     public Camera renderImageSuperSampling() throws IllegalArgumentException {
         everythingInitialized();
-        int nX = this.imageWriter.getNx();
-        int nY = this.imageWriter.getNy();
-        for (int i = 0; i < nX; i++) {
-            for (int j = 0; j < nY; j++) {
-                Color color = castBeamSuperSampling(j, i);
-                imageWriter.writePixel(j, i, color);
-            }
+        if (maxSamples > 0) {
+            renderTiles("variance super sampling", VarianceSuperSampling::new);
+            return this;
         }
+        if (nss <= 1) {
+            renderTiles("render", () -> this::castRay);
+            return this;
+        }
+        renderTiles("super sampling", () -> {
+            // the sample buffers of a worker thread
+            double[] x = new double[nss];
+            double[] y = new double[nss];
+            return (nX, nY, col, row) -> castBeamSuperSampling(nX, nY, col, row, x, y);
+        });
         return this;
     }
 
@@ -459,33 +952,8 @@ public class Camera {
      */
     public Camera renderImageAdaptiveSuperSampling() throws IllegalArgumentException {
         everythingInitialized();
-        int nX = this.imageWriter.getNx();
-        int nY = this.imageWriter.getNy();
-        pixelManager = new PixelManager(nY, nX, printInterval);
-        if (threadsCount == 0) {
-            for (int i = 0; i < nX; i++) {
-                for (int j = 0; j < nY; j++) {
-                    castBeamAdaptiveSuperSampling(j, i);
-                }
-            }
-        } else {
-            IntStream.range(0, nY).parallel()
-                    .forEach(i -> IntStream.range(0, nX).parallel()
-                            .forEach(j -> {
-                                try {
-                                    castBeamAdaptiveSuperSampling(j, i);
-                                } catch (IllegalArgumentException e) {
-                                    throw new RuntimeException(e);
-                                }
-                            }));
-        }
+        renderTiles(maxLevelAdaptiveSS <= 0 ? "render" : "adaptive super sampling",
+                maxLevelAdaptiveSS <= 0 ? () -> this::castRay : AdaptiveSuperSampling::new);
         return this;
     }
-
-
-
 }
-
-
-
-
@@ -0,0 +1,232 @@
+package renderer;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Checkpoint is a helper class of the camera. It keeps the image being
+ * rendered in a file, so a long rendering that was stopped (or crashed) may be
+ * resumed, rendering only the tiles that were not completed.<br/>
+ * The file holds a header (with the hash of the scene and the camera), a map of
+ * the completed tiles - a byte for every tile - and a {@link MappedFrameBuffer}
+ * that serves as the pixel color matrix of the image writer while the image is
+ * rendered. The completed tiles are flushed periodically: the pixels are forced
+ * to the disk first, and only then their tiles are marked in the map (and the
+ * map is forced), so the map never marks a tile whose pixels are not on the
+ * disk - a tile completed after the last flush is rendered again. */
+final class Checkpoint {
+    /** Magic number of a checkpoint file - "RTCP" */
+    private static final int  MAGIC          = 0x52544350;
+    /** Version of the checkpoint file layout */
+    private static final int  VERSION        = 1;
+    /** Size of the header of the file */
+    private static final int  HEADER_SIZE    = 32;
+    /** Alignment of the frame buffer in the file */
+    private static final int  PAGE_SIZE      = 4096;
+    /** Multiplier of the 64-bit FNV-1a hash */
+    private static final long FNV_PRIME      = 0x100000001B3L;
+    /** Offset basis of the 64-bit FNV-1a hash */
+    private static final long FNV_OFFSET     = 0xCBF29CE484222325L;
+
+    /** Size (in pixels) of the side of a tile */
+    private final int                            tileSize;
+    /** Amount of tiles in a row of tiles */
+    private final int                            tileCols;
+    /** The mapped header and map of the completed tiles */
+    private final MappedByteBuffer               tileMap;
+    /** The pixel color matrix in the file */
+    private final MappedFrameBuffer              frameBuffer;
+    /** Flush interval in nanoseconds */
+    private final long                           interval;
+    /** Time of the next flush in nanoseconds */
+    private final AtomicLong                     nextFlush;
+    /** Tiles completed since the last flush */
+    private final ConcurrentLinkedQueue<Integer> pending   = new ConcurrentLinkedQueue<>();
+
+    /** Opens the checkpoint file of an image - resuming the completed tiles of
+     * the file if it is a checkpoint of the same scene, camera and image, or
+     * starting a new checkpoint otherwise
+     * @param  path     the path of the file
+     * @param  hash     the hash of the scene and the camera
+     * @param  nX       amount of pixels by width
+     * @param  nY       amount of pixels by height
+     * @param  tileSize the size (in pixels) of the side of a tile
+     * @param  interval flush interval in seconds
+     * @param  resume   true to resume the completed tiles of the file, false to
+     *                  start a new checkpoint anyway
+     * @throws IllegalStateException if the file could not be opened */
+    Checkpoint(Path path, long hash, int nX, int nY, int tileSize, double interval, boolean resume)
+            throws IllegalStateException {
+        this.tileSize = tileSize;
+        this.interval = (long) (interval * 1e9);
+        nextFlush     = new AtomicLong(System.nanoTime() + this.interval);
+        tileCols      = (nX + tileSize - 1) / tileSize;
+        int  tiles    = tileCols * ((nY + tileSize - 1) / tileSize);
+        long mapSize  = HEADER_SIZE + (long) tiles;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                                    StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            boolean matches = resume && channel.size() >= mapSize && channel.read(header, 0) == HEADER_SIZE
+                    && header.getInt(0) == MAGIC && header.getInt(4) == VERSION && header.getLong(8) == hash
+                    && header.getInt(16) == nX && header.getInt(20) == nY && header.getInt(24) == tileSize;
+            if (!matches) channel.truncate(0);
+
+            tileMap     = channel.map(FileChannel.MapMode.READ_WRITE, 0, mapSize);
+            frameBuffer = new MappedFrameBuffer(nX, nY, channel, (mapSize + PAGE_SIZE - 1) / PAGE_SIZE * PAGE_SIZE);
+            if (!matches) {
+                tileMap.putInt(0, MAGIC).putInt(4, VERSION).putLong(8, hash)
+                        .putInt(16, nX).putInt(20, nY).putInt(24, tileSize);
+                tileMap.force();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot open the checkpoint file " + path, e);
+        }
+    }
+
+    /** The pixel color matrix in the checkpoint file
+     * @return the frame buffer */
+    FrameBuffer frameBuffer() {
+        return frameBuffer;
+    }
+
+    /** Index of a tile in the map of the completed tiles
+     * @param  tile the tile
+     * @return      the index */
+    private int index(PixelManager.Tile tile) {
+        return tile.fromRow() / tileSize * tileCols + tile.fromCol() / tileSize;
+    }
+
+    /** Checks whether a tile was completed by a former rendering
+     * @param  tile the tile
+     * @return      true if the pixels of the tile are in the file */
+    boolean isDone(PixelManager.Tile tile) {
+        return tileMap.get(HEADER_SIZE + index(tile)) != 0;
+    }
+
+    /** Reports a tile as complete - all its pixels were written into the frame
+     * buffer. If the flush interval has passed, the thread flushes the completed
+     * tiles (only one thread flushes at a time, the others go on rendering).
+     * @param tile the tile */
+    void tileDone(PixelManager.Tile tile) {
+        pending.add(index(tile));
+        long next = nextFlush.get();
+        if (System.nanoTime() - next >= 0 && nextFlush.compareAndSet(next, System.nanoTime() + interval))
+            flush();
+    }
+
+    /** Flushes the tiles completed since the last flush - forces their pixels to
+     * the disk, and then marks them in the map of the completed tiles */
+    synchronized void flush() {
+        List<Integer> tiles = new ArrayList<>();
+        for (Integer tile; (tile = pending.poll()) != null;)
+            tiles.add(tile);
+        if (tiles.isEmpty()) return;
+        frameBuffer.force();
+        for (int tile : tiles)
+            tileMap.put(HEADER_SIZE + tile, (byte) 1);
+        tileMap.force();
+    }
+
+    /** Calculates a hash of objects by their content - the values of their
+     * fields, recursively, or the elements of arrays, collections and maps.
+     * Static and transient fields (e.g. caches) are skipped, and objects of the
+     * Java platform other than strings, boxed values, enums, collections and
+     * maps are hashed by their class only.
+     * @param  parts the objects
+     * @return       the hash */
+    static long fingerprint(Object... parts) {
+        return fingerprint(FNV_OFFSET, parts, new IdentityHashMap<>());
+    }
+
+    /** Adds an object to a hash by its content
+     * @param  hash    the hash so far
+     * @param  object  the object
+     * @param  visited the objects already hashed, by the order of their visit -
+     *                 a shared object is hashed once, and referred by its order
+     *                 later
+     * @return         the new hash */
+    private static long fingerprint(long hash, Object object, Map<Object, Integer> visited) {
+        if (object == null) return mix(hash, 0);
+        if (object instanceof Double d) return mix(hash, Double.doubleToLongBits(d));
+        if (object instanceof Float f) return mix(hash, Float.floatToIntBits(f));
+        if (object instanceof Number n) return mix(hash, n.longValue());
+        if (object instanceof Boolean b) return mix(hash, b ? 1 : 2);
+        if (object instanceof Character c) return mix(hash, c);
+        if (object instanceof String s) return mix(hash, s);
+        if (object instanceof Enum<?> e) return mix(mix(hash, e.getDeclaringClass().getName()), e.name());
+
+        Integer order = visited.get(object);
+        if (order != null) return mix(hash, -1 - order);
+        visited.put(object, visited.size());
+
+        Class<?> type = object.getClass();
+        hash = mix(hash, type.getName());
+        if (object instanceof double[] array) {
+            for (double d : array) hash = mix(hash, Double.doubleToLongBits(d));
+        } else if (object instanceof float[] array) {
+            for (float f : array) hash = mix(hash, Float.floatToIntBits(f));
+        } else if (object instanceof int[] array) {
+            for (int i : array) hash = mix(hash, i);
+        } else if (type.isArray()) {
+            for (int i = 0, length = Array.getLength(object); i < length; ++i)
+                hash = fingerprint(hash, Array.get(object, i), visited);
+        } else if (object instanceof Iterable<?> iterable) {
+            for (Object element : iterable) hash = fingerprint(hash, element, visited);
+        } else if (object instanceof Map<?, ?> map) {
+            for (Map.Entry<?, ?> entry : map.entrySet())
+                hash = fingerprint(fingerprint(hash, entry.getKey(), visited), entry.getValue(), visited);
+        } else if (!type.getName().startsWith("java")) {
+            for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+                Field[] fields = c.getDeclaredFields();
+                Arrays.sort(fields, Comparator.comparing(Field::getName));
+                for (Field field : fields) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic())
+                        continue;
+                    field.setAccessible(true);
+                    try {
+                        hash = fingerprint(mix(hash, field.getName()), field.get(object), visited);
+                    } catch (IllegalAccessException e) {
+                        throw new IllegalStateException("cannot hash field " + field, e);
+                    }
+                }
+            }
+        }
+        return hash;
+    }
+
+    /** Adds a value to a hash (64-bit FNV-1a over its bytes)
+     * @param  hash  the hash so far
+     * @param  value the value
+     * @return       the new hash */
+    private static long mix(long hash, long value) {
+        for (int i = 0; i < 8; ++i, value >>>= 8)
+            hash = (hash ^ (value & 0xFF)) * FNV_PRIME;
+        return hash;
+    }
+
+    /** Adds a string to a hash
+     * @param  hash  the hash so far
+     * @param  value the string
+     * @return       the new hash */
+    private static long mix(long hash, String value) {
+        hash = mix(hash, value.length());
+        for (int i = 0; i < value.length(); ++i)
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        return hash;
+    }
+}
@@ -0,0 +1,50 @@
+package renderer;
+
+/**
+ * Storage of the HDR pixel color matrix of an image - red, green and blue float
+ * components of every pixel.<br/>
+ * Different pixels may be written by different threads at the same time without
+ * locking, a pixel is written by one thread at a time.
+ */
+interface FrameBuffer {
+    /**
+     * Writes the color of a pixel
+     *
+     * @param x     X axis index of the pixel
+     * @param y     Y axis index of the pixel
+     * @param red   the red component
+     * @param green the green component
+     * @param blue  the blue component
+     */
+    void set(int x, int y, float red, float green, float blue);
+
+    /**
+     * Adds a color to the color of a pixel
+     *
+     * @param x     X axis index of the pixel
+     * @param y     Y axis index of the pixel
+     * @param red   the red component to add
+     * @param green the green component to add
+     * @param blue  the blue component to add
+     */
+    void add(int x, int y, float red, float green, float blue);
+
+    /**
+     * Reads a component of the color of a pixel
+     *
+     * @param  x         X axis index of the pixel
+     * @param  y         Y axis index of the pixel
+     * @param  component 0 for red, 1 for green or 2 for blue
+     * @return           the component
+     */
+    float get(int x, int y, int component);
+
+    /**
+     * Reads a row of pixels
+     *
+     * @param y      the row
+     * @param rgb    the array of the components - red, green and blue of every pixel in turn
+     * @param offset index of the red component of the first pixel of the row in the array
+     */
+    void readRow(int y, float[] rgb, int offset);
+}
@@ -0,0 +1,57 @@
+package renderer;
+
+/**
+ * Halton sampler - the samples are the points of the Halton low-discrepancy sequence of bases 2 and 3, which
+ * cover the pixel evenly for any amount of samples. Every pixel shifts the points by its own random offset
+ * (wrapping around the pixel borders), so the neighbouring pixels do not repeat the same pattern.
+ * The passes of a pixel continue the sequence, so all the samples of the passes together are still
+ * a low-discrepancy set.
+ */
+public class HaltonSampler extends Sampler {
+    /**
+     * The seed of the random shifts of the pixels
+     */
+    private final long seed;
+
+    /**
+     * Constructs a Halton sampler with the default seed
+     */
+    public HaltonSampler() {
+        this(0);
+    }
+
+    /**
+     * Constructs a Halton sampler
+     *
+     * @param seed the seed of the random shifts of the pixels
+     */
+    public HaltonSampler(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public void samplePixel(int col, int row, int pass, double[] x, double[] y) {
+        double shiftX = random(seed, col, row, 0);
+        double shiftY = random(seed, col, row, 1);
+        int first = pass * x.length + 1;
+        for (int i = 0; i < x.length; ++i) {
+            x[i] = wrap(radicalInverse(first + i, 2) + shiftX) - 0.5;
+            y[i] = wrap(radicalInverse(first + i, 3) + shiftY) - 0.5;
+        }
+    }
+
+    /**
+     * Calculates the radical inverse of a number - its digits in the given base mirrored around the radix point
+     *
+     * @param i    the number
+     * @param base the base
+     * @return the radical inverse, in the range [0, 1)
+     */
+    static double radicalInverse(int i, int base) {
+        double inverse = 0;
+        double digitValue = 1d / base;
+        for (; i > 0; i /= base, digitValue /= base)
+            inverse += (i % base) * digitValue;
+        return inverse;
+    }
+}
@@ -0,0 +1,52 @@
+package renderer;
+
+/**
+ * Frame buffer in a single float array on the heap, row by row - the fastest
+ * storage, for images of up to about 700 million pixels
+ */
+final class HeapFrameBuffer implements FrameBuffer {
+    /** Width of the image */
+    private final int     nX;
+    /** Red, green and blue of every pixel, row by row */
+    private final float[] pixels;
+
+    /**
+     * Allocates the frame buffer of an image
+     *
+     * @param  nX amount of pixels by width
+     * @param  nY amount of pixels by height
+     * @throws IllegalArgumentException if the image is too large for an array
+     */
+    HeapFrameBuffer(int nX, int nY) throws IllegalArgumentException {
+        if ((long) nX * nY * 3 > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("the image is too large for a pixel buffer");
+        this.nX = nX;
+        pixels  = new float[nX * nY * 3];
+    }
+
+    @Override
+    public void set(int x, int y, float red, float green, float blue) {
+        int i = (y * nX + x) * 3;
+        pixels[i]     = red;
+        pixels[i + 1] = green;
+        pixels[i + 2] = blue;
+    }
+
+    @Override
+    public void add(int x, int y, float red, float green, float blue) {
+        int i = (y * nX + x) * 3;
+        pixels[i]     += red;
+        pixels[i + 1] += green;
+        pixels[i + 2] += blue;
+    }
+
+    @Override
+    public float get(int x, int y, int component) {
+        return pixels[(y * nX + x) * 3 + component];
+    }
+
+    @Override
+    public void readRow(int y, float[] rgb, int offset) {
+        System.arraycopy(pixels, y * nX * 3, rgb, offset, nX * 3);
+    }
+}
@@ -1,30 +1,92 @@
 package renderer;
 
 import primitives.Color;
-import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import javax.imageio.*;
-
 /**
  * Image writer class combines accumulation of pixel color matrix and finally
  * producing a non-optimized jpeg image from this matrix. The class although is
  * responsible of holding image related parameters of View Plane - pixel matrix
- * size and resolution
+ * size and resolution<br/>
+ * The pixel color matrix is a flat HDR buffer of float red, green and blue
+ * components (in the color units, where 255 is a full 8-bit component), so the
+ * rendering threads write their pixels without any locking, colors brighter than
+ * 255 are kept, and the colors of several passes may be accumulated. The colors
+ * are converted to 8 bits - exposure, clamping and gamma - in a single pass over
+ * the buffer when the image is written.<br/>
+ * The buffer of a large image (above {@link #MAX_HEAP_PIXELS} pixels) is kept out
+ * of core, in a tiled memory-mapped file ({@link MappedFrameBuffer}), and the
+ * image file is written strip by strip, so the heap used by a gigapixel image
+ * does not grow with its size.<br/>
+ * The image is encoded by {@link PngEncoder} in parallel blocks of rows. While a
+ * camera renders the image, it reports the rows it completes, and their blocks are
+ * encoded in the background, so little is left to encode when the image is
+ * written.<br/>
+ * Instead of PNG, the image may be written by {@link RawImageEncoder} in a fast,
+ * (almost) uncompressed format - PPM, PFM (the HDR colors) or QOI - for
+ * intermediate frames and for images fed to other tools.
  *
  * @author Dan
  */
 public class ImageWriter {
+    /**
+     * Formats of the image file
+     */
+    public enum Format {
+        /** Compressed 8-bit RGB PNG */
+        PNG("png"),
+        /** Uncompressed 8-bit RGB binary PPM */
+        PPM("ppm"),
+        /** Uncompressed 32-bit float RGB PFM - the HDR colors after exposure, where 1 is a full 8-bit component */
+        PFM("pfm"),
+        /** Fast lossless 8-bit RGB QOI */
+        QOI("qoi");
+
+        /** The extension of the file name */
+        private final String extension;
+
+        /**
+         * Constructs a format
+         *
+         * @param extension the extension of the file name
+         */
+        Format(String extension) {
+            this.extension = extension;
+        }
+    }
+
     private int nX;
     private int nY;
 
     private static final String FOLDER_PATH = System.getProperty("user.dir") + "/images";
 
-    private BufferedImage image;
+    /** Largest amount of pixels of an image whose pixel color matrix is kept on the heap by default */
+    private static final long MAX_HEAP_PIXELS = 1L << 26;
+
+    /** The HDR pixel color matrix */
+    private FrameBuffer pixels;
+    /** Whether the pixel color matrix is kept out of core */
+    private final boolean outOfCore;
     private String imageName;
+    /** The directory of the image file */
+    private String folderPath = FOLDER_PATH;
+    /** The format of the image file */
+    private Format format = Format.PNG;
+
+    /** Factor of the colors when they are converted to 8 bits */
+    private double exposure = 1;
+    /** Gamma of the conversion to 8 bits, 1 for a linear conversion */
+    private double gamma = 1;
+
+    /** Encoder of the image being rendered, null if no rows were completed since
+     * the image was last written */
+    private volatile PngEncoder encoder;
+
+    /** Steps of the gamma conversion table per color unit */
+    private static final int GAMMA_STEPS = 256;
 
     private Logger logger = Logger.getLogger("ImageWriter");
 
@@ -34,13 +96,30 @@ public class ImageWriter {
      * @param imageName the name of jpeg file
      * @param nX        amount of pixels by Width
      * @param nY        amount of pixels by height
+     * @throws IllegalStateException if the file of an out-of-core pixel color matrix cannot be created
+     */
+    public ImageWriter(String imageName, int nX, int nY) throws IllegalStateException {
+        this(imageName, nX, nY, (long) nX * nY > MAX_HEAP_PIXELS);
+    }
+
+    /**
+     * Image Writer constructor accepting image name and View Plane parameters,
+     * and where to keep the pixel color matrix
+     * @param imageName the name of jpeg file
+     * @param nX        amount of pixels by Width
+     * @param nY        amount of pixels by height
+     * @param outOfCore true to keep the pixel color matrix in a memory-mapped
+     *                  file, false to keep it on the heap
+     * @throws IllegalArgumentException if the image is too large for a pixel color matrix on the heap
+     * @throws IllegalStateException    if the file of an out-of-core pixel color matrix cannot be created
      */
-    public ImageWriter(String imageName, int nX, int nY) {
+    public ImageWriter(String imageName, int nX, int nY, boolean outOfCore)
+            throws IllegalArgumentException, IllegalStateException {
         this.imageName = imageName;
         this.nX = nX;
         this.nY = nY;
-
-        image = new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB);
+        this.outOfCore = outOfCore;
+        pixels = outOfCore ? MappedFrameBuffer.temporary(nX, nY) : new HeapFrameBuffer(nX, nY);
     }
 
     // ***************** Getters/Setters ********************** //
@@ -62,22 +141,201 @@ public class ImageWriter {
         return nX;
     }
 
+    /**
+     * Sets the factor of the colors when they are converted to 8 bits (1 by default) -
+     * e.g. 1/n for an image accumulated from n passes
+     *
+     * @param  exposure the factor of the colors
+     * @return          the image writer itself, for method chaining
+     * @throws IllegalArgumentException if the exposure is not positive */
+    public ImageWriter setExposure(double exposure) throws IllegalArgumentException {
+        if (exposure <= 0)
+            throw new IllegalArgumentException("exposure must be positive");
+        this.exposure = exposure;
+        encoder = null;
+        return this;
+    }
+
+    /**
+     * Sets the gamma of the conversion of the colors to 8 bits (1 by default, a
+     * linear conversion) - a component c (after clamping to 255) is written as
+     * 255 * (c / 255) ^ (1 / gamma)
+     *
+     * @param  gamma the gamma, e.g. 2.2 for a standard display
+     * @return       the image writer itself, for method chaining
+     * @throws IllegalArgumentException if the gamma is not positive */
+    public ImageWriter setGamma(double gamma) throws IllegalArgumentException {
+        if (gamma <= 0)
+            throw new IllegalArgumentException("gamma must be positive");
+        this.gamma = gamma;
+        encoder = null;
+        return this;
+    }
+
+    /**
+     * Sets the directory of the image file (the images directory of the project
+     * by default)
+     *
+     * @param  folderPath the path of the directory
+     * @return            the image writer itself, for method chaining
+     * @throws IllegalArgumentException if the path is null */
+    public ImageWriter setFolderPath(String folderPath) throws IllegalArgumentException {
+        if (folderPath == null)
+            throw new IllegalArgumentException("folder path must not be null");
+        this.folderPath = folderPath;
+        return this;
+    }
+
+    /**
+     * Sets the format of the image file (PNG by default)
+     *
+     * @param  format the format
+     * @return        the image writer itself, for method chaining
+     * @throws IllegalArgumentException if the format is null */
+    public ImageWriter setFormat(Format format) throws IllegalArgumentException {
+        if (format == null)
+            throw new IllegalArgumentException("format must not be null");
+        this.format = format;
+        encoder = null;
+        return this;
+    }
+
     // ***************** Operations ******************** //
 
     /**
-     * Function writeToImage produces unoptimized png file of the image according to
-     * pixel color matrix in the directory of the project
+     * Function writeToImage produces the image file according to pixel color
+     * matrix, in the format and the directory of the image writer
      */
     public void writeToImage() {
+        PngEncoder png = encoder;
+        encoder = null;
+        Path path = Path.of(folderPath, imageName + "." + format.extension);
         try {
-            File file = new File(FOLDER_PATH + '/' + imageName + ".png");
-            ImageIO.write(image, "png", file);
+            switch (format) {
+                case PNG -> (png != null ? png : new PngEncoder(this, gammaTable())).write(path);
+                case PPM -> RawImageEncoder.writePpm(this, gammaTable(), path);
+                case PFM -> RawImageEncoder.writePfm(this, path);
+                case QOI -> RawImageEncoder.writeQoi(this, gammaTable(), path);
+            }
         } catch (IOException e) {
             logger.log(Level.SEVERE, "I/O error", e);
-            throw new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
+            throw new IllegalStateException("I/O error - may be missing directory " + folderPath, e);
         }
     }
 
+    /**
+     * Replaces the pixel color matrix - e.g. by the frame buffer of a checkpoint
+     * file, which the image is rendered into
+     *
+     * @param  pixels the new pixel color matrix, of the size of the image
+     * @return        the replaced pixel color matrix */
+    FrameBuffer setFrameBuffer(FrameBuffer pixels) {
+        FrameBuffer replaced = this.pixels;
+        this.pixels = pixels;
+        encoder = null;
+        return replaced;
+    }
+
+    /**
+     * Restores a pixel color matrix replaced by {@link #setFrameBuffer(FrameBuffer)},
+     * copying the pixels of the current matrix into it. The image is not changed,
+     * so the rows encoded in the background are kept
+     *
+     * @param pixels the replaced pixel color matrix */
+    void restoreFrameBuffer(FrameBuffer pixels) {
+        float[] row = new float[nX * 3];
+        for (int y = 0; y < nY; ++y) {
+            this.pixels.readRow(y, row, 0);
+            for (int x = 0; x < nX; ++x)
+                pixels.set(x, y, row[3 * x], row[3 * x + 1], row[3 * x + 2]);
+        }
+        this.pixels = pixels;
+    }
+
+    /**
+     * Starts a new encoding of the image, for the rows to be reported complete by
+     * {@link #rowsCompleted(int, int)} - called when the rendering of the image
+     * starts (only a PNG image with the pixel color matrix on the heap is encoded
+     * in the background, so an out-of-core image does not keep its encoded rows
+     * on the heap until it is written)
+     */
+    void startEncoding() {
+        encoder = format == Format.PNG && !outOfCore ? new PngEncoder(this, gammaTable()) : null;
+    }
+
+    /**
+     * Reports rows of the image as complete - they will not be written again, so
+     * they may be encoded while the rest of the image is rendered
+     *
+     * @param fromRow the first complete row (inclusive)
+     * @param toRow   the last complete row (exclusive)
+     */
+    void rowsCompleted(int fromRow, int toRow) {
+        PngEncoder png = encoder;
+        if (png != null)
+            png.rowsCompleted(fromRow, toRow);
+    }
+
+    /**
+     * Builds the table of the gamma conversion of the current gamma
+     *
+     * @return the 8-bit value of every {@link #GAMMA_STEPS}-th of a color unit
+     *         between 0 and 255, or null for a linear conversion */
+    int[] gammaTable() {
+        if (gamma == 1)
+            return null;
+        int[] table = new int[255 * GAMMA_STEPS];
+        double power = 1 / gamma;
+        for (int i = 0; i < table.length; ++i)
+            table[i] = (int) (255 * Math.pow((double) i / table.length, power) + 0.5);
+        return table;
+    }
+
+    /**
+     * Converts a row of the pixel color matrix to 8-bit RGB values
+     *
+     * @param y      the row
+     * @param rgb    the array of the values - red, green and blue of every pixel in turn
+     * @param offset index of the red value of the first pixel of the row in the array
+     * @param table  the gamma conversion table, or null for a linear conversion
+     * @param row    a scratch array of 3 * nX floats at least, for the colors
+     *               of the row before the conversion - reused by the caller
+     *               for all its rows */
+    void convertRow(int y, byte[] rgb, int offset, int[] table, float[] row) {
+        float scale = (float) exposure;
+        pixels.readRow(y, row, 0);
+        for (int i = 0; i < nX * 3; ++i)
+            rgb[offset + i] = (byte) toByte(row[i] * scale, table);
+    }
+
+    /**
+     * Converts a row of the pixel color matrix to HDR values after exposure,
+     * where 1 is a full 8-bit component (255)
+     *
+     * @param y      the row
+     * @param rgb    the array of the values - red, green and blue of every pixel in turn
+     * @param offset index of the red value of the first pixel of the row in the array */
+    void convertRow(int y, float[] rgb, int offset) {
+        float scale = (float) (exposure / 255);
+        pixels.readRow(y, rgb, offset);
+        for (int i = offset; i < offset + nX * 3; ++i)
+            rgb[i] *= scale;
+    }
+
+    /**
+     * Converts a color component to 8 bits
+     *
+     * @param  c     the component
+     * @param  table the gamma conversion table, or null for a linear conversion
+     * @return       the 8-bit value */
+    private static int toByte(float c, int[] table) {
+        if (!(c > 0))
+            return 0;
+        if (c >= 255)
+            return 255;
+        return table == null ? (int) c : table[(int) (c * GAMMA_STEPS)];
+    }
+
     /**
      * The function writePixel writes a color of a specific pixel into pixel color
      * matrix
@@ -87,7 +345,39 @@ public class ImageWriter {
      * @param color  final color of the pixel
      */
     public void writePixel(int xIndex, int yIndex, Color color) {
-        image.setRGB(xIndex, yIndex, color.getColor().getRGB());
+        PngEncoder png = encoder;
+        if (png != null)
+            png.pixelWritten(yIndex);
+        pixels.set(xIndex, yIndex, (float) color.getRed(), (float) color.getGreen(), (float) color.getBlue());
+    }
+
+    /**
+     * The function addPixel adds a color to the color of a specific pixel in the
+     * pixel color matrix - for accumulating the passes of a progressive rendering
+     * (a pixel is accumulated by one thread at a time)
+     *
+     * @param xIndex X axis index of the pixel
+     * @param yIndex Y axis index of the pixel
+     * @param color  the color to add
+     */
+    public void addPixel(int xIndex, int yIndex, Color color) {
+        PngEncoder png = encoder;
+        if (png != null)
+            png.pixelWritten(yIndex);
+        pixels.add(xIndex, yIndex, (float) color.getRed(), (float) color.getGreen(), (float) color.getBlue());
+    }
+
+    /**
+     * The function getPixel reads the (HDR) color of a specific pixel from the
+     * pixel color matrix
+     *
+     * @param  xIndex X axis index of the pixel
+     * @param  yIndex Y axis index of the pixel
+     * @return        the color of the pixel
+     */
+    public Color getPixel(int xIndex, int yIndex) {
+        return new Color(pixels.get(xIndex, yIndex, 0), pixels.get(xIndex, yIndex, 1),
+                pixels.get(xIndex, yIndex, 2));
     }
 
 }
@@ -0,0 +1,154 @@
+package renderer;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Out-of-core frame buffer in a temporary memory-mapped file, for images larger
+ * than the heap (e.g. gigapixel poster prints).<br/>
+ * The pixels are stored in square tiles of {@link #TILE_SIZE} pixels, tile by
+ * tile, so the pixels of a tile rendered by a worker are close together in the
+ * file: the operating system pages the tiles in while they are rendered and
+ * writes them out as the memory is needed, and the heap holds nothing of the
+ * image. The file is mapped in segments of whole tiles of up to
+ * {@link #SEGMENT_SIZE} bytes, as a single mapping is limited to 2GB.<br/>
+ * The temporary file is deleted as soon as it is mapped - its space is freed
+ * when the mappings are released. A frame buffer may also be mapped in a part of
+ * a persistent file (as in a {@link Checkpoint}) and forced to the disk.
+ */
+final class MappedFrameBuffer implements FrameBuffer {
+    /** Size (in pixels) of the side of a tile */
+    private static final int TILE_SIZE    = 64;
+    /** Amount of floats of a tile */
+    private static final int TILE_FLOATS  = TILE_SIZE * TILE_SIZE * 3;
+    /** Largest size of a mapped segment of the file */
+    private static final int SEGMENT_SIZE = 1 << 30;
+
+    /** Width of the image */
+    private final int           nX;
+    /** Amount of tiles in a row of tiles */
+    private final int           tileCols;
+    /** Amount of tiles in a segment */
+    private final int           segmentTiles;
+    /** The mapped segments of the file */
+    private final MappedByteBuffer[] mappings;
+    /** The mapped segments of the file, as floats */
+    private final FloatBuffer[] segments;
+
+    /**
+     * Maps the frame buffer of an image in a part of a file - the file is
+     * extended as needed, and the mapping stays valid after the channel is closed
+     *
+     * @param  nX          amount of pixels by width
+     * @param  nY          amount of pixels by height
+     * @param  channel     the channel of the file
+     * @param  position    the position of the frame buffer in the file
+     * @throws IOException if the file could not be mapped
+     */
+    MappedFrameBuffer(int nX, int nY, FileChannel channel, long position) throws IOException {
+        this.nX      = nX;
+        tileCols     = (nX + TILE_SIZE - 1) / TILE_SIZE;
+        long tiles   = (long) tileCols * ((nY + TILE_SIZE - 1) / TILE_SIZE);
+        segmentTiles = SEGMENT_SIZE / (TILE_FLOATS * 4);
+        int count    = (int) ((tiles + segmentTiles - 1) / segmentTiles);
+        mappings     = new MappedByteBuffer[count];
+        segments     = new FloatBuffer[count];
+        for (int segment = 0; segment < count; ++segment) {
+            long size = Math.min(segmentTiles, tiles - (long) segment * segmentTiles) * TILE_FLOATS * 4;
+            mappings[segment] = channel.map(FileChannel.MapMode.READ_WRITE,
+                                            position + (long) segment * segmentTiles * TILE_FLOATS * 4, size);
+            segments[segment] = mappings[segment].order(ByteOrder.nativeOrder()).asFloatBuffer();
+        }
+    }
+
+    /**
+     * Creates a temporary file for the frame buffer of an image and maps it
+     *
+     * @param  nX amount of pixels by width
+     * @param  nY amount of pixels by height
+     * @return    the frame buffer
+     * @throws IllegalStateException if the file could not be created
+     */
+    static MappedFrameBuffer temporary(int nX, int nY) throws IllegalStateException {
+        try {
+            Path path = Files.createTempFile("framebuffer", ".bin");
+            // the file is sparse - only the pages that are written take space
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                                                        StandardOpenOption.DELETE_ON_CLOSE)) {
+                return new MappedFrameBuffer(nX, nY, channel, 0);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot create the frame buffer file", e);
+        }
+    }
+
+    /**
+     * Forces the pixels written so far to the disk
+     */
+    void force() {
+        for (MappedByteBuffer mapping : mappings)
+            mapping.force();
+    }
+
+    /**
+     * Finds the segment of a pixel
+     *
+     * @param  x X axis index of the pixel
+     * @param  y Y axis index of the pixel
+     * @return   the segment
+     */
+    private FloatBuffer segment(int x, int y) {
+        long tile = (long) (y / TILE_SIZE) * tileCols + x / TILE_SIZE;
+        return segments[(int) (tile / segmentTiles)];
+    }
+
+    /**
+     * Finds the index of the red component of a pixel in its segment
+     *
+     * @param  x X axis index of the pixel
+     * @param  y Y axis index of the pixel
+     * @return   the index
+     */
+    private int index(int x, int y) {
+        long tile = (long) (y / TILE_SIZE) * tileCols + x / TILE_SIZE;
+        return (int) (tile % segmentTiles) * TILE_FLOATS + ((y % TILE_SIZE) * TILE_SIZE + x % TILE_SIZE) * 3;
+    }
+
+    @Override
+    public void set(int x, int y, float red, float green, float blue) {
+        FloatBuffer segment = segment(x, y);
+        int i = index(x, y);
+        segment.put(i, red);
+        segment.put(i + 1, green);
+        segment.put(i + 2, blue);
+    }
+
+    @Override
+    public void add(int x, int y, float red, float green, float blue) {
+        FloatBuffer segment = segment(x, y);
+        int i = index(x, y);
+        segment.put(i, segment.get(i) + red);
+        segment.put(i + 1, segment.get(i + 1) + green);
+        segment.put(i + 2, segment.get(i + 2) + blue);
+    }
+
+    @Override
+    public float get(int x, int y, int component) {
+        return segment(x, y).get(index(x, y) + component);
+    }
+
+    @Override
+    public void readRow(int y, float[] rgb, int offset) {
+        // the row is made of a run of pixels in every tile of its row of tiles
+        for (int x = 0; x < nX; x += TILE_SIZE) {
+            int length = Math.min(TILE_SIZE, nX - x) * 3;
+            segment(x, y).get(index(x, y), rgb, offset + x * 3, length);
+        }
+    }
+}
@@ -1,15 +1,31 @@
 package renderer;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
 /** PixelManager is a helper class. It is used for multi-threading in the
  * renderer and
  * for follow up its progress.<br/>
- * A Camera uses one pixel manager object and several Pixel objects - one in
- * each thread.
+ * A Camera uses one pixel manager object shared by all its rendering
+ * threads.<br/>
+ * The pixel manager never blocks the threads: the work (square tiles of
+ * pixels) is claimed by an atomic counter, the progress is summed in a
+ * striped counter, and only the thread that advances the last printed
+ * percentage prints it.
  * @author Dan Zilberstein */
 class PixelManager {
-    /** Immutable class for object containing allocated pixel (with its row and
-     * column numbers) */
-    record Pixel(int col, int row) {
+    /** Immutable class for object containing allocated rectangular tile of pixels
+     * @param fromCol first column of the tile (inclusive)
+     * @param fromRow first row of the tile (inclusive)
+     * @param toCol   last column of the tile (exclusive)
+     * @param toRow   last row of the tile (exclusive) */
+    record Tile(int fromCol, int fromRow, int toCol, int toRow) {
+        /** Amount of pixels in the tile
+         * @return the amount of pixels */
+        int pixels() {
+            return (toCol - fromCol) * (toRow - fromRow);
+        }
     }
 
     /** Maximum rows of pixels */
@@ -18,15 +34,25 @@ class PixelManager {
     private int                 maxCols       = 0;
     /** Total amount of pixels in the generated image */
     private long                totalPixels   = 0l;
+    /** Size (in pixels) of the side of a square tile */
+    private int                 tileSize      = 1;
+    /** Amount of tiles in a row of tiles */
+    private int                 tileCols      = 0;
+    /** Total amount of tiles in the generated image */
+    private int                 totalTiles    = 0;
+    /** Amount of finished tiles in every row of tiles */
+    private AtomicIntegerArray  finishedTiles;
+    /** Index of the next tile to be allocated, tiles are allocated row by row */
+    private final AtomicInteger nextTile      = new AtomicInteger();
 
-    /** Currently processed row of pixels */
-    private volatile int        cRow          = 0;
-    /** Currently processed column of pixels */
-    private volatile int        cCol          = -1;
     /** Amount of pixels that have been processed */
-    private volatile long       pixels        = 0l;
+    private final LongAdder     pixels        = new LongAdder();
+    /** Amount of primary rays traced so far */
+    private final LongAdder     samples       = new LongAdder();
     /** Last printed progress update percentage */
-    private volatile int        lastPrinted   = 0;
+    private final AtomicInteger lastPrinted   = new AtomicInteger();
+    /** Start time of the rendering in nanoseconds */
+    private final long          startTime     = System.nanoTime();
 
     /** Flag of debug printing of progress percentage */
     private boolean             print         = false;
@@ -34,74 +60,98 @@ class PixelManager {
     private long                printInterval = 100l;
     /** Printing format */
     private static final String PRINT_FORMAT  = "%5.1f%%\r";
-    /** Mutual exclusion object for synchronizing next pixel allocation between
-     * threads */
-    private Object              mutexNext     = new Object();
-    /** Mutual exclusion object for printing progress percentage in console window
-     * by different threads */
-    private Object              mutexPixels   = new Object();
 
-    /** Initialize pixel manager data for multi-threading
+    /** Initialize pixel manager data for multi-threading over square tiles of
+     * pixels
      * @param maxRows  the amount of pixel rows
      * @param maxCols  the amount of pixel columns
+     * @param tileSize the size (in pixels) of the side of a tile
      * @param interval print time interval in seconds, 0 if printing is not
      *                 required */
-    PixelManager(int maxRows, int maxCols, double interval) {
+    PixelManager(int maxRows, int maxCols, int tileSize, double interval) {
         this.maxRows  = maxRows;
         this.maxCols  = maxCols;
+        this.tileSize = tileSize;
         totalPixels   = (long) maxRows * maxCols;
+        tileCols      = (maxCols + tileSize - 1) / tileSize;
+        totalTiles    = tileCols * ((maxRows + tileSize - 1) / tileSize);
+        finishedTiles = new AtomicIntegerArray((maxRows + tileSize - 1) / tileSize);
         printInterval = (int) (interval * 10);
         if (print = printInterval != 0) System.out.printf(PRINT_FORMAT, 0d);
     }
 
-    /** Function for thread-safe manipulating of main follow up Pixel object - this
-     * function is critical section for all the threads, and the pixel manager data
-     * is the shared data of this critical section.<br/>
-     * The function provides next available pixel number each call.
-     * @return true if next pixel is allocated, false if there are no more pixels */
-    Pixel nextPixel() {
-        synchronized (mutexNext) {
-            // אומר שכל הפיקסלים עובדו אין יותר פיקסליים לעיבוד
-            if (cRow == maxRows) return null;
-// כדי לעבור לעמודה הבאה
-            ++cCol;
-            // זה אומר שיש יותר פיקסליים בשורה הנוכחית לעיבוד
-            if (cCol < maxCols)
-            // יוצר אוביקט חדש עם הערכיים הנוכחים ומחזיר אותו
-                return new Pixel(cRow, cCol);
-//כל הפיקסליים בשורה הנוכחית עובדו
-            cCol = 0;
-            // כדי לעבור לשורה הבאה
-            ++cRow;
-            ///יד עוד שורות לעיבוד
-            if (cRow < maxRows)
-                return new Pixel(cRow, cCol);
-            // אם אף אחד מהתנאים לא מתקיים זה אומר שכל השורות והעמודות עובדו
-        }
-        return null;
+    /** Function for lock-free allocation of the next tile to be rendered - each
+     * call atomically takes the following tile index, so the threads never wait
+     * for each other.
+     * @return the next tile, or null if there are no more tiles */
+    Tile nextTile() {
+        int index = nextTile.getAndIncrement();
+        if (index >= totalTiles) return null;
+        int fromCol = (index % tileCols) * tileSize;
+        int fromRow = (index / tileCols) * tileSize;
+        return new Tile(fromCol, fromRow, Math.min(fromCol + tileSize, maxCols),
+                        Math.min(fromRow + tileSize, maxRows));
     }
 
-    /** Finish pixel processing by updating and printing of progress percentage */
-    void pixelDone() {
-        boolean flag       = false;
-        int     percentage = 0;
-        //בלוק מסונכרן הוא מבטיח שרק שרשןור אחד יכול לגשת ולשנות משתנים משופים כמו פיקסלים
-        synchronized (mutexPixels) {
-            // ציון שהפיקסל עבר עיבוד
-            ++pixels;
-            // דגל ההדפבה דלוק מציין שהדפסת התקדמות מופעלת
-            if (print) {
-                //מחשב את אחוז ההתתקדמות הנוכחי על ידי חלוקת הפיקסלים בכמות הפיקסלים סהכ ןהכפלתם ב10000
-                percentage = (int) (1000l * pixels / totalPixels);
-                // בודק אם האחוז שחושב פחות אחוז  תנאי זה קובע אם יש להדפיס את ההתקדמות או לא
-                if (percentage - lastPrinted >= printInterval) {
-                   // מעדכן לאוחז המוכחי
-                    lastPrinted = percentage;
-                    flag        = true;
-                }
-            }
-            // מדפיס את אחוז ההתקדמות
-            if (flag) System.out.printf(PRINT_FORMAT, percentage / 10d);
-        }
+    /** Finish tile processing by updating and printing of progress percentage
+     * once for all the pixels of the tile
+     * @param  tile the finished tile
+     * @return      true if the tile is the last finished tile of its row of
+     *              tiles, so all the rows of pixels of the tile are complete */
+    boolean tileDone(Tile tile) {
+        pixelsDone(tile.pixels());
+        return finishedTiles.incrementAndGet(tile.fromRow() / tileSize) == tileCols;
+    }
+
+    /** Update and print progress percentage after processing several pixels.
+     * The threads do not wait for each other - if several threads pass the
+     * printing interval together, only the one that updates the last printed
+     * percentage prints it.
+     * @param count the amount of processed pixels */
+    private void pixelsDone(long count) {
+        pixels.add(count);
+        if (!print) return;
+        int percentage = (int) (1000l * pixels.sum() / totalPixels);
+        int last       = lastPrinted.get();
+        if (percentage - last >= printInterval && lastPrinted.compareAndSet(last, percentage))
+            System.out.printf(PRINT_FORMAT, percentage / 10d);
+    }
+
+    /** Count primary rays traced by the rendering
+     * @param count the amount of traced rays */
+    void samplesDone(long count) {
+        samples.add(count);
+    }
+
+    /** Average amount of primary rays traced per processed pixel
+     * @return the amount of rays per pixel, 0 if no pixel has been processed
+     *         yet */
+    double samplesPerPixel() {
+        long done = pixels.sum();
+        return done == 0 ? 0 : (double) samples.sum() / done;
+    }
+
+    /** Part of the pixels that have been processed so far
+     * @return the progress between 0 and 1 */
+    double progress() {
+        return totalPixels == 0 ? 1 : (double) pixels.sum() / totalPixels;
+    }
+
+    /** Average rendering rate since the pixel manager was created
+     * @return processed pixels per second */
+    double pixelsPerSecond() {
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        return seconds <= 0 ? 0 : pixels.sum() / seconds;
+    }
+
+    /** Estimated time left until all the pixels are processed, at the average
+     * rendering rate
+     * @return the estimated remaining time in seconds, infinity if no pixel has
+     *         been processed yet */
+    double etaSeconds() {
+        long done = pixels.sum();
+        if (done >= totalPixels) return 0;
+        double rate = pixelsPerSecond();
+        return rate == 0 ? Double.POSITIVE_INFINITY : (totalPixels - done) / rate;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,348 @@
+package renderer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/** PngEncoder is a helper class of the image writer. It encodes the image as
+ * an 8-bit RGB PNG file, compressing blocks of rows in parallel (as pigz
+ * does): every block is filtered and deflated by its own {@link Deflater} and
+ * ends on a byte boundary, so the compressed blocks are simply concatenated
+ * into one zlib stream, and their Adler-32 checksums are combined.<br/>
+ * A block is encoded in the background as soon as all its rows are reported
+ * complete, so most of the image may be encoded while the rest of it is still
+ * rendering. A pixel written into an already encoded block marks the block to
+ * be encoded again. The first row of a block is filtered without the last row
+ * of the block above it (by none or sub only), so a block depends on its own
+ * rows only and may be encoded before the blocks above it are complete.<br/>
+ * The file is written block by block as the blocks are encoded, and only
+ * {@link #WRITE_AHEAD} blocks are encoded ahead of the block being written, so
+ * writing an image not encoded in the background needs memory for a few blocks
+ * only, whatever the size of the image. */
+final class PngEncoder {
+    /** Raw (filtered) size of a block of rows to deflate by one task */
+    private static final int      BLOCK_SIZE = 1 << 18;
+    /** PNG file signature */
+    private static final byte[]   SIGNATURE  = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+    /** Largest prime smaller than 65536 - the modulus of Adler-32 */
+    private static final int      ADLER_BASE = 65521;
+
+    /** Amount of blocks encoded ahead of the block being written */
+    private static final int      WRITE_AHEAD = 2 * Runtime.getRuntime().availableProcessors();
+
+    /** Threads of the encoding of all the images - daemons, so they never keep
+     * the application alive */
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), r -> {
+                Thread thread = new Thread(r, "png-encoder");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /** Compressed block of rows
+     * @param data        the deflated rows
+     * @param length      the length of the deflated data in the array
+     * @param adler       the Adler-32 checksum of the raw (filtered) rows
+     * @param rawLength   the length of the raw rows
+     * @param crc         the CRC-32 of the IDAT chunk of the block */
+    private record Block(byte[] data, int length, long adler, int rawLength, long crc) {
+    }
+
+    /** The image */
+    private final ImageWriter                               image;
+    /** Amount of rows in a block */
+    private final int                                       blockRows;
+    /** Amount of blocks */
+    private final int                                       blocks;
+    /** Amount of rows of every block that were not reported complete yet */
+    private final AtomicIntegerArray                        remainingRows;
+    /** Encoding of every block, null for a block that was not started yet */
+    private final AtomicReferenceArray<Future<Block>>       encodings;
+    /** Flags of blocks written into after their encoding started (1 for a
+     * stale block) */
+    private final AtomicIntegerArray                        stale;
+    /** Gamma conversion table of the encoding, null for a linear conversion */
+    private final int[]                                     gammaTable;
+
+    /** Prepares the encoding of an image
+     * @param image      the image
+     * @param gammaTable the gamma conversion table of the image */
+    PngEncoder(ImageWriter image, int[] gammaTable) {
+        this.image      = image;
+        this.gammaTable = gammaTable;
+        int rowSize = 3 * image.getNx() + 1;
+        blockRows     = Math.max(1, BLOCK_SIZE / rowSize);
+        blocks        = (image.getNy() + blockRows - 1) / blockRows;
+        remainingRows = new AtomicIntegerArray(blocks);
+        for (int block = 0; block < blocks; ++block)
+            remainingRows.set(block, rowsOf(block));
+        encodings = new AtomicReferenceArray<>(blocks);
+        stale     = new AtomicIntegerArray(blocks);
+    }
+
+    /** Amount of rows in a block
+     * @param  block the block
+     * @return       the amount of rows */
+    private int rowsOf(int block) {
+        return Math.min(blockRows, image.getNy() - block * blockRows);
+    }
+
+    /** Reports rows of the image as complete - the blocks that become complete
+     * start encoding in the background
+     * @param fromRow the first complete row (inclusive)
+     * @param toRow   the last complete row (exclusive) */
+    void rowsCompleted(int fromRow, int toRow) {
+        while (fromRow < toRow) {
+            int block = fromRow / blockRows;
+            int end   = Math.min(toRow, (block + 1) * blockRows);
+            if (remainingRows.addAndGet(block, fromRow - end) == 0) startEncoding(block);
+            fromRow = end;
+        }
+    }
+
+    /** Reports a pixel written into the image - if its block was already
+     * encoded, it will be encoded again
+     * @param row the row of the pixel */
+    void pixelWritten(int row) {
+        int block = row / blockRows;
+        if (encodings.get(block) != null && stale.get(block) == 0) stale.set(block, 1);
+    }
+
+    /** Starts the encoding of a block in the background
+     * @param block the block */
+    private void startEncoding(int block) {
+        stale.set(block, 0);
+        encodings.set(block, EXECUTOR.submit(() -> encode(block)));
+    }
+
+    /** Encodes the image (waiting for the blocks being encoded in the
+     * background, and encoding the rest) and writes it to a file
+     * @param  path        the path of the file
+     * @throws IOException if the file cannot be written */
+    void write(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(channel);
+        }
+    }
+
+    /** Encodes the image and writes it to a file, block by block
+     * @param  channel     the channel of the file
+     * @throws IOException if the file cannot be written */
+    private void write(FileChannel channel) throws IOException {
+        List<ByteBuffer> buffers = new ArrayList<>();
+        buffers.add(ByteBuffer.wrap(SIGNATURE));
+        ByteBuffer header = ByteBuffer.allocate(13)
+                .putInt(image.getNx()).putInt(image.getNy())
+                .put((byte) 8)  // bit depth
+                .put((byte) 2)  // color type - RGB
+                .put((byte) 0)  // compression - deflate
+                .put((byte) 0)  // filter method - adaptive
+                .put((byte) 0); // interlace - none
+        addChunk(buffers, "IHDR", header.array());
+        // zlib header - deflate with a 32K window, default compression
+        addChunk(buffers, "IDAT", new byte[] { 0x78, (byte) 0x9C });
+
+        long adler = 1;
+        int  ahead = 0;
+        for (int block = 0; block < blocks; ++block) {
+            for (; ahead < blocks && ahead < block + WRITE_AHEAD; ++ahead)
+                if (encodings.get(ahead) == null || stale.get(ahead) != 0) startEncoding(ahead);
+            Block data = join(encodings.get(block));
+            // the encoder is written once, the written block is released
+            encodings.set(block, null);
+            buffers.add(ByteBuffer.allocate(8).putInt(data.length()).put(type("IDAT")).flip());
+            buffers.add(ByteBuffer.wrap(data.data(), 0, data.length()));
+            buffers.add(ByteBuffer.allocate(4).putInt((int) data.crc()).flip());
+            adler = adler32Combine(adler, data.adler(), data.rawLength());
+            writeBuffers(channel, buffers);
+        }
+        addChunk(buffers, "IDAT", ByteBuffer.allocate(4).putInt((int) adler).array());
+        addChunk(buffers, "IEND", new byte[0]);
+        writeBuffers(channel, buffers);
+    }
+
+    /** Writes buffers to a file and clears them
+     * @param  channel     the channel of the file
+     * @param  buffers     the buffers
+     * @throws IOException if the file cannot be written */
+    private static void writeBuffers(FileChannel channel, List<ByteBuffer> buffers) throws IOException {
+        ByteBuffer[] array = buffers.toArray(new ByteBuffer[0]);
+        ByteBuffer last = array[array.length - 1];
+        while (last.hasRemaining())
+            channel.write(array);
+        buffers.clear();
+    }
+
+    /** Waits for the encoding of a block
+     * @param  future the encoding
+     * @return        the encoded block */
+    private static Block join(Future<Block> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("image encoding was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("image encoding failed", e.getCause());
+        }
+    }
+
+    /** Filters and deflates a block of rows
+     * @param  block the block
+     * @return       the encoded block */
+    private Block encode(int block) {
+        int nX      = image.getNx();
+        int rowSize = 3 * nX;
+        int from    = block * blockRows;
+        int rows    = rowsOf(block);
+
+        byte[] previous = new byte[rowSize];
+        byte[] current  = new byte[rowSize];
+        float[] hdr     = new float[rowSize];
+        byte[] raw = new byte[rows * (rowSize + 1)];
+        for (int r = 0; r < rows; ++r) {
+            image.convertRow(from + r, current, 0, gammaTable, hdr);
+            filterRow(current, r == 0 ? null : previous, raw, r * (rowSize + 1));
+            byte[] swap = previous;
+            previous = current;
+            current  = swap;
+        }
+
+        Adler32 adler = new Adler32();
+        adler.update(raw);
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(raw);
+        // the last block ends the stream, the others end on a byte boundary
+        boolean last = block == blocks - 1;
+        if (last) deflater.finish();
+        byte[] data   = new byte[raw.length / 2 + 64];
+        int    length = 0;
+        while (true) {
+            if (length == data.length) data = java.util.Arrays.copyOf(data, data.length * 2);
+            int count = last
+                    ? deflater.deflate(data, length, data.length - length)
+                    : deflater.deflate(data, length, data.length - length, Deflater.SYNC_FLUSH);
+            length += count;
+            if (last ? deflater.finished() : length < data.length) break;
+        }
+        deflater.end();
+
+        CRC32 crc = new CRC32();
+        crc.update(type("IDAT"));
+        crc.update(data, 0, length);
+        return new Block(data, length, adler.getValue(), raw.length, crc.getValue());
+    }
+
+    /** Filters a row by the filter type (none, sub, up or Paeth) that gives
+     * the smallest sum of absolute values - the common heuristic of PNG
+     * encoders
+     * @param current  the row
+     * @param previous the previous row, null for the first row of a block -
+     *                 which is filtered by none or sub only, since the row
+     *                 above it belongs to another block
+     * @param out      the array of the filtered rows
+     * @param offset   index of the filter type byte of the row in the array */
+    private static void filterRow(byte[] current, byte[] previous, byte[] out, int offset) {
+        long none = 0, sub = 0, up = Long.MAX_VALUE, paeth = Long.MAX_VALUE;
+        if (previous == null)
+            for (int i = 0; i < current.length; ++i) {
+                int x = current[i] & 0xFF;
+                int a = i >= 3 ? current[i - 3] & 0xFF : 0;
+                none += Math.abs((byte) x);
+                sub  += Math.abs((byte) (x - a));
+            }
+        else {
+            up = paeth = 0;
+            for (int i = 0; i < current.length; ++i) {
+                int x = current[i] & 0xFF;
+                int a = i >= 3 ? current[i - 3] & 0xFF : 0;
+                int b = previous[i] & 0xFF;
+                int c = i >= 3 ? previous[i - 3] & 0xFF : 0;
+                none  += Math.abs((byte) x);
+                sub   += Math.abs((byte) (x - a));
+                up    += Math.abs((byte) (x - b));
+                paeth += Math.abs((byte) (x - paethPredictor(a, b, c)));
+            }
+        }
+        int type = 0;
+        long best = none;
+        if (sub < best) { type = 1; best = sub; }
+        if (up < best) { type = 2; best = up; }
+        if (paeth < best) type = 4;
+
+        out[offset++] = (byte) type;
+        for (int i = 0; i < current.length; ++i) {
+            int x = current[i] & 0xFF;
+            int a = i >= 3 ? current[i - 3] & 0xFF : 0;
+            out[offset + i] = (byte) switch (type) {
+                case 1 -> x - a;
+                case 2 -> x - (previous[i] & 0xFF);
+                case 4 -> x - paethPredictor(a, previous[i] & 0xFF, i >= 3 ? previous[i - 3] & 0xFF : 0);
+                default -> x;
+            };
+        }
+    }
+
+    /** The Paeth predictor of PNG - the neighbour nearest to a + b - c
+     * @param  a the left neighbour
+     * @param  b the upper neighbour
+     * @param  c the upper left neighbour
+     * @return   the predicted value */
+    private static int paethPredictor(int a, int b, int c) {
+        int p  = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+        return pa <= pb && pa <= pc ? a : pb <= pc ? b : c;
+    }
+
+    /** Combines the Adler-32 checksums of two consecutive sequences (as
+     * adler32_combine of zlib)
+     * @param  adler1  the checksum of the first sequence
+     * @param  adler2  the checksum of the second sequence
+     * @param  length2 the length of the second sequence
+     * @return         the checksum of the two sequences together */
+    static long adler32Combine(long adler1, long adler2, long length2) {
+        long rem  = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = rem * sum1 % ADLER_BASE;
+        sum1 += (adler2 & 0xFFFF) + ADLER_BASE - 1;
+        sum2 += ((adler1 >>> 16) & 0xFFFF) + ((adler2 >>> 16) & 0xFFFF) + ADLER_BASE - rem;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum2 >= 2L * ADLER_BASE) sum2 -= 2L * ADLER_BASE;
+        if (sum2 >= ADLER_BASE) sum2 -= ADLER_BASE;
+        return sum1 | sum2 << 16;
+    }
+
+    /** Adds a chunk to the buffers of the file
+     * @param buffers the buffers of the file
+     * @param type    the chunk type
+     * @param data    the chunk data */
+    private static void addChunk(List<ByteBuffer> buffers, String type, byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(type(type));
+        crc.update(data);
+        buffers.add(ByteBuffer.allocate(12 + data.length).putInt(data.length).put(type(type)).put(data)
+                .putInt((int) crc.getValue()).flip());
+    }
+
+    /** The bytes of a chunk type
+     * @param  type the chunk type
+     * @return      its four ASCII bytes */
+    private static byte[] type(String type) {
+        return type.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,251 @@
+package renderer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/** RawImageEncoder is a helper class of the image writer. It writes the image
+ * in the fast formats, which are (almost) not compressed - binary PPM (8-bit
+ * RGB), PFM (32-bit float RGB, the HDR colors) and QOI (8-bit RGB, the
+ * lossless "Quite OK Image" format, which compresses by a single cheap pass
+ * over the pixels).<br/>
+ * The file is written through a memory-mapped {@link FileChannel}: the rows are
+ * converted directly into the mapped file, in windows of rows of up to
+ * {@link #WINDOW_SIZE} bytes, so writing an image costs about as much as
+ * copying it. */
+final class RawImageEncoder {
+    /** Largest size of a mapped window of the file */
+    private static final int WINDOW_SIZE = 1 << 26;
+    /** Size of a chunk of the encoded QOI data */
+    private static final int CHUNK_SIZE  = 1 << 20;
+    /** QOI opcodes */
+    private static final int QOI_INDEX   = 0x00, QOI_DIFF = 0x40, QOI_LUMA = 0x80, QOI_RUN = 0xC0,
+            QOI_RGB = 0xFE;
+    /** Longest run of a single QOI_RUN opcode */
+    private static final int QOI_MAX_RUN = 62;
+    /** End marker of a QOI file */
+    private static final byte[] QOI_END  = { 0, 0, 0, 0, 0, 0, 0, 1 };
+
+    /** Writer of a row of the image into the mapped file */
+    @FunctionalInterface
+    private interface RowWriter {
+        /** Writes a row at the position of the buffer
+         * @param row    the row of the image
+         * @param buffer the mapped window of the file */
+        void write(int row, ByteBuffer buffer);
+    }
+
+    /** Don't let anyone instantiate this class */
+    private RawImageEncoder() {
+    }
+
+    /** Writes the image as a binary PPM (P6) file
+     * @param  image       the image
+     * @param  gammaTable  the gamma conversion table of the image, null for a
+     *                     linear conversion
+     * @param  path        the path of the file
+     * @throws IOException if the file could not be written */
+    static void writePpm(ImageWriter image, int[] gammaTable, Path path) throws IOException {
+        int nX = image.getNx();
+        byte[] rgb = new byte[3 * nX];
+        float[] hdr = new float[3 * nX];
+        writeMapped(path, header("P6\n" + nX + " " + image.getNy() + "\n255\n"), rgb.length, image.getNy(),
+                (row, buffer) -> {
+                    image.convertRow(row, rgb, 0, gammaTable, hdr);
+                    buffer.put(rgb);
+                });
+    }
+
+    /** Writes the image as a little-endian PFM file - the HDR colors of the
+     * pixels after exposure, where 1 is a full 8-bit component (255).<br/>
+     * The rows of a PFM file are stored from the bottom to the top.
+     * @param  image       the image
+     * @param  path        the path of the file
+     * @throws IOException if the file could not be written */
+    static void writePfm(ImageWriter image, Path path) throws IOException {
+        int nX = image.getNx(), nY = image.getNy();
+        float[] rgb = new float[3 * nX];
+        // a negative scale marks little-endian data
+        writeMapped(path, header("PF\n" + nX + " " + nY + "\n-1.0\n"), 4L * rgb.length, nY,
+                (row, buffer) -> {
+                    image.convertRow(nY - 1 - row, rgb, 0);
+                    buffer.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().put(rgb);
+                    buffer.position(buffer.position() + 4 * rgb.length);
+                });
+    }
+
+    /** Writes the image as a QOI file. The pixels are encoded into chunks in
+     * memory first, as the size of the file is unknown until then, and the
+     * chunks are copied into the mapped file.
+     * @param  image       the image
+     * @param  gammaTable  the gamma conversion table of the image, null for a
+     *                     linear conversion
+     * @param  path        the path of the file
+     * @throws IOException if the file could not be written */
+    static void writeQoi(ImageWriter image, int[] gammaTable, Path path) throws IOException {
+        int nX = image.getNx(), nY = image.getNy();
+        ChunkedOutput out = new ChunkedOutput();
+        // header - magic, width, height, 3 channels, sRGB
+        out.put(header("qoif"));
+        out.putInt(nX);
+        out.putInt(nY);
+        out.put(3);
+        out.put(0);
+
+        int[] index = new int[64];
+        byte[] rgb = new byte[3 * nX];
+        float[] hdr = new float[3 * nX];
+        // the previous pixel, packed as 0xRRGGBB, starts as opaque black
+        int previous = 0;
+        int run = 0;
+        for (int y = 0; y < nY; ++y) {
+            image.convertRow(y, rgb, 0, gammaTable, hdr);
+            for (int i = 0; i < rgb.length; i += 3) {
+                int r = rgb[i] & 0xFF, g = rgb[i + 1] & 0xFF, b = rgb[i + 2] & 0xFF;
+                int pixel = r << 16 | g << 8 | b;
+                if (pixel == previous) {
+                    if (++run == QOI_MAX_RUN) {
+                        out.put(QOI_RUN | run - 1);
+                        run = 0;
+                    }
+                    continue;
+                }
+                if (run > 0) {
+                    out.put(QOI_RUN | run - 1);
+                    run = 0;
+                }
+
+                // the alpha of all the pixels is 255
+                int hash = (r * 3 + g * 5 + b * 7 + 255 * 11) % 64;
+                if (index[hash] == (pixel | 0xFF000000))
+                    out.put(QOI_INDEX | hash);
+                else {
+                    index[hash] = pixel | 0xFF000000;
+                    int dr = (byte) (r - (previous >> 16 & 0xFF));
+                    int dg = (byte) (g - (previous >> 8 & 0xFF));
+                    int db = (byte) (b - (previous & 0xFF));
+                    int drg = dr - dg, dbg = db - dg;
+                    if (dr >= -2 && dr <= 1 && dg >= -2 && dg <= 1 && db >= -2 && db <= 1)
+                        out.put(QOI_DIFF | dr + 2 << 4 | dg + 2 << 2 | db + 2);
+                    else if (dg >= -32 && dg <= 31 && drg >= -8 && drg <= 7 && dbg >= -8 && dbg <= 7) {
+                        out.put(QOI_LUMA | dg + 32);
+                        out.put(drg + 8 << 4 | dbg + 8);
+                    } else {
+                        out.put(QOI_RGB);
+                        out.put(r);
+                        out.put(g);
+                        out.put(b);
+                    }
+                }
+                previous = pixel;
+            }
+        }
+        if (run > 0)
+            out.put(QOI_RUN | run - 1);
+        out.put(QOI_END);
+
+        try (FileChannel channel = open(path)) {
+            long position = 0;
+            int chunk = 0;
+            while (position < out.size) {
+                long length = Math.min(WINDOW_SIZE, out.size - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, length);
+                // the windows are multiples of the chunks
+                for (; buffer.hasRemaining(); ++chunk) {
+                    byte[] data = out.chunks.get(chunk);
+                    buffer.put(data, 0, (int) Math.min(data.length, out.size - (long) chunk * CHUNK_SIZE));
+                }
+                position += length;
+            }
+        }
+    }
+
+    /** Writes a file of a header and rows of equal size through mapped windows
+     * of the file
+     * @param  path        the path of the file
+     * @param  header      the header of the file
+     * @param  rowSize     the size of a row in the file
+     * @param  rows        the amount of rows
+     * @param  writer      the writer of the rows, in the order of the file
+     * @throws IOException if the file could not be written */
+    private static void writeMapped(Path path, byte[] header, long rowSize, int rows, RowWriter writer)
+            throws IOException {
+        int windowRows = (int) Math.max(1, Math.min(rows, WINDOW_SIZE / rowSize));
+        try (FileChannel channel = open(path)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    header.length + windowRows * rowSize);
+            buffer.put(header);
+            for (int row = 0; row < rows; ++row) {
+                if (!buffer.hasRemaining()) {
+                    long size = Math.min(windowRows, rows - row) * rowSize;
+                    buffer = channel.map(FileChannel.MapMode.READ_WRITE, header.length + row * rowSize, size);
+                }
+                writer.write(row, buffer);
+            }
+        }
+    }
+
+    /** Opens a file for writing through mapped windows, replacing its old content
+     * @param  path        the path of the file
+     * @return             the channel of the file
+     * @throws IOException if the file could not be opened */
+    private static FileChannel open(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /** Converts a text header to bytes
+     * @param  header the header
+     * @return        its ASCII bytes */
+    private static byte[] header(String header) {
+        return header.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /** Growing output of encoded data in chunks of {@link #CHUNK_SIZE} bytes, so
+     * the data may be larger than an array and is never copied while it grows */
+    private static final class ChunkedOutput {
+        /** The chunks, all of them full except for the last */
+        private final List<byte[]> chunks = new ArrayList<>();
+        /** The current chunk */
+        private byte[]             chunk;
+        /** Position in the current chunk */
+        private int                position = CHUNK_SIZE;
+        /** Size of the data */
+        private long               size;
+
+        /** Adds a byte
+         * @param b the byte (its low 8 bits) */
+        void put(int b) {
+            if (position == CHUNK_SIZE) {
+                chunk = new byte[CHUNK_SIZE];
+                chunks.add(chunk);
+                position = 0;
+            }
+            chunk[position++] = (byte) b;
+            ++size;
+        }
+
+        /** Adds bytes
+         * @param bytes the bytes */
+        void put(byte[] bytes) {
+            for (byte b : bytes)
+                put(b);
+        }
+
+        /** Adds a big-endian 32-bit integer
+         * @param value the integer */
+        void putInt(int value) {
+            put(value >>> 24);
+            put(value >>> 16);
+            put(value >>> 8);
+            put(value);
+        }
+    }
+}
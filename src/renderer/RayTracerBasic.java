@@ -6,10 +6,7 @@ import primitives.*;
 import scene.Scene;
 import geometries.Intersectable.GeoPoint;
 
-import java.util.List;
-
 import static primitives.Util.alignZero;
-import static primitives.Util.isZero;
 
 /**
  * A basic implementation of a RayTracer.
@@ -80,8 +77,8 @@ public class RayTracerBasic extends RayTracerBase {
     private Color calcLocalEffects(GeoPoint gp, Ray ray, Double3 k) throws IllegalArgumentException {
         Color color = gp.geometry.getEmission();
         Vector v = ray.getDir();
-        Vector n = gp.geometry.getNormal(gp.point);
-        double nv = alignZero(n.dotProduct(v));
+        Vector n = gp.getNormal();
+        double nv = gp.getCosine();
         if (nv == 0) {
             return color;
         }
@@ -143,7 +140,7 @@ public class RayTracerBasic extends RayTracerBase {
     private Color calcGlobalEffects(GeoPoint gp, Ray ray, int level, Double3 k) throws IllegalArgumentException {
         Color color = Color.BLACK;
         Vector v = ray.getDir();
-        Vector n = gp.geometry.getNormal(gp.point);
+        Vector n = gp.getNormal();
         Material material = gp.geometry.getMaterial();
         return calcColorGlobalEffect(constructReflectedRay(gp, v, n), level, k, material.kR)
                 .add(calcColorGlobalEffect(constructRefractedRay(gp, v, n), level, k, material.kT));
@@ -168,7 +165,7 @@ public class RayTracerBasic extends RayTracerBase {
         if (gp == null) {
             return scene.background.scale(kx);
         }
-        return isZero(gp.geometry.getNormal(gp.point).dotProduct(ray.getDir()))
+        return gp.getCosine() == 0
                 ? Color.BLACK : calcColor(gp, ray, level - 1, kkx).scale(kx);
     }
 
@@ -185,21 +182,8 @@ public class RayTracerBasic extends RayTracerBase {
     private Double3 transparency(GeoPoint geoPoint, LightSource lightSource, Vector l, Vector n) throws IllegalArgumentException {
         Vector lightDirection = l.scale(-1); // from point to light source
         Ray lightRay = new Ray(geoPoint.point, lightDirection, n);
-        List<GeoPoint> intersections = scene.geometries.findGeoIntersections(lightRay);
-
-        Double3 ktr = Double3.ONE;
-        if (intersections == null) {
-            return ktr;
-        }
-
-        double distance = lightSource.getDistance(geoPoint.point);
-
-        for (GeoPoint intersection : intersections) {
-            if (distance > intersection.point.distance(geoPoint.point)) {
-                ktr = ktr.product(intersection.geometry.getMaterial().kT);
-            }
-        }
-        return ktr;
+        // only the objects between the point and the light source cast a shadow
+        return scene.geometries.transmittance(lightRay, lightSource.getDistance(geoPoint.point));
     }
 
     /**
@@ -212,9 +196,9 @@ public class RayTracerBasic extends RayTracerBase {
      * @throws IllegalArgumentException if the viewer direction is not normalized
      */
     private Ray constructReflectedRay(GeoPoint gp, Vector v, Vector n) throws IllegalArgumentException {
-        double nv = alignZero(n.dotProduct(v));
+        double nv = gp.getCosine();
         Vector r = v.subtract(n.scale(nv * 2)).normalize();
-        return new Ray(gp.point, r, gp.geometry.getNormal(gp.point));
+        return new Ray(gp.point, r, n);
     }
 
     /**
@@ -227,21 +211,19 @@ public class RayTracerBasic extends RayTracerBase {
      * @throws IllegalArgumentException if the viewer direction is not normalized
      */
     private Ray constructRefractedRay(GeoPoint gp, Vector v, Vector n) throws IllegalArgumentException {
-        return new Ray(gp.point, v, gp.geometry.getNormal(gp.point));
+        return new Ray(gp.point, v, n);
     }
 
     /**
-     * Finds the closest intersection of the given ray with the objects in the scene.
+     * Finds the closest intersection of the given ray with the objects in the scene, oriented for the ray - the
+     * normal of the hit is calculated (if the intersector did not fill it) once, for all the shading.
      *
      * @param ray the ray to find the closest intersection for
      * @return the closest intersection point
      * @throws IllegalArgumentException if there is an error accessing the scene or objects in the scene
      */
     private GeoPoint findClosestIntersection(Ray ray) throws IllegalArgumentException {
-        List<GeoPoint> intersections = scene.geometries.findGeoIntersections(ray);
-        if (intersections == null) {
-            return null;
-        }
-        return ray.findClosestGeoPoint(intersections);
+        GeoPoint gp = scene.geometries.findClosestGeoIntersection(ray, Double.POSITIVE_INFINITY);
+        return gp == null ? null : gp.orient(ray);
     }
 }
@@ -0,0 +1,62 @@
+package renderer;
+
+/**
+ * A base class for the distributions of the super-sampling rays inside a pixel.<br/>
+ * The samples of a pixel depend only on the sampler and the pixel coordinates, so a rendering is
+ * deterministic and the threads share no random generator.
+ */
+public abstract class Sampler {
+    /**
+     * Generates the positions of the samples of a pixel, as offsets from the center of the pixel in pixel units -
+     * every offset is in the range [-0.5, 0.5).
+     *
+     * @param col the column of the pixel
+     * @param row the row of the pixel
+     * @param x   array to fill with the horizontal offsets (to the right), its length is the amount of samples
+     * @param y   array to fill with the vertical offsets (downwards), of the same length
+     */
+    public final void samplePixel(int col, int row, double[] x, double[] y) {
+        samplePixel(col, row, 0, x, y);
+    }
+
+    /**
+     * Generates the positions of one pass of samples of a pixel, for sampling a pixel progressively in several
+     * passes - every pass covers the whole pixel by itself, and differs from the other passes of the pixel.
+     * The offsets are from the center of the pixel in pixel units, every offset is in the range [-0.5, 0.5).
+     *
+     * @param col  the column of the pixel
+     * @param row  the row of the pixel
+     * @param pass the index of the pass, starting with 0
+     * @param x    array to fill with the horizontal offsets (to the right), its length is the amount of samples
+     * @param y    array to fill with the vertical offsets (downwards), of the same length
+     */
+    public abstract void samplePixel(int col, int row, int pass, double[] x, double[] y);
+
+    /**
+     * Returns a pseudo-random number of a pixel. The number is a hash of its arguments (the SplitMix64 finalizer),
+     * so the same arguments always give the same number.
+     *
+     * @param seed  the seed of the sampler
+     * @param col   the column of the pixel
+     * @param row   the row of the pixel
+     * @param index the index of the number in the pixel
+     * @return a number in the range [0, 1)
+     */
+    protected static double random(long seed, int col, int row, int index) {
+        long z = seed + 0x9E3779B97F4A7C15L * (((long) col << 32 ^ row) * 0x632BE59BD9B4E019L + index + 1);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (z >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Wraps a number in the range [0, 2) to the range [0, 1) - for shifting points of the pixel around its borders
+     *
+     * @param u the number
+     * @return the fraction part of the number
+     */
+    protected static double wrap(double u) {
+        return u >= 1 ? u - 1 : u;
+    }
+}
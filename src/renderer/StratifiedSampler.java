@@ -0,0 +1,50 @@
+package renderer;
+
+/**
+ * Stratified (jittered) sampler - the pixel is divided into as many cells of equal area as there are samples,
+ * and every sample is placed at random inside its own cell.<br/>
+ * The cells are arranged in rows of about the square root of the amount of samples, the rows get the same
+ * amount of cells (up to one) and the height of a row is proportional to its amount of cells, so an amount of
+ * samples that is not a square still gets equal cells.
+ */
+public class StratifiedSampler extends Sampler {
+    /**
+     * The seed of the random jitter
+     */
+    private final long seed;
+
+    /**
+     * Constructs a stratified sampler with the default seed
+     */
+    public StratifiedSampler() {
+        this(0);
+    }
+
+    /**
+     * Constructs a stratified sampler
+     *
+     * @param seed the seed of the random jitter
+     */
+    public StratifiedSampler(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public void samplePixel(int col, int row, int pass, double[] x, double[] y) {
+        int n = x.length;
+        // every pass jitters the cells by its own random numbers
+        int first = 2 * pass * n;
+        int rows = Math.max(1, (int) Math.round(Math.sqrt(n)));
+        int sample = 0;
+        double top = 0;
+        for (int r = 0; r < rows; ++r) {
+            int cells = n / rows + (r < n % rows ? 1 : 0);
+            double height = (double) cells / n;
+            for (int c = 0; c < cells; ++c, ++sample) {
+                x[sample] = (c + random(seed, col, row, first + 2 * sample)) / cells - 0.5;
+                y[sample] = top + random(seed, col, row, first + 2 * sample + 1) * height - 0.5;
+            }
+            top += height;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package renderer;
+
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+/** ViewPlaneGrid is a helper class of the camera. It holds the ray generation
+ * context of one resolution of the view plane, so that a primary ray is
+ * generated by a few multiply-adds on raw coordinates instead of building the
+ * view plane center and the pixel offsets as vectors for every ray.<br/>
+ * The directions are relative to the camera position: the direction of the
+ * ray through (col, row) is {@code center + col * right + row * down}.
+ * The object is immutable, so it is shared by all the rendering threads. */
+final class ViewPlaneGrid {
+    /** Resolution of the view plane - amount of columns */
+    final int           nX;
+    /** Resolution of the view plane - amount of rows */
+    final int           nY;
+
+    /** Camera position - the head of all the rays */
+    private final Point p0;
+    /** Direction from the camera to the center of the pixel (0, 0) */
+    private final double centerX, centerY, centerZ;
+    /** Step from a pixel center to the next one in its row (the width of a
+     * pixel along the right vector) */
+    private final double rightX, rightY, rightZ;
+    /** Step from a pixel center to the next one in its column (the height of a
+     * pixel along the opposite of the up vector) */
+    private final double downX, downY, downZ;
+
+    /** Constructs the ray generation context of a resolution
+     * @param p0       camera position
+     * @param vTo      camera forward direction (normalized)
+     * @param vUp      camera up direction (normalized)
+     * @param vRight   camera right direction (normalized)
+     * @param distance distance of the view plane from the camera
+     * @param width    width of the view plane
+     * @param height   height of the view plane
+     * @param nX       amount of columns
+     * @param nY       amount of rows */
+    ViewPlaneGrid(Point p0, Vector vTo, Vector vUp, Vector vRight, //
+                  double distance, double width, double height, int nX, int nY) {
+        this.nX = nX;
+        this.nY = nY;
+        this.p0 = p0;
+
+        // pixel ratios
+        double rX = width / nX;
+        double rY = height / nY;
+        rightX = vRight.getX() * rX;
+        rightY = vRight.getY() * rX;
+        rightZ = vRight.getZ() * rX;
+        downX = -vUp.getX() * rY;
+        downY = -vUp.getY() * rY;
+        downZ = -vUp.getZ() * rY;
+
+        // from the view plane center to the center of pixel (0, 0)
+        double x0 = -(nX - 1) / 2d;
+        double y0 = -(nY - 1) / 2d;
+        centerX = vTo.getX() * distance + x0 * rightX + y0 * downX;
+        centerY = vTo.getY() * distance + x0 * rightY + y0 * downY;
+        centerZ = vTo.getZ() * distance + x0 * rightZ + y0 * downZ;
+    }
+
+    /** Checks whether the context is of the given resolution
+     * @param  nX amount of columns
+     * @param  nY amount of rows
+     * @return    true if the resolution matches */
+    boolean isOf(int nX, int nY) {
+        return this.nX == nX && this.nY == nY;
+    }
+
+    /** Constructs the ray through a point of the view plane, given in pixel
+     * units - whole numbers are pixel centers, so (col + 0.5, row + 0.5) is the
+     * lower right corner of the pixel (col, row)
+     * @param  col column coordinate
+     * @param  row row coordinate
+     * @return     the ray from the camera through the point */
+    Ray constructRay(double col, double row) {
+        return new Ray(p0, //
+                centerX + col * rightX + row * downX, //
+                centerY + col * rightY + row * downY, //
+                centerZ + col * rightZ + row * downZ);
+    }
+}
@@ -0,0 +1,908 @@
+package scene;
+
+import geometries.TriangleMesh;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * MeshImporter reads triangle meshes from Wavefront OBJ and PLY files into a {@link TriangleMesh}.<br/>
+ * The file is memory-mapped and parsed in place by a byte scanner - no line or token is copied into a string.
+ * An OBJ file is split into chunks at line boundaries that are parsed in parallel, and the vertices and the
+ * indices of the chunks are concatenated directly into the buffers of the mesh. The vertices of a binary PLY
+ * file are fixed-size records, so they are converted in parallel ranges as well; its faces (variable-size lists)
+ * are read in a single pass.<br/>
+ * Only the positions of the vertices and the faces are read: texture coordinates, normals, materials, groups and
+ * any other PLY elements and properties are skipped. A face of more than three vertices is split into a fan of
+ * triangles.
+ */
+public final class MeshImporter {
+    /**
+     * Smallest chunk of an OBJ file (or range of PLY vertices, in bytes) parsed by a single task
+     */
+    private static final int MIN_CHUNK = 1 << 20;
+    /**
+     * Amount of processors - the file is split into a few chunks per processor, to balance the load
+     */
+    private static final int PROCESSORS = Runtime.getRuntime().availableProcessors();
+    /**
+     * Threads of the parsing of all the files - daemons, so they never keep the application alive
+     */
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(PROCESSORS, r -> {
+        Thread thread = new Thread(r, "mesh-importer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * Powers of ten that are exact doubles
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    /**
+     * Don't let anyone instantiate this class
+     */
+    private MeshImporter() {
+    }
+
+    /**
+     * Reads a mesh from a file by the extension of its name - ".obj" or ".ply"
+     *
+     * @param path the path of the file
+     * @return the mesh
+     * @throws IOException              if the file could not be read
+     * @throws IllegalArgumentException if the format of the file is unknown or the file is malformed
+     */
+    public static TriangleMesh load(Path path) throws IOException, IllegalArgumentException {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".obj"))
+            return loadObj(path);
+        if (name.endsWith(".ply"))
+            return loadPly(path);
+        throw new IllegalArgumentException("Unknown mesh format of " + path);
+    }
+
+    /**
+     * Reads a mesh from a Wavefront OBJ file - its "v" and "f" lines (with absolute or relative indices)
+     *
+     * @param path the path of the file
+     * @return the mesh
+     * @throws IOException              if the file could not be read
+     * @throws IllegalArgumentException if the file is malformed
+     */
+    public static TriangleMesh loadObj(Path path) throws IOException, IllegalArgumentException {
+        ByteBuffer buffer = map(path);
+        int size = buffer.limit();
+        int chunks = Math.max(1, Math.min(4 * PROCESSORS, size / MIN_CHUNK));
+
+        List<Future<ObjChunk>> futures = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; ++i) {
+            int from = (int) ((long) size * i / chunks);
+            int to = (int) ((long) size * (i + 1) / chunks);
+            futures.add(EXECUTOR.submit(() -> parseObjChunk(buffer, from, to)));
+        }
+
+        // concatenate the chunks - the indices of a chunk are relative to its own vertices only where the file
+        // refers to the vertices by negative (relative) indices
+        List<ObjChunk> parsed = join(futures);
+        int vertexCount = 0, indexCount = 0;
+        for (ObjChunk chunk : parsed) {
+            vertexCount += chunk.vertices.size;
+            indexCount += chunk.indices.size;
+        }
+        float[] vertices = new float[vertexCount];
+        int[] indices = new int[indexCount];
+        int vertexOffset = 0, indexOffset = 0;
+        for (ObjChunk chunk : parsed) {
+            System.arraycopy(chunk.vertices.values, 0, vertices, vertexOffset, chunk.vertices.size);
+            System.arraycopy(chunk.indices.values, 0, indices, indexOffset, chunk.indices.size);
+            for (int i = 0; i < chunk.relative.size; ++i)
+                indices[indexOffset + chunk.relative.values[i]] += vertexOffset / 3;
+            vertexOffset += chunk.vertices.size;
+            indexOffset += chunk.indices.size;
+        }
+        return new TriangleMesh(vertices, indices);
+    }
+
+    /**
+     * Parses the lines of an OBJ file that start in a range of bytes. A line that starts before the range
+     * and ends in it belongs to the former range.
+     *
+     * @param buffer the mapped file
+     * @param from   first byte of the range (inclusive)
+     * @param to     last byte of the range (exclusive)
+     * @return the vertices and the triangles of the range
+     * @throws IllegalArgumentException if the range is malformed
+     */
+    private static ObjChunk parseObjChunk(ByteBuffer buffer, int from, int to) throws IllegalArgumentException {
+        ObjChunk chunk = new ObjChunk((to - from) / 8);
+        ByteScanner scanner = new ByteScanner(buffer, from, buffer.limit());
+        if (from > 0 && buffer.get(from - 1) != '\n')
+            scanner.skipLine();
+
+        int[] face = new int[16];
+        boolean[] relative = new boolean[16];
+        while (scanner.position < to) {
+            scanner.skipSpaces();
+            if (scanner.atKeyword('v')) {
+                for (int i = 0; i < 3; ++i)
+                    chunk.vertices.add((float) scanner.nextDouble());
+            } else if (scanner.atKeyword('f')) {
+                int count = 0;
+                while (!scanner.atLineEnd()) {
+                    int index = (int) scanner.nextLong();
+                    if (index == 0)
+                        throw scanner.error("a vertex index of 0");
+                    if (count == face.length) {
+                        face = Arrays.copyOf(face, 2 * count);
+                        relative = Arrays.copyOf(relative, 2 * count);
+                    }
+                    // an absolute index is 1-based, a relative one is minus the amount of vertices back - it is
+                    // kept relative to the first vertex of the chunk (negative for a vertex of a former chunk)
+                    relative[count] = index < 0;
+                    face[count++] = index > 0 ? index - 1 : chunk.vertices.size / 3 + index;
+                    scanner.skipToken();
+                    scanner.skipSpaces();
+                }
+                if (count < 3)
+                    throw scanner.error("a face of less than 3 vertices");
+                for (int i = 1; i < count - 1; ++i) {
+                    addObjIndex(chunk, face[0], relative[0]);
+                    addObjIndex(chunk, face[i], relative[i]);
+                    addObjIndex(chunk, face[i + 1], relative[i + 1]);
+                }
+            }
+            scanner.skipLine();
+        }
+        return chunk;
+    }
+
+    /**
+     * Adds a vertex index of a triangle to a chunk of an OBJ file
+     *
+     * @param chunk    the chunk
+     * @param index    the index of the vertex
+     * @param relative true if the index is relative to the first vertex of the chunk, false if it is absolute
+     */
+    private static void addObjIndex(ObjChunk chunk, int index, boolean relative) {
+        if (relative)
+            chunk.relative.add(chunk.indices.size);
+        chunk.indices.add(index);
+    }
+
+    /**
+     * Reads a mesh from a PLY file - binary (of either byte order) or ASCII - by the coordinates "x", "y" and "z"
+     * of its "vertex" element and the "vertex_indices" (or "vertex_index") list of its "face" element
+     *
+     * @param path the path of the file
+     * @return the mesh
+     * @throws IOException              if the file could not be read
+     * @throws IllegalArgumentException if the file is malformed
+     */
+    public static TriangleMesh loadPly(Path path) throws IOException, IllegalArgumentException {
+        ByteBuffer buffer = map(path);
+        ByteScanner scanner = new ByteScanner(buffer, 0, buffer.limit());
+        if (!"ply".equals(scanner.nextWord()))
+            throw scanner.error("no PLY signature");
+        scanner.skipLine();
+
+        // the header
+        String format = null;
+        List<PlyElement> elements = new ArrayList<>();
+        for (String keyword; !"end_header".equals(keyword = scanner.nextWord()); scanner.skipLine()) {
+            switch (keyword) {
+                case "format" -> format = scanner.nextWord();
+                case "element" -> elements.add(new PlyElement(scanner.nextWord(), scanner.nextLong()));
+                case "property" -> {
+                    if (elements.isEmpty())
+                        throw scanner.error("a property out of an element");
+                    String type = scanner.nextWord();
+                    PlyType countType = null;
+                    if (type.equals("list")) {
+                        countType = PlyType.of(scanner.nextWord());
+                        type = scanner.nextWord();
+                    }
+                    elements.get(elements.size() - 1).properties
+                            .add(new PlyProperty(scanner.nextWord(), PlyType.of(type), countType));
+                }
+                case "comment", "obj_info" -> {
+                }
+                case "" -> {
+                    if (scanner.position >= scanner.limit)
+                        throw scanner.error("no end of the header");
+                }
+                default -> throw scanner.error("an unknown header keyword " + keyword);
+            }
+        }
+        scanner.skipLine();
+        if (format == null)
+            throw scanner.error("no format");
+
+        boolean ascii = format.equals("ascii");
+        if (!ascii) {
+            if (!format.startsWith("binary_"))
+                throw scanner.error("an unknown format " + format);
+            buffer.order(format.equals("binary_big_endian") ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+        }
+
+        float[] vertices = null;
+        IntList indices = null;
+        for (PlyElement element : elements) {
+            if (element.name.equals("vertex")) {
+                vertices = ascii ? readAsciiVertices(scanner, element) : readBinaryVertices(scanner, element);
+            } else if (element.name.equals("face")) {
+                indices = readFaces(scanner, element, ascii);
+            } else {
+                for (long i = 0; i < element.count; ++i)
+                    skipRecord(scanner, element, ascii);
+            }
+        }
+        if (vertices == null || indices == null)
+            throw scanner.error("no vertex or face element");
+        return new TriangleMesh(vertices, Arrays.copyOf(indices.values, indices.size));
+    }
+
+    /**
+     * Reads the coordinates of the vertices of a binary PLY file. A vertex of fixed-size properties is a
+     * fixed-size record, so ranges of the vertices are converted in parallel.
+     *
+     * @param scanner the scanner, at the first vertex - it is moved past the last one
+     * @param element the vertex element
+     * @return the coordinates of the vertices
+     * @throws IllegalArgumentException if the vertices are malformed
+     */
+    private static float[] readBinaryVertices(ByteScanner scanner, PlyElement element)
+            throws IllegalArgumentException {
+        int count = element.checkedCount(scanner);
+        int[] coordinates = new int[3];
+        PlyType[] types = new PlyType[3];
+        int stride = 0;
+        boolean fixed = true;
+        for (PlyProperty property : element.properties) {
+            int axis = "xyz".indexOf(property.name);
+            if (property.name.length() == 1 && axis >= 0) {
+                coordinates[axis] = stride;
+                types[axis] = property.type;
+            }
+            fixed &= property.countType == null;
+            stride += property.type.size;
+        }
+        if (types[0] == null || types[1] == null || types[2] == null)
+            throw scanner.error("a vertex without x, y and z");
+
+        float[] vertices = new float[3 * count];
+        if (!fixed) {
+            // variable-size vertices - read one after the other
+            for (int i = 0; i < count; ++i)
+                for (PlyProperty property : element.properties) {
+                    int position = scanner.position;
+                    skipProperty(scanner, property, false);
+                    int axis = "xyz".indexOf(property.name);
+                    if (property.name.length() == 1 && axis >= 0 && property.countType == null)
+                        vertices[3 * i + axis] = (float) property.type.read(scanner.buffer, position);
+                }
+            return vertices;
+        }
+
+        int from = scanner.position;
+        if ((long) count * stride > scanner.limit - from)
+            throw scanner.error("a truncated vertex element");
+        ByteBuffer buffer = scanner.buffer;
+        int ranges = (int) Math.max(1, Math.min(4 * PROCESSORS, (long) count * stride / MIN_CHUNK));
+        List<Future<Object>> futures = new ArrayList<>(ranges);
+        int recordSize = stride;
+        for (int r = 0; r < ranges; ++r) {
+            int first = (int) ((long) count * r / ranges), last = (int) ((long) count * (r + 1) / ranges);
+            futures.add(EXECUTOR.submit(() -> {
+                for (int i = first; i < last; ++i) {
+                    int record = from + i * recordSize;
+                    for (int axis = 0; axis < 3; ++axis)
+                        vertices[3 * i + axis] = (float) types[axis].read(buffer, record + coordinates[axis]);
+                }
+                return null;
+            }));
+        }
+        join(futures);
+        scanner.position = from + count * stride;
+        return vertices;
+    }
+
+    /**
+     * Reads the coordinates of the vertices of an ASCII PLY file
+     *
+     * @param scanner the scanner, at the first vertex - it is moved past the last one
+     * @param element the vertex element
+     * @return the coordinates of the vertices
+     * @throws IllegalArgumentException if the vertices are malformed
+     */
+    private static float[] readAsciiVertices(ByteScanner scanner, PlyElement element)
+            throws IllegalArgumentException {
+        int count = element.checkedCount(scanner);
+        float[] vertices = new float[3 * count];
+        for (int i = 0; i < count; ++i) {
+            for (PlyProperty property : element.properties) {
+                int axis = "xyz".indexOf(property.name);
+                if (property.name.length() == 1 && axis >= 0 && property.countType == null) {
+                    scanner.skipWhitespace();
+                    vertices[3 * i + axis] = (float) scanner.nextDouble();
+                } else
+                    skipProperty(scanner, property, true);
+            }
+        }
+        return vertices;
+    }
+
+    /**
+     * Reads the faces of a PLY file, split into triangles
+     *
+     * @param scanner the scanner, at the first face - it is moved past the last one
+     * @param element the face element
+     * @param ascii   true for an ASCII file, false for a binary one
+     * @return the vertex indices of the triangles
+     * @throws IllegalArgumentException if the faces are malformed
+     */
+    private static IntList readFaces(ByteScanner scanner, PlyElement element, boolean ascii)
+            throws IllegalArgumentException {
+        int count = element.checkedCount(scanner);
+        PlyProperty list = null;
+        for (PlyProperty property : element.properties)
+            if (property.countType != null
+                    && (property.name.equals("vertex_indices") || property.name.equals("vertex_index")))
+                list = property;
+        if (list == null)
+            throw scanner.error("a face without vertex indices");
+
+        IntList indices = new IntList(3 * count);
+        for (int i = 0; i < count; ++i) {
+            for (PlyProperty property : element.properties) {
+                if (property != list) {
+                    skipProperty(scanner, property, ascii);
+                    continue;
+                }
+                int vertices = (int) readInteger(scanner, property.countType, ascii);
+                if (vertices < 3)
+                    throw scanner.error("a face of less than 3 vertices");
+                int first = (int) readInteger(scanner, property.type, ascii);
+                int previous = (int) readInteger(scanner, property.type, ascii);
+                for (int v = 2; v < vertices; ++v) {
+                    int next = (int) readInteger(scanner, property.type, ascii);
+                    indices.add(first);
+                    indices.add(previous);
+                    indices.add(next);
+                    previous = next;
+                }
+            }
+        }
+        return indices;
+    }
+
+    /**
+     * Skips a record of an element
+     *
+     * @param scanner the scanner, at the record - it is moved past it
+     * @param element the element
+     * @param ascii   true for an ASCII file, false for a binary one
+     * @throws IllegalArgumentException if the record is malformed
+     */
+    private static void skipRecord(ByteScanner scanner, PlyElement element, boolean ascii)
+            throws IllegalArgumentException {
+        for (PlyProperty property : element.properties)
+            skipProperty(scanner, property, ascii);
+    }
+
+    /**
+     * Skips a property of a record
+     *
+     * @param scanner  the scanner, at the property - it is moved past it
+     * @param property the property
+     * @param ascii    true for an ASCII file, false for a binary one
+     * @throws IllegalArgumentException if the property is malformed
+     */
+    private static void skipProperty(ByteScanner scanner, PlyProperty property, boolean ascii)
+            throws IllegalArgumentException {
+        long items = property.countType == null ? 1 : readInteger(scanner, property.countType, ascii);
+        for (long i = 0; i < items; ++i)
+            if (ascii) {
+                scanner.skipWhitespace();
+                scanner.nextDouble();
+            } else
+                scanner.advance(property.type.size);
+    }
+
+    /**
+     * Reads an integer value of a PLY file
+     *
+     * @param scanner the scanner, at the value - it is moved past it
+     * @param type    the type of the value
+     * @param ascii   true for an ASCII file, false for a binary one
+     * @return the value
+     * @throws IllegalArgumentException if the value is malformed
+     */
+    private static long readInteger(ByteScanner scanner, PlyType type, boolean ascii)
+            throws IllegalArgumentException {
+        if (ascii) {
+            scanner.skipWhitespace();
+            return scanner.nextLong();
+        }
+        int position = scanner.position;
+        scanner.advance(type.size);
+        return (long) type.read(scanner.buffer, position);
+    }
+
+    /**
+     * Maps a file to the memory
+     *
+     * @param path the path of the file
+     * @return the mapped file
+     * @throws IOException              if the file could not be mapped
+     * @throws IllegalArgumentException if the file is too large to be mapped as a single buffer (2 GB)
+     */
+    private static MappedByteBuffer map(Path path) throws IOException, IllegalArgumentException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("The mesh file " + path + " is larger than 2 GB");
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Waits for parsing tasks
+     *
+     * @param futures the tasks
+     * @param <T>     the type of the results of the tasks
+     * @return the results of the tasks, in their order
+     * @throws IllegalArgumentException if a task found the file malformed
+     */
+    private static <T> List<T> join(List<Future<T>> futures) throws IllegalArgumentException {
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures)
+                results.add(future.get());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IllegalArgumentException cause)
+                throw cause;
+            throw new IllegalStateException("cannot parse the mesh file", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while parsing the mesh file", e);
+        }
+        return results;
+    }
+
+    /**
+     * Vertices and triangles of a chunk of an OBJ file
+     */
+    private static final class ObjChunk {
+        /**
+         * Coordinates of the vertices of the chunk
+         */
+        final FloatList vertices;
+        /**
+         * Vertex indices of the triangles of the chunk
+         */
+        final IntList indices;
+        /**
+         * Positions in {@link #indices} of the indices that are relative to the vertices of the chunk
+         * (the amount of vertices before the chunk is to be added to them)
+         */
+        final IntList relative = new IntList(16);
+
+        /**
+         * Constructs an empty chunk
+         *
+         * @param capacity initial capacity of the buffers
+         */
+        ObjChunk(int capacity) {
+            vertices = new FloatList(capacity);
+            indices = new IntList(capacity);
+        }
+    }
+
+    /**
+     * Growing array of floats
+     */
+    static final class FloatList {
+        /**
+         * The values, followed by free space
+         */
+        float[] values;
+        /**
+         * Amount of values
+         */
+        int size;
+
+        /**
+         * Constructs an empty array
+         *
+         * @param capacity initial capacity
+         */
+        FloatList(int capacity) {
+            values = new float[Math.max(capacity, 16)];
+        }
+
+        /**
+         * Adds a value
+         *
+         * @param value the value
+         */
+        void add(float value) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, 2 * size);
+            values[size++] = value;
+        }
+    }
+
+    /**
+     * Growing array of integers
+     */
+    static final class IntList {
+        /**
+         * The values, followed by free space
+         */
+        int[] values;
+        /**
+         * Amount of values
+         */
+        int size;
+
+        /**
+         * Constructs an empty array
+         *
+         * @param capacity initial capacity
+         */
+        IntList(int capacity) {
+            values = new int[Math.max(capacity, 16)];
+        }
+
+        /**
+         * Adds a value
+         *
+         * @param value the value
+         */
+        void add(int value) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, 2 * size);
+            values[size++] = value;
+        }
+    }
+
+    /**
+     * Scalar types of the properties of a PLY file
+     */
+    private enum PlyType {
+        INT8(1), UINT8(1), INT16(2), UINT16(2), INT32(4), UINT32(4), FLOAT32(4), FLOAT64(8);
+
+        /**
+         * Size of a binary value
+         */
+        final int size;
+
+        /**
+         * Constructs a type
+         *
+         * @param size size of a binary value
+         */
+        PlyType(int size) {
+            this.size = size;
+        }
+
+        /**
+         * Finds a type by its name in a PLY header - either its old name (e.g. "uchar") or its sized one ("uint8")
+         *
+         * @param name the name
+         * @return the type
+         * @throws IllegalArgumentException if there is no such type
+         */
+        static PlyType of(String name) throws IllegalArgumentException {
+            return switch (name) {
+                case "char", "int8" -> INT8;
+                case "uchar", "uint8" -> UINT8;
+                case "short", "int16" -> INT16;
+                case "ushort", "uint16" -> UINT16;
+                case "int", "int32" -> INT32;
+                case "uint", "uint32" -> UINT32;
+                case "float", "float32" -> FLOAT32;
+                case "double", "float64" -> FLOAT64;
+                default -> throw new IllegalArgumentException("Unknown PLY property type " + name);
+            };
+        }
+
+        /**
+         * Reads a binary value in the byte order of the buffer
+         *
+         * @param buffer   the buffer
+         * @param position position of the value in the buffer
+         * @return the value
+         */
+        double read(ByteBuffer buffer, int position) {
+            return switch (this) {
+                case INT8 -> buffer.get(position);
+                case UINT8 -> buffer.get(position) & 0xFF;
+                case INT16 -> buffer.getShort(position);
+                case UINT16 -> buffer.getShort(position) & 0xFFFF;
+                case INT32 -> buffer.getInt(position);
+                case UINT32 -> buffer.getInt(position) & 0xFFFFFFFFL;
+                case FLOAT32 -> buffer.getFloat(position);
+                case FLOAT64 -> buffer.getDouble(position);
+            };
+        }
+    }
+
+    /**
+     * A property of an element of a PLY file
+     *
+     * @param name      the name of the property
+     * @param type      the type of the property, or of the items of a list property
+     * @param countType the type of the amount of items of a list property, null for a scalar property
+     */
+    private record PlyProperty(String name, PlyType type, PlyType countType) {
+    }
+
+    /**
+     * An element of a PLY file
+     */
+    private static final class PlyElement {
+        /**
+         * The name of the element
+         */
+        final String name;
+        /**
+         * Amount of records of the element
+         */
+        final long count;
+        /**
+         * The properties of every record, in their order
+         */
+        final List<PlyProperty> properties = new ArrayList<>();
+
+        /**
+         * Constructs an element without properties
+         *
+         * @param name  the name of the element
+         * @param count amount of records of the element
+         */
+        PlyElement(String name, long count) {
+            this.name = name;
+            this.count = count;
+        }
+
+        /**
+         * Returns the amount of records of a vertex or face element, which must fit the buffers of a mesh
+         *
+         * @param scanner the scanner of the file, for the error message
+         * @return the amount of records
+         * @throws IllegalArgumentException if the amount is negative or too large
+         */
+        int checkedCount(ByteScanner scanner) throws IllegalArgumentException {
+            if (count < 0 || count > Integer.MAX_VALUE / 3)
+                throw scanner.error("an element " + name + " of " + count + " records");
+            return (int) count;
+        }
+    }
+
+    /**
+     * Scanner of the text of a mapped file. It reads numbers and keywords directly from the bytes of the buffer,
+     * by absolute positions, so it copies nothing and many scanners may share the buffer.
+     */
+    private static final class ByteScanner {
+        /**
+         * The mapped file
+         */
+        final ByteBuffer buffer;
+        /**
+         * End of the scanned bytes (exclusive)
+         */
+        final int limit;
+        /**
+         * Position of the next byte to scan
+         */
+        int position;
+
+        /**
+         * Constructs a scanner
+         *
+         * @param buffer   the mapped file
+         * @param position position of the first byte to scan
+         * @param limit    end of the scanned bytes (exclusive)
+         */
+        ByteScanner(ByteBuffer buffer, int position, int limit) {
+            this.buffer = buffer;
+            this.position = position;
+            this.limit = limit;
+        }
+
+        /**
+         * Creates an exception for malformed content at the position of the scanner
+         *
+         * @param what description of the malformed content
+         * @return the exception
+         */
+        IllegalArgumentException error(String what) {
+            return new IllegalArgumentException("Malformed mesh file: " + what + " at byte " + position);
+        }
+
+        /**
+         * Skips binary bytes
+         *
+         * @param bytes amount of bytes
+         * @throws IllegalArgumentException if the bytes are beyond the end
+         */
+        void advance(int bytes) throws IllegalArgumentException {
+            if (bytes > limit - position)
+                throw error("an unexpected end of the file");
+            position += bytes;
+        }
+
+        /**
+         * Skips spaces and tabs (and the carriage returns of Windows line ends)
+         */
+        void skipSpaces() {
+            while (position < limit) {
+                byte b = buffer.get(position);
+                if (b != ' ' && b != '\t' && b != '\r')
+                    return;
+                ++position;
+            }
+        }
+
+        /**
+         * Skips spaces, tabs and line ends - the separators of the values of an ASCII PLY file
+         */
+        void skipWhitespace() {
+            while (position < limit) {
+                byte b = buffer.get(position);
+                if (b != ' ' && b != '\t' && b != '\r' && b != '\n')
+                    return;
+                ++position;
+            }
+        }
+
+        /**
+         * Skips the rest of the current line, including its line feed
+         */
+        void skipLine() {
+            while (position < limit && buffer.get(position++) != '\n') {
+            }
+        }
+
+        /**
+         * Skips the rest of the current token - up to the next space or line end
+         */
+        void skipToken() {
+            while (position < limit) {
+                byte b = buffer.get(position);
+                if (b == ' ' || b == '\t' || b == '\r' || b == '\n')
+                    return;
+                ++position;
+            }
+        }
+
+        /**
+         * Checks whether the scanner is at the end of a line (after skipping spaces) - or a comment
+         *
+         * @return true if there is nothing more to read in the line
+         */
+        boolean atLineEnd() {
+            skipSpaces();
+            if (position >= limit)
+                return true;
+            byte b = buffer.get(position);
+            return b == '\n' || b == '#';
+        }
+
+        /**
+         * Checks whether a line starts with a single-letter keyword, and skips it if so
+         *
+         * @param keyword the keyword
+         * @return true if the line starts with the keyword followed by a space
+         */
+        boolean atKeyword(char keyword) {
+            if (limit - position < 2 || buffer.get(position) != keyword)
+                return false;
+            byte next = buffer.get(position + 1);
+            if (next != ' ' && next != '\t')
+                return false;
+            position += 2;
+            return true;
+        }
+
+        /**
+         * Reads the next word of the line - used for the few words of a header only
+         *
+         * @return the word, empty at the end of the line
+         */
+        String nextWord() {
+            skipSpaces();
+            int start = position;
+            skipToken();
+            StringBuilder word = new StringBuilder(position - start);
+            for (int i = start; i < position; ++i)
+                word.append((char) buffer.get(i));
+            return word.toString();
+        }
+
+        /**
+         * Reads the next (decimal) integer of the line
+         *
+         * @return the integer
+         * @throws IllegalArgumentException if there is no integer
+         */
+        long nextLong() throws IllegalArgumentException {
+            skipSpaces();
+            boolean negative = position < limit && buffer.get(position) == '-';
+            if (negative || position < limit && buffer.get(position) == '+')
+                ++position;
+            int start = position;
+            long value = 0;
+            for (byte b; position < limit && (b = buffer.get(position)) >= '0' && b <= '9'; ++position)
+                value = value * 10 + (b - '0');
+            if (position == start)
+                throw error("a missing integer");
+            return negative ? -value : value;
+        }
+
+        /**
+         * Reads the next decimal number of the line, with an optional fraction and exponent.
+         * The first 18 significant digits are accumulated exactly, and scaled by a power of ten once.
+         *
+         * @return the number
+         * @throws IllegalArgumentException if there is no number
+         */
+        double nextDouble() throws IllegalArgumentException {
+            skipSpaces();
+            boolean negative = position < limit && buffer.get(position) == '-';
+            if (negative || position < limit && buffer.get(position) == '+')
+                ++position;
+
+            long mantissa = 0;
+            int digits = 0, exponent = 0;
+            boolean any = false, fraction = false;
+            for (; position < limit; ++position) {
+                byte b = buffer.get(position);
+                if (b >= '0' && b <= '9') {
+                    any = true;
+                    if (digits < 18) {
+                        if (mantissa != 0 || b != '0')
+                            ++digits;
+                        mantissa = mantissa * 10 + (b - '0');
+                        if (fraction)
+                            --exponent;
+                    } else if (!fraction)
+                        ++exponent;
+                } else if (b == '.' && !fraction)
+                    fraction = true;
+                else
+                    break;
+            }
+            if (!any)
+                throw error("a missing number");
+
+            if (position < limit && (buffer.get(position) | 0x20) == 'e') {
+                ++position;
+                exponent += (int) nextLong();
+            }
+            double value = mantissa;
+            if (exponent < 0)
+                value = -exponent < POWERS_OF_TEN.length
+                        ? value / POWERS_OF_TEN[-exponent] : value * Math.pow(10, exponent);
+            else if (exponent > 0)
+                value = exponent < POWERS_OF_TEN.length
+                        ? value * POWERS_OF_TEN[exponent] : value * Math.pow(10, exponent);
+            return negative ? -value : value;
+        }
+    }
+}
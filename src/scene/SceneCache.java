@@ -0,0 +1,254 @@
+package scene;
+
+import geometries.CompiledBvh;
+import geometries.Geometries;
+import geometries.GeometryCodec;
+import geometries.Intersectable;
+import lighting.AmbientLight;
+import lighting.DirectionalLight;
+import lighting.LightSource;
+import lighting.PointLight;
+import lighting.SpotLight;
+import primitives.Color;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Vector;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * SceneCache saves a scene into a versioned binary file and loads it back, so a scene that takes long to build
+ * (parsing mesh files, building the bounding volume hierarchy) is built once and then loaded almost instantly.<br/>
+ * The file holds a header (a magic number and the version of the layout), the name, the background, the ambient
+ * light and the lights of the scene, and its geometries compiled into a {@link CompiledBvh} - with their
+ * materials and the whole hierarchy, written by a {@link GeometryCodec}. The file is loaded through a
+ * memory-mapped channel and the geometries are restored as they were saved: they are not validated again and the
+ * hierarchy is not rebuilt. A cache is therefore valid only for the version of the ray tracer that saved it.
+ */
+public final class SceneCache {
+    /**
+     * Magic number of a scene cache file - "RTSC"
+     */
+    private static final int MAGIC = 0x52545343;
+    /**
+     * Version of the file layout, raised on every change of the layout (or of the geometries)
+     */
+    private static final int VERSION = 1;
+
+    // tags of the kinds of the lights
+    private static final byte POINT_LIGHT = 0;
+    private static final byte SPOT_LIGHT = 1;
+    private static final byte DIRECTIONAL_LIGHT = 2;
+
+    /**
+     * Don't let anyone instantiate this class
+     */
+    private SceneCache() {
+    }
+
+    /**
+     * Saves a scene into a cache file. The geometries of the scene are compiled into a {@link CompiledBvh} unless
+     * they are compiled already; the scene itself is not changed.
+     * The file is written beside its final path and moved there when it is complete, so a failed save never
+     * leaves a partial cache.
+     *
+     * @param scene the scene
+     * @param path  the path of the file
+     * @throws IOException              if the file could not be written
+     * @throws IllegalArgumentException if the scene contains a light or a geometry of a kind the cache does not know
+     */
+    public static void save(Scene scene, Path path) throws IOException, IllegalArgumentException {
+        Geometries geometries = scene.geometries instanceof CompiledBvh ? scene.geometries
+                : new CompiledBvh(scene.geometries);
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary),
+                1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeBoolean(scene.name != null);
+            if (scene.name != null) {
+                byte[] name = scene.name.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(name.length);
+                out.write(name);
+            }
+            writeColor(out, scene.background);
+            writeColor(out, scene.ambientLight.getIntensity());
+
+            out.writeInt(scene.lights.size());
+            for (LightSource light : scene.lights)
+                writeLight(out, light);
+
+            new GeometryCodec().write(geometries, out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads a scene from a cache file
+     *
+     * @param path the path of the file
+     * @return the scene
+     * @throws IOException              if the file could not be read
+     * @throws IllegalArgumentException if the file is not a scene cache, it was saved by another version, or it is
+     *                                  truncated
+     */
+    public static Scene load(Path path) throws IOException, IllegalArgumentException {
+        ByteBuffer in;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("The scene cache " + path + " is larger than 2 GB");
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            if (in.getInt() != MAGIC)
+                throw new IllegalArgumentException(path + " is not a scene cache");
+            int version = in.getInt();
+            if (version != VERSION)
+                throw new IllegalArgumentException("The scene cache " + path + " is of version " + version
+                        + " instead of " + VERSION);
+
+            String name = null;
+            if (in.get() != 0) {
+                byte[] bytes = new byte[in.getInt()];
+                in.get(bytes);
+                name = new String(bytes, StandardCharsets.UTF_8);
+            }
+            Scene scene = new Scene(name)
+                    .setBackground(readColor(in))
+                    .setAmbientLight(new AmbientLight(readColor(in), Double3.ONE));
+            for (int i = in.getInt(); i > 0; --i)
+                scene.lights.add(readLight(in));
+
+            Intersectable geometries = new GeometryCodec().read(in);
+            if (!(geometries instanceof Geometries))
+                throw new IllegalArgumentException("The scene cache " + path + " has no geometries collection");
+            return scene.setGeometries((Geometries) geometries);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("The scene cache " + path + " is truncated", e);
+        }
+    }
+
+    /**
+     * Writes a light
+     *
+     * @param out   the stream to write into
+     * @param light the light
+     * @throws IOException              if the stream could not be written
+     * @throws IllegalArgumentException if the light is of an unknown kind
+     */
+    private static void writeLight(DataOutputStream out, LightSource light)
+            throws IOException, IllegalArgumentException {
+        Class<?> kind = light.getClass();
+        if (kind == PointLight.class || kind == SpotLight.class) {
+            PointLight point = (PointLight) light;
+            out.writeByte(kind == SpotLight.class ? SPOT_LIGHT : POINT_LIGHT);
+            writeColor(out, point.getIntensity());
+            writePoint(out, point.getPosition());
+            out.writeDouble(point.getkC());
+            out.writeDouble(point.getkL());
+            out.writeDouble(point.getkQ());
+            if (light instanceof SpotLight spot)
+                writePoint(out, spot.getDirection());
+        } else if (kind == DirectionalLight.class) {
+            DirectionalLight directional = (DirectionalLight) light;
+            out.writeByte(DIRECTIONAL_LIGHT);
+            writeColor(out, directional.getIntensity());
+            writePoint(out, directional.getDirection());
+        } else
+            throw new IllegalArgumentException("Cannot write a light of " + kind);
+    }
+
+    /**
+     * Reads a light
+     *
+     * @param in the buffer to read from
+     * @return the light
+     * @throws IllegalArgumentException if the light is of an unknown kind
+     */
+    private static LightSource readLight(ByteBuffer in) throws IllegalArgumentException {
+        byte kind = in.get();
+        return switch (kind) {
+            case POINT_LIGHT, SPOT_LIGHT -> {
+                Color intensity = readColor(in);
+                Point position = readPoint(in);
+                double kC = in.getDouble(), kL = in.getDouble(), kQ = in.getDouble();
+                PointLight light = kind == SPOT_LIGHT
+                        ? new SpotLight(intensity, position, readVector(in))
+                        : new PointLight(intensity, position);
+                yield light.setkC(kC).setkL(kL).setkQ(kQ);
+            }
+            case DIRECTIONAL_LIGHT -> new DirectionalLight(readColor(in), readVector(in));
+            default -> throw new IllegalArgumentException("Unknown kind of light " + kind);
+        };
+    }
+
+    /**
+     * Writes a color
+     *
+     * @param out   the stream to write into
+     * @param color the color
+     * @throws IOException if the stream could not be written
+     */
+    private static void writeColor(DataOutputStream out, Color color) throws IOException {
+        out.writeDouble(color.getRed());
+        out.writeDouble(color.getGreen());
+        out.writeDouble(color.getBlue());
+    }
+
+    /**
+     * Reads a color
+     *
+     * @param in the buffer to read from
+     * @return the color
+     */
+    private static Color readColor(ByteBuffer in) {
+        return new Color(in.getDouble(), in.getDouble(), in.getDouble());
+    }
+
+    /**
+     * Writes the coordinates of a point (or of a vector)
+     *
+     * @param out   the stream to write into
+     * @param point the point
+     * @throws IOException if the stream could not be written
+     */
+    private static void writePoint(DataOutputStream out, Point point) throws IOException {
+        out.writeDouble(point.getX());
+        out.writeDouble(point.getY());
+        out.writeDouble(point.getZ());
+    }
+
+    /**
+     * Reads a point
+     *
+     * @param in the buffer to read from
+     * @return the point
+     */
+    private static Point readPoint(ByteBuffer in) {
+        return new Point(in.getDouble(), in.getDouble(), in.getDouble());
+    }
+
+    /**
+     * Reads a vector
+     *
+     * @param in the buffer to read from
+     * @return the vector
+     */
+    private static Vector readVector(ByteBuffer in) {
+        return new Vector(in.getDouble(), in.getDouble(), in.getDouble());
+    }
+}
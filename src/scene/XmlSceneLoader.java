@@ -0,0 +1,611 @@
+package scene;
+
+import geometries.Cylinder;
+import geometries.Geometries;
+import geometries.Geometry;
+import geometries.Intersectable;
+import geometries.Plane;
+import geometries.Polygon;
+import geometries.Sphere;
+import geometries.Triangle;
+import geometries.TriangleMesh;
+import geometries.Tube;
+import lighting.AmbientLight;
+import lighting.DirectionalLight;
+import lighting.LightSource;
+import lighting.PointLight;
+import lighting.SpotLight;
+import primitives.Color;
+import primitives.Double3;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+import renderer.Camera;
+import renderer.ImageWriter;
+import renderer.RayTracerBasic;
+import scene.MeshImporter.FloatList;
+import scene.MeshImporter.IntList;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+/**
+ * XmlSceneLoader builds a scene (and optionally a camera) from an XML scene description file.
+ * The file is read by a streaming (StAX) parser, element after element, so no document tree is built - a file of
+ * millions of geometries takes no memory beyond the geometries themselves. The triangles of a mesh element go
+ * straight into the flat buffers of a {@link TriangleMesh}.<br/>
+ * The format extends the XML format of the course:
+ * <pre>
+ * &lt;scene name="..." background="r g b"&gt;
+ *   &lt;ambient-light color="r g b" k="ka"/&gt;
+ *   &lt;camera position="x y z" to="x y z" up="x y z" distance="d" size="width height"
+ *           image="name" resolution="nX nY" threads="n" samples="n"/&gt;
+ *   &lt;materials&gt;
+ *     &lt;material id="..." kd="k" ks="k" shininess="n" kr="k" kt="k"/&gt;
+ *   &lt;/materials&gt;
+ *   &lt;lights&gt;
+ *     &lt;point-light color="r g b" position="x y z" kc="k" kl="k" kq="k"/&gt;
+ *     &lt;spot-light color="r g b" position="x y z" direction="x y z" kc="k" kl="k" kq="k"/&gt;
+ *     &lt;directional-light color="r g b" direction="x y z"/&gt;
+ *   &lt;/lights&gt;
+ *   &lt;geometries&gt;
+ *     &lt;sphere center="x y z" radius="r"/&gt;
+ *     &lt;triangle p0="x y z" p1="x y z" p2="x y z"/&gt;
+ *     &lt;polygon vertices="x y z x y z x y z ..."/&gt;
+ *     &lt;plane point="x y z" normal="x y z"/&gt;
+ *     &lt;tube origin="x y z" direction="x y z" radius="r"/&gt;
+ *     &lt;cylinder origin="x y z" direction="x y z" radius="r" height="h"/&gt;
+ *     &lt;mesh file="model.obj"/&gt;
+ *     &lt;mesh&gt;
+ *       &lt;vertex&gt;x y z&lt;/vertex&gt;... &lt;face&gt;i j k ...&lt;/face&gt;... &lt;triangle .../&gt;...
+ *     &lt;/mesh&gt;
+ *     &lt;geometries&gt; ... &lt;/geometries&gt;
+ *   &lt;/geometries&gt;
+ * &lt;/scene&gt;
+ * </pre>
+ * All the elements and attributes are optional except for the attributes of the geometries and the lights, and the
+ * "to" and "up" directions of the camera. Every coefficient ("k", "kd", "kc"...) is a single number or a triad.
+ * Every geometry may have an "emission" color, and either a "material" attribute - the id of a material of the
+ * materials element - or the coefficients of its own material. The faces of a mesh refer to its vertex elements by
+ * zero-based indices, and a face of more than three vertices is split into a fan of triangles; a mesh file
+ * (".obj" or ".ply", read by {@link MeshImporter}) is relative to the scene file.<br/>
+ * The geometries are kept in the collections of the file; to render a large scene, compile them into a
+ * bounding volume hierarchy ({@link geometries.CompiledBvh}).
+ */
+public final class XmlSceneLoader {
+    /**
+     * The path of the scene file
+     */
+    private final Path path;
+    /**
+     * The loaded scene
+     */
+    private final Scene scene = new Scene(null);
+    /**
+     * The loaded camera, null if the file has no camera
+     */
+    private Camera camera;
+    /**
+     * The materials of the file by their ids
+     */
+    private final Map<String, Material> materials = new HashMap<>();
+    /**
+     * The parser, at the element being read
+     */
+    private XMLStreamReader reader;
+
+    /**
+     * Loads a scene file
+     *
+     * @param path the path of the file
+     * @throws IOException              if the file (or a mesh file it refers to) could not be read
+     * @throws IllegalArgumentException if the file is malformed - the message tells the line of the error
+     */
+    public XmlSceneLoader(Path path) throws IOException, IllegalArgumentException {
+        this.path = path;
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path), 1 << 16)) {
+            reader = factory.createXMLStreamReader(in);
+            try {
+                readScene();
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Scene file " + path + ", line "
+                        + reader.getLocation().getLineNumber() + ": " + e.getMessage(), e);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException("Malformed scene file " + path + ": " + e.getMessage(), e);
+        }
+        if (camera != null)
+            camera.setRayTracer(new RayTracerBasic(scene));
+    }
+
+    /**
+     * Returns the loaded scene
+     *
+     * @return the scene
+     */
+    public Scene getScene() {
+        return scene;
+    }
+
+    /**
+     * Returns the loaded camera, with a basic ray tracer of the scene
+     *
+     * @return the camera, or null if the file has no camera
+     */
+    public Camera getCamera() {
+        return camera;
+    }
+
+    /**
+     * Reads the scene element
+     *
+     * @throws IOException              if a mesh file could not be read
+     * @throws XMLStreamException       if the file is not well-formed
+     * @throws IllegalArgumentException if the scene is malformed
+     */
+    private void readScene() throws IOException, XMLStreamException, IllegalArgumentException {
+        if (reader.nextTag() != START_ELEMENT || !reader.getLocalName().equals("scene"))
+            throw new IllegalArgumentException("The root element should be a scene");
+        scene.name = attribute("name");
+        if (attribute("background") != null)
+            scene.setBackground(color("background"));
+
+        while (nextChild())
+            switch (reader.getLocalName()) {
+                case "ambient-light" -> {
+                    scene.setAmbientLight(new AmbientLight(color("color"), triad("k", Double3.ONE)));
+                    endElement();
+                }
+                case "camera" -> readCamera();
+                case "materials" -> {
+                    while (nextChild()) {
+                        if (!reader.getLocalName().equals("material"))
+                            throw unknownElement();
+                        String id = required("id");
+                        materials.put(id, ownMaterial());
+                        endElement();
+                    }
+                }
+                case "lights" -> {
+                    while (nextChild())
+                        scene.lights.add(readLight());
+                }
+                case "geometries" -> scene.geometries.add(readGeometries());
+                default -> throw unknownElement();
+            }
+    }
+
+    /**
+     * Reads the camera element
+     *
+     * @throws XMLStreamException       if the file is not well-formed
+     * @throws IllegalArgumentException if the camera is malformed
+     */
+    private void readCamera() throws XMLStreamException, IllegalArgumentException {
+        Point position = attribute("position") == null ? new Point(0, 0, 0) : point("position");
+        camera = new Camera(position, vector("up"), vector("to"));
+        if (attribute("distance") != null)
+            camera.setVPDistance(number("distance"));
+        if (attribute("size") != null) {
+            double[] size = numbers("size", 2);
+            camera.setVPSize(size[0], size[1]);
+        }
+        if (attribute("image") != null) {
+            double[] resolution = numbers("resolution", 2);
+            camera.setImageWriter(new ImageWriter(attribute("image"), integer(resolution[0]),
+                    integer(resolution[1])));
+        }
+        if (attribute("threads") != null)
+            camera.setThreadsCount(integer(number("threads")));
+        if (attribute("samples") != null)
+            camera.setNss(integer(number("samples")));
+        endElement();
+    }
+
+    /**
+     * Reads a light element
+     *
+     * @return the light
+     * @throws XMLStreamException       if the file is not well-formed
+     * @throws IllegalArgumentException if the light is malformed
+     */
+    private LightSource readLight() throws XMLStreamException, IllegalArgumentException {
+        LightSource light = switch (reader.getLocalName()) {
+            case "point-light" -> attenuation(new PointLight(color("color"), point("position")));
+            case "spot-light" -> attenuation(new SpotLight(color("color"), point("position"), vector("direction")));
+            case "directional-light" -> new DirectionalLight(color("color"), vector("direction"));
+            default -> throw unknownElement();
+        };
+        endElement();
+        return light;
+    }
+
+    /**
+     * Sets the attenuation factors of a point light from the attributes of its element
+     *
+     * @param light the light
+     * @return the light
+     * @throws IllegalArgumentException if a factor is malformed
+     */
+    private PointLight attenuation(PointLight light) throws IllegalArgumentException {
+        if (attribute("kc") != null)
+            light.setkC(number("kc"));
+        if (attribute("kl") != null)
+            light.setkL(number("kl"));
+        if (attribute("kq") != null)
+            light.setkQ(number("kq"));
+        return light;
+    }
+
+    /**
+     * Reads the geometries of a geometries element
+     *
+     * @return the geometries
+     * @throws IOException              if a mesh file could not be read
+     * @throws XMLStreamException       if the file is not well-formed
+     * @throws IllegalArgumentException if a geometry is malformed
+     */
+    private Intersectable[] readGeometries() throws IOException, XMLStreamException, IllegalArgumentException {
+        List<Intersectable> geometries = new ArrayList<>();
+        while (nextChild())
+            geometries.add(readGeometry());
+        return geometries.toArray(new Intersectable[0]);
+    }
+
+    /**
+     * Reads a geometry element
+     *
+     * @return the geometry
+     * @throws IOException              if a mesh file could not be read
+     * @throws XMLStreamException       if the file is not well-formed
+     * @throws IllegalArgumentException if the geometry is malformed
+     */
+    private Intersectable readGeometry() throws IOException, XMLStreamException, IllegalArgumentException {
+        return switch (reader.getLocalName()) {
+            case "geometries" -> new Geometries(readGeometries());
+            case "sphere" -> leaf(new Sphere(number("radius"), point("center")));
+            case "triangle" -> leaf(new Triangle(point("p0"), point("p1"), point("p2")));
+            case "polygon" -> {
+                double[] coordinates = numbers("vertices", -1);
+                if (coordinates.length % 3 != 0)
+                    throw new IllegalArgumentException("The vertices should be triads of coordinates");
+                Point[] vertices = new Point[coordinates.length / 3];
+                for (int i = 0; i < vertices.length; ++i)
+                    vertices[i] = new Point(coordinates[i * 3], coordinates[i * 3 + 1], coordinates[i * 3 + 2]);
+                yield leaf(new Polygon(vertices));
+            }
+            case "plane" -> leaf(new Plane(point("point"), vector("normal")));
+            case "tube" -> leaf(new Tube(number("radius"), new Ray(point("origin"), vector("direction"))));
+            case "cylinder" -> leaf(new Cylinder(new Ray(point("origin"), vector("direction")), number("radius"),
+                    number("height")));
+            case "mesh" -> readMesh();
+            default -> throw unknownElement();
+        };
+    }
+
+    /**
+     * Finishes a geometry element without children - sets the emission and the material of its attributes
+     *
+     * @param geometry the geometry of the element
+     * @return the geometry
+     * @throws XMLStreamException       if the file is not well-formed
+     * @throws IllegalArgumentException if the emission or the material is malformed
+     */
+    private Geometry leaf(Geometry geometry) throws XMLStreamException, IllegalArgumentException {
+        appearance(geometry, attribute("emission") == null ? null : color("emission"), material());
+        endElement();
+        return geometry;
+    }
+
+    /**
+     * Sets the emission and the material of a geometry
+     *
+     * @param geometry the geometry
+     * @param emission the emission, null for the default one
+     * @param material the material, null for the default one
+     * @return the geometry
+     */
+    private static Geometry appearance(Geometry geometry, Color emission, Material material) {
+        if (emission != null)
+            geometry.setEmission(emission);
+        if (material != null)
+            geometry.setMaterial(material);
+        return geometry;
+    }
+
+    /**
+     * Reads a mesh element - from its mesh file, or from its vertex, face and triangle children
+     *
+     * @return the mesh
+     * @throws IOException              if the mesh file could not be read
+     * @throws XMLStreamException       if the file is not well-formed
+     * @throws IllegalArgumentException if the mesh is malformed
+     */
+    private Geometry readMesh() throws IOException, XMLStreamException, IllegalArgumentException {
+        Color emission = attribute("emission") == null ? null : color("emission");
+        Material material = material();
+        String file = attribute("file");
+        if (file != null) {
+            endElement();
+            return appearance(MeshImporter.load(path.resolveSibling(file)), emission, material);
+        }
+
+        FloatList vertices = new FloatList(1024);
+        IntList indices = new IntList(1024);
+        while (nextChild())
+            switch (reader.getLocalName()) {
+                case "vertex" -> {
+                    double[] vertex = numbers("vertex", reader.getElementText(), 3);
+                    for (double coordinate : vertex)
+                        vertices.add((float) coordinate);
+                }
+                case "face" -> {
+                    double[] face = numbers("face", reader.getElementText(), -1);
+                    if (face.length < 3)
+                        throw new IllegalArgumentException("A face should have at least three vertices");
+                    for (int i = 2; i < face.length; ++i) {
+                        indices.add(integer(face[0]));
+                        indices.add(integer(face[i - 1]));
+                        indices.add(integer(face[i]));
+                    }
+                }
+                case "triangle" -> {
+                    int first = vertices.size / 3;
+                    for (String name : new String[]{"p0", "p1", "p2"}) {
+                        Point vertex = point(name);
+                        vertices.add((float) vertex.getX());
+                        vertices.add((float) vertex.getY());
+                        vertices.add((float) vertex.getZ());
+                    }
+                    indices.add(first);
+                    indices.add(first + 1);
+                    indices.add(first + 2);
+                    endElement();
+                }
+                default -> throw unknownElement();
+            }
+        return appearance(new TriangleMesh(Arrays.copyOf(vertices.values, vertices.size),
+                Arrays.copyOf(indices.values, indices.size)), emission, material);
+    }
+
+    /**
+     * Finds the material of the current geometry element - a material of the file by the "material" attribute,
+     * or its own material
+     *
+     * @return the material, or null if the element has no material attributes
+     * @throws IllegalArgumentException if the material is unknown or malformed
+     */
+    private Material material() throws IllegalArgumentException {
+        String id = attribute("material");
+        if (id != null) {
+            Material material = materials.get(id);
+            if (material == null)
+                throw new IllegalArgumentException("Unknown material " + id);
+            return material;
+        }
+        for (String name : new String[]{"kd", "ks", "shininess", "kr", "kt"})
+            if (attribute(name) != null)
+                return ownMaterial();
+        return null;
+    }
+
+    /**
+     * Creates a material of the coefficients of the current element
+     *
+     * @return the material
+     * @throws IllegalArgumentException if a coefficient is malformed
+     */
+    private Material ownMaterial() throws IllegalArgumentException {
+        Material material = new Material()
+                .setkD(triad("kd", Double3.ZERO))
+                .setkS(triad("ks", Double3.ZERO))
+                .setkR(triad("kr", Double3.ZERO))
+                .setkT(triad("kt", Double3.ZERO));
+        if (attribute("shininess") != null)
+            material.setnShininess(integer(number("shininess")));
+        return material;
+    }
+
+    /**
+     * Moves to the next child of the current element
+     *
+     * @return true if the parser is at the start of the next child, false if it is at the end of the element
+     * @throws XMLStreamException if the file is not well-formed, or the element contains text
+     */
+    private boolean nextChild() throws XMLStreamException {
+        return reader.nextTag() == START_ELEMENT;
+    }
+
+    /**
+     * Moves to the end of the current element, which should have no children
+     *
+     * @throws XMLStreamException       if the file is not well-formed, or the element contains text
+     * @throws IllegalArgumentException if the element has a child
+     */
+    private void endElement() throws XMLStreamException, IllegalArgumentException {
+        if (nextChild())
+            throw unknownElement();
+    }
+
+    /**
+     * Creates the exception of an unexpected element
+     *
+     * @return the exception
+     */
+    private IllegalArgumentException unknownElement() {
+        return new IllegalArgumentException("Unexpected element <" + reader.getLocalName() + ">");
+    }
+
+    /**
+     * Returns an attribute of the current element
+     *
+     * @param name the name of the attribute
+     * @return the value of the attribute, or null if the element has no such attribute
+     */
+    private String attribute(String name) {
+        return reader.getAttributeValue(null, name);
+    }
+
+    /**
+     * Returns a required attribute of the current element
+     *
+     * @param name the name of the attribute
+     * @return the value of the attribute
+     * @throws IllegalArgumentException if the element has no such attribute
+     */
+    private String required(String name) throws IllegalArgumentException {
+        String value = attribute(name);
+        if (value == null)
+            throw new IllegalArgumentException("<" + reader.getLocalName() + "> has no " + name + " attribute");
+        return value;
+    }
+
+    /**
+     * Parses a numeric attribute of the current element
+     *
+     * @param name the name of the attribute
+     * @return the number
+     * @throws IllegalArgumentException if the attribute is missing or malformed
+     */
+    private double number(String name) throws IllegalArgumentException {
+        return numbers(name, 1)[0];
+    }
+
+    /**
+     * Parses a point attribute of the current element
+     *
+     * @param name the name of the attribute
+     * @return the point
+     * @throws IllegalArgumentException if the attribute is missing or malformed
+     */
+    private Point point(String name) throws IllegalArgumentException {
+        double[] xyz = numbers(name, 3);
+        return new Point(xyz[0], xyz[1], xyz[2]);
+    }
+
+    /**
+     * Parses a vector attribute of the current element
+     *
+     * @param name the name of the attribute
+     * @return the vector
+     * @throws IllegalArgumentException if the attribute is missing or malformed, or the vector is zero
+     */
+    private Vector vector(String name) throws IllegalArgumentException {
+        double[] xyz = numbers(name, 3);
+        return new Vector(xyz[0], xyz[1], xyz[2]);
+    }
+
+    /**
+     * Parses a color attribute of the current element
+     *
+     * @param name the name of the attribute
+     * @return the color
+     * @throws IllegalArgumentException if the attribute is missing or malformed
+     */
+    private Color color(String name) throws IllegalArgumentException {
+        double[] rgb = numbers(name, 3);
+        return new Color(rgb[0], rgb[1], rgb[2]);
+    }
+
+    /**
+     * Parses a coefficient attribute of the current element - a single number or a triad
+     *
+     * @param name         the name of the attribute
+     * @param defaultValue the value of a missing attribute
+     * @return the coefficient
+     * @throws IllegalArgumentException if the attribute is malformed
+     */
+    private Double3 triad(String name, Double3 defaultValue) throws IllegalArgumentException {
+        String value = attribute(name);
+        if (value == null)
+            return defaultValue;
+        double[] k = numbers(name, value, -1);
+        if (k.length == 1)
+            return new Double3(k[0]);
+        if (k.length == 3)
+            return new Double3(k[0], k[1], k[2]);
+        throw new IllegalArgumentException("The " + name + " attribute should be one or three numbers");
+    }
+
+    /**
+     * Parses the numbers of a required attribute of the current element
+     *
+     * @param name  the name of the attribute
+     * @param count the amount of the numbers, -1 for any amount
+     * @return the numbers
+     * @throws IllegalArgumentException if the attribute is missing, a number is malformed, or the amount of the
+     *                                  numbers is wrong
+     */
+    private double[] numbers(String name, int count) throws IllegalArgumentException {
+        return numbers(name, required(name), count);
+    }
+
+    /**
+     * Parses numbers separated by white space
+     *
+     * @param name  the name of the attribute (or element) of the numbers
+     * @param text  the numbers
+     * @param count the amount of the numbers, -1 for any amount
+     * @return the numbers
+     * @throws IllegalArgumentException if a number is malformed, or the amount of the numbers is wrong
+     */
+    private static double[] numbers(String name, String text, int count) throws IllegalArgumentException {
+        double[] result = new double[count < 0 ? 8 : count];
+        int size = 0;
+        int length = text.length();
+        for (int i = 0; ; ) {
+            while (i < length && Character.isWhitespace(text.charAt(i)))
+                ++i;
+            if (i == length)
+                break;
+            int start = i;
+            while (i < length && !Character.isWhitespace(text.charAt(i)))
+                ++i;
+            if (size == result.length) {
+                if (count >= 0)
+                    throw new IllegalArgumentException(name + " should be " + count + " numbers");
+                result = Arrays.copyOf(result, 2 * size);
+            }
+            try {
+                result[size++] = Double.parseDouble(text.substring(start, i));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(name + " has a malformed number " + text.substring(start, i));
+            }
+        }
+        if (count >= 0 && size != count)
+            throw new IllegalArgumentException(name + " should be " + count + " numbers");
+        return count < 0 ? Arrays.copyOf(result, size) : result;
+    }
+
+    /**
+     * Converts a parsed number to an integer
+     *
+     * @param number the number
+     * @return the integer
+     * @throws IllegalArgumentException if the number is not an integer
+     */
+    private static int integer(double number) throws IllegalArgumentException {
+        if (number != (int) number)
+            throw new IllegalArgumentException(number + " should be an integer");
+        return (int) number;
+    }
+}
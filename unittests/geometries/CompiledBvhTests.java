@@ -0,0 +1,127 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link CompiledBvh} class
+ */
+class CompiledBvhTests {
+
+    /**
+     * Creates a grid of small triangles, spheres and cylinders in front of a plane
+     *
+     * @return the geometries of the grid
+     */
+    private Geometries createGrid() throws IllegalArgumentException {
+        Geometries grid = new Geometries(new Plane(new Point(0, 0, -10), new Vector(0, 0, 1)));
+        for (int i = -5; i < 5; ++i)
+            for (int j = -5; j < 5; ++j)
+                switch ((i + j + 10) % 3) {
+                    case 0 -> grid.add(new Triangle(new Point(i, j, -i - j), new Point(i + 0.9, j, -i - j),
+                            new Point(i, j + 0.9, -i - j)));
+                    case 1 -> grid.add(new Geometries(new Sphere(0.4, new Point(i + 0.5, j + 0.5, i - j))));
+                    default -> grid.add(new Cylinder(new Ray(new Point(i + 0.5, j + 0.5, j), new Vector(1, 1, 1)),
+                            0.3, 0.5));
+                }
+        return grid;
+    }
+
+    /**
+     * Test method for {@link CompiledBvh#findGeoIntersectionsHelper(Ray, double)}
+     */
+    @Test
+    void testFindIntersections() throws IllegalArgumentException {
+        Geometries flat = createGrid();
+        CompiledBvh bvh = new CompiledBvh(createGrid());
+        Point p0 = new Point(0.3, 0.2, 20);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the compiled hierarchy finds the same intersections as the flat collection
+        for (int i = -12; i <= 12; ++i)
+            for (int j = -12; j <= 12; ++j) {
+                Ray ray = new Ray(p0, new Vector(i * 0.4, j * 0.4, -20));
+                List<Point> expected = flat.findIntersections(ray);
+                List<Point> result = bvh.findIntersections(ray);
+                assertEquals(expected.size(), result.size(), "TC01: wrong number of intersections");
+                assertTrue(result.containsAll(expected), "TC01: wrong intersection points");
+            }
+
+        // TC02: max distance cuts the intersections beyond it
+        Ray ray = new Ray(new Point(20, 20, 0), new Vector(0, 0, -1));
+        assertNull(bvh.findGeoIntersections(ray, 5), "TC02: intersection beyond max distance");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: empty collection
+        assertNull(new CompiledBvh(new Geometries()).findIntersections(ray), "TC11: empty collection has intersections");
+        // TC12: single bounded geometry - the hierarchy gets its bounding box
+        CompiledBvh single = new CompiledBvh(new Geometries(new Sphere(1, new Point(20, 20, -5))));
+        assertNotNull(single.box, "TC12: no bounding box");
+        assertEquals(2, single.findIntersections(ray).size(), "TC12: wrong number of intersections");
+        // TC13: the compiled hierarchy is immutable
+        assertThrows(UnsupportedOperationException.class, () -> single.add(new Sphere(1, new Point(0, 0, 0))),
+                "TC13: compiled hierarchy accepted a geometry");
+    }
+
+    /**
+     * Test method for {@link CompiledBvh#findClosestGeoIntersectionHelper(Ray, double)}
+     */
+    @Test
+    void testFindClosestGeoIntersection() throws IllegalArgumentException {
+        Geometries flat = createGrid();
+        CompiledBvh bvh = new CompiledBvh(createGrid());
+        Point p0 = new Point(0.3, 0.2, 20);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the compiled hierarchy finds the same closest intersection as the flat collection
+        for (int i = -12; i <= 12; ++i)
+            for (int j = -12; j <= 12; ++j) {
+                Ray ray = new Ray(p0, new Vector(i * 0.4, j * 0.4, -20));
+                Intersectable.GeoPoint expected = ray.findClosestGeoPoint(flat.findGeoIntersections(ray));
+                Intersectable.GeoPoint result = bvh.findClosestGeoIntersection(ray, Double.POSITIVE_INFINITY);
+                assertEquals(expected.point, result.point, "TC01: wrong closest point");
+                assertEquals(expected.geometry.getClass(), result.geometry.getClass(), "TC01: wrong closest geometry");
+            }
+
+        // TC02: max distance cuts the intersections beyond it
+        Ray ray = new Ray(new Point(20, 20, 0), new Vector(0, 0, -1));
+        assertNull(bvh.findClosestGeoIntersection(ray, 5), "TC02: intersection beyond max distance");
+        assertEquals(10, bvh.findClosestGeoIntersection(ray, 10).t, 1e-10, "TC02: wrong distance");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: empty collection
+        assertNull(new CompiledBvh(new Geometries()).findClosestGeoIntersection(ray, Double.POSITIVE_INFINITY),
+                "TC11: empty collection has intersections");
+    }
+
+    /**
+     * Test method for {@link CompiledBvh#transmittanceHelper(Ray, double)}
+     */
+    @Test
+    void testTransmittance() throws IllegalArgumentException {
+        Geometries flat = createGrid();
+        CompiledBvh bvh = new CompiledBvh(createGrid());
+        Point p0 = new Point(0.3, 0.2, 20);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the compiled hierarchy is blocked wherever the flat collection is blocked
+        for (int i = -12; i <= 12; ++i)
+            for (int j = -12; j <= 12; ++j) {
+                Ray ray = new Ray(p0, new Vector(i * 0.4, j * 0.4, -20));
+                for (double distance : new double[]{5, 20, 40})
+                    assertEquals(flat.occluded(ray, distance), bvh.occluded(ray, distance),
+                            "TC01: wrong occlusion");
+            }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: empty collection
+        Ray ray = new Ray(p0, new Vector(0, 0, -1));
+        assertFalse(new CompiledBvh(new Geometries()).occluded(ray, 100), "TC11: empty collection blocks the ray");
+    }
+}
@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 import primitives.*;
 
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -114,5 +115,146 @@ class GeometriesTest {
 
     }
 
+    /**
+     * Creates a grid of small triangles and spheres in front of a plane
+     *
+     * @return the geometries of the grid
+     */
+    private Geometries createGrid() {
+        Geometries grid = new Geometries(new Plane(new Point(0, 0, -10), new Vector(0, 0, 1)));
+        for (int i = -5; i < 5; ++i)
+            for (int j = -5; j < 5; ++j)
+                if ((i + j) % 2 == 0)
+                    grid.add(new Triangle(new Point(i, j, -i - j), new Point(i + 0.9, j, -i - j),
+                            new Point(i, j + 0.9, -i - j)));
+                else
+                    grid.add(new Geometries(new Sphere(0.4, new Point(i + 0.5, j + 0.5, i - j))));
+        return grid;
+    }
+
+    /**
+     * Test method for {@link Geometries#buildBvh()}
+     */
+    @Test
+    void testBuildBvh() throws IllegalArgumentException {
+        Geometries flat = createGrid();
+        Geometries bvh = createGrid().buildBvh();
+        Point p0 = new Point(0.3, 0.2, 20);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the hierarchy finds the same intersections as the flat collection
+        for (int i = -12; i <= 12; ++i)
+            for (int j = -12; j <= 12; ++j) {
+                Ray ray = new Ray(p0, new Vector(i * 0.4, j * 0.4, -20));
+                List<Point> expected = flat.findIntersections(ray);
+                List<Point> result = bvh.findIntersections(ray);
+                assertEquals(expected.size(), result.size(), "TC01: wrong number of intersections");
+                assertTrue(result.containsAll(expected), "TC01: wrong intersection points");
+            }
+
+        // TC02: a ray that misses all the bounded geometries hits only the plane
+        Ray ray = new Ray(new Point(20, 20, 0), new Vector(0, 0, -1));
+        assertEquals(List.of(new Point(20, 20, -10)), bvh.findIntersections(ray), "TC02: wrong intersections");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: empty collection
+        assertNull(new Geometries().buildBvh().findIntersections(ray), "TC11: empty collection has intersections");
+        // TC12: single geometry
+        Geometries single = new Geometries(new Sphere(1, new Point(20, 20, -5))).buildBvh();
+        assertEquals(2, single.findIntersections(ray).size(), "TC12: wrong number of intersections");
+    }
+
+    /**
+     * Test method for {@link Geometries#findClosestGeoIntersectionHelper(Ray, double)}
+     */
+    @Test
+    void testFindClosestGeoIntersection() throws IllegalArgumentException {
+        Geometries flat = createGrid();
+        Geometries bvh = createGrid().buildBvh();
+        Point p0 = new Point(0.3, 0.2, 20);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the closest intersection is the closest of all the intersections, in the flat collection and
+        // in the hierarchy
+        for (int i = -12; i <= 12; ++i)
+            for (int j = -12; j <= 12; ++j) {
+                Ray ray = new Ray(p0, new Vector(i * 0.4, j * 0.4, -20));
+                Intersectable.GeoPoint expected = ray.findClosestGeoPoint(flat.findGeoIntersections(ray));
+                Intersectable.GeoPoint result = flat.findClosestGeoIntersection(ray, Double.POSITIVE_INFINITY);
+                assertEquals(expected.point, result.point, "TC01: wrong closest point");
+                assertEquals(expected.point.distance(p0), result.t, 1e-10, "TC01: wrong distance");
+                assertEquals(expected.point, bvh.findClosestGeoIntersection(ray, Double.POSITIVE_INFINITY).point,
+                        "TC01: wrong closest point in the hierarchy");
+            }
+
+        // TC02: max distance cuts the intersections beyond it
+        Ray ray = new Ray(new Point(20, 20, 0), new Vector(0, 0, -1));
+        assertNull(bvh.findClosestGeoIntersection(ray, 5), "TC02: intersection beyond max distance");
+
+        // TC03: the hierarchy and the compiled hierarchy of many small random triangles find the same closest
+        // intersections as the flat collection
+        Random random = new Random(1);
+        Intersectable[] triangles = new Intersectable[5000];
+        for (int i = 0; i < triangles.length; ++i) {
+            Point p = new Point(random.nextDouble() * 100 - 50, random.nextDouble() * 100 - 50,
+                    random.nextDouble() * 100 - 50);
+            triangles[i] = new Triangle(p, p.add(new Vector(1, random.nextDouble(), 0)),
+                    p.add(new Vector(0, random.nextDouble(), 1)));
+        }
+        Geometries scattered = new Geometries(triangles);
+        Geometries scatteredBvh = new Geometries(triangles).buildBvh();
+        CompiledBvh compiled = new CompiledBvh(scattered);
+        Point origin = new Point(0, 0, 200);
+        int hits = 0;
+        for (int i = 0; i < 500; ++i) {
+            Ray cast = new Ray(origin,
+                    new Vector(random.nextDouble() * 100 - 50, random.nextDouble() * 100 - 50, -200));
+            Intersectable.GeoPoint expected = scattered.findClosestGeoIntersection(cast, Double.POSITIVE_INFINITY);
+            Intersectable.GeoPoint inBvh = scatteredBvh.findClosestGeoIntersection(cast, Double.POSITIVE_INFINITY);
+            Intersectable.GeoPoint inCompiled = compiled.findClosestGeoIntersection(cast, Double.POSITIVE_INFINITY);
+            if (expected == null) {
+                assertNull(inBvh, "TC03: an intersection in the hierarchy of a ray that misses");
+                assertNull(inCompiled, "TC03: an intersection in the compiled hierarchy of a ray that misses");
+                continue;
+            }
+            ++hits;
+            assertEquals(expected.point, inBvh.point, "TC03: wrong closest point in the hierarchy");
+            assertEquals(expected.point, inCompiled.point, "TC03: wrong closest point in the compiled hierarchy");
+        }
+        assertTrue(hits > 50, "TC03: too few rays hit the triangles");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: empty collection
+        assertNull(new Geometries().findClosestGeoIntersection(ray, Double.POSITIVE_INFINITY),
+                "TC11: empty collection has intersections");
+    }
 
+    /**
+     * Test method for {@link Geometries#transmittanceHelper(Ray, double)}
+     */
+    @Test
+    void testTransmittance() throws IllegalArgumentException {
+        Geometry glass = new Triangle(new Point(-1, -1, 1), new Point(1, -1, 1), new Point(0, 1, 1))
+                .setMaterial(new Material().setkT(0.5));
+        Geometry wall = new Plane(new Point(0, 0, 3), new Vector(0, 0, 1));
+        Geometries scene = new Geometries(glass, wall);
+        Ray ray = new Ray(new Point(0, 0, 0), new Vector(0, 0, 1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the light is before all the objects
+        assertEquals(Double3.ONE, scene.transmittance(ray, 0.5), "TC01: nothing should block the ray");
+        assertFalse(scene.occluded(ray, 0.5), "TC01: nothing should block the ray");
+        // TC02: the light is between the transparent and the opaque objects
+        assertEquals(new Double3(0.5), scene.transmittance(ray, 2), "TC02: wrong transmittance");
+        // TC03: the light is behind the opaque object
+        assertEquals(Double3.ZERO, scene.transmittance(ray, 5), "TC03: opaque object should block the ray");
+        assertTrue(scene.occluded(ray, 5), "TC03: opaque object should block the ray");
+        // TC04: two transparent intersections of a sphere
+        Geometries bubble = new Geometries(new Sphere(1, new Point(0, 0, 5)).setMaterial(new Material().setkT(0.5)));
+        assertEquals(new Double3(0.25), bubble.transmittance(ray, 10), "TC04: wrong transmittance");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: empty collection
+        assertEquals(Double3.ONE, new Geometries().transmittance(ray, 10), "TC11: empty collection blocks the ray");
+    }
 }
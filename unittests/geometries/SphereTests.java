@@ -107,4 +107,36 @@ class SphereTests {
         List<Point>numPoint6=sphere4.findIntersections(new Ray(new Point(1,2,0),new Vector(0.5,2,0)));
         assertNull(numPoint6,"Ray's line is outside, ray is orthogonal to ray start to sphere's center line");
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link geometries.Sphere#findClosestGeoIntersectionHelper(Ray, double)}.
+     */
+    @Test
+    void testFindClosestGeoIntersection() throws IllegalArgumentException {
+        Sphere sphere = new Sphere(1, new Point(1, 0, 0));
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray starts before the sphere - the nearer of the two points
+        Intersectable.GeoPoint gp = sphere.findClosestGeoIntersection(new Ray(new Point(-1, 0, 0), new Vector(1, 0, 0)),
+                Double.POSITIVE_INFINITY);
+        assertEquals(new Point(0, 0, 0), gp.point, "TC01: wrong closest point");
+        assertEquals(1, gp.t, 1e-10, "TC01: wrong distance");
+        // TC02: Ray starts inside the sphere - the point in front of the ray origin
+        gp = sphere.findClosestGeoIntersection(new Ray(new Point(0.5, 0, 0), new Vector(1, 0, 0)), Double.POSITIVE_INFINITY);
+        assertEquals(new Point(2, 0, 0), gp.point, "TC02: wrong closest point");
+        assertEquals(1.5, gp.t, 1e-10, "TC02: wrong distance");
+        // TC03: the nearer point is beyond the max distance
+        assertNull(sphere.findClosestGeoIntersection(new Ray(new Point(-1, 0, 0), new Vector(1, 0, 0)), 0.5),
+                "TC03: point beyond max distance");
+        // TC04: Ray starts after the sphere
+        assertNull(sphere.findClosestGeoIntersection(new Ray(new Point(3, 0, 0), new Vector(1, 0, 0)),
+                Double.POSITIVE_INFINITY), "TC04: Ray starts after sphere");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Ray starts at the center
+        gp = sphere.findClosestGeoIntersection(new Ray(new Point(1, 0, 0), new Vector(0, 1, 0)), Double.POSITIVE_INFINITY);
+        assertEquals(new Point(1, 1, 0), gp.point, "TC11: Ray starts at the center");
+        // TC12: Ray starts at the sphere and goes outside
+        assertNull(sphere.findClosestGeoIntersection(new Ray(new Point(2, 0, 0), new Vector(1, 0, 0)),
+                Double.POSITIVE_INFINITY), "TC12: Ray starts at sphere and goes outside");
+    }
+}
@@ -0,0 +1,168 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Double3;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TriangleMesh class
+ */
+class TriangleMeshTests {
+    /**
+     * A unit square in the plane z = 0 made of two triangles sharing the diagonal (0,0,0)-(1,1,0),
+     * and a triangle above it in the plane z = 1
+     */
+    private final TriangleMesh mesh = new TriangleMesh(
+            new double[]{0, 0, 0, 1, 0, 0, 1, 1, 0, 0, 1, 0, 0, 0, 1, 4, 0, 1, 0, 4, 1},
+            new int[]{0, 1, 2, 0, 2, 3, 4, 5, 6});
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#TriangleMesh(float[], int[])}.
+     */
+    @Test
+    void testConstructor() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a correct mesh
+        assertEquals(3, mesh.getTriangleCount(), "TC01: wrong amount of triangles");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a vertex buffer of incomplete vertices
+        assertThrows(IllegalArgumentException.class,
+                () -> new TriangleMesh(new float[]{0, 0, 0, 1, 0}, new int[]{0, 0, 0}),
+                "TC11: constructed a mesh of an incomplete vertex");
+        // TC12: an index buffer of incomplete triangles
+        assertThrows(IllegalArgumentException.class,
+                () -> new TriangleMesh(new float[]{0, 0, 0, 1, 0, 0, 0, 1, 0}, new int[]{0, 1}),
+                "TC12: constructed a mesh of an incomplete triangle");
+        // TC13: an index out of the vertex buffer
+        assertThrows(IllegalArgumentException.class,
+                () -> new TriangleMesh(new float[]{0, 0, 0, 1, 0, 0, 0, 1, 0}, new int[]{0, 1, 3}),
+                "TC13: constructed a mesh with an index out of the vertex buffer");
+        // TC14: an empty mesh
+        assertThrows(IllegalArgumentException.class,
+                () -> new TriangleMesh(new float[]{0, 0, 0}, new int[0]),
+                "TC14: constructed an empty mesh");
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#getNormal(primitives.Point)}.
+     */
+    @Test
+    void testGetNormal() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a point on a triangle of the mesh
+        assertEquals(new Vector(0, 0, 1), mesh.getNormal(new Point(0.75, 0.25, 0)), "TC01: wrong normal");
+
+        // TC02: a point out of the mesh
+        assertThrows(IllegalArgumentException.class, () -> mesh.getNormal(new Point(2, 2, 0)),
+                "TC02: found a normal at a point out of the mesh");
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#findGeoIntersectionsHelper(Ray, double)}.
+     */
+    @Test
+    void testFindIntersections() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a ray through both layers of the mesh - the same points as of separate triangles
+        Ray ray = new Ray(new Point(0.25, 0.5, 2), new Vector(0, 0, -1));
+        Triangle upper = new Triangle(new Point(0, 0, 1), new Point(4, 0, 1), new Point(0, 4, 1));
+        Triangle lower = new Triangle(new Point(0, 0, 0), new Point(1, 1, 0), new Point(0, 1, 0));
+        List<Point> result = mesh.findIntersections(ray);
+        assertNotNull(result, "TC01: no intersections");
+        assertEquals(2, result.size(), "TC01: wrong amount of intersections");
+        assertTrue(result.containsAll(List.of(upper.findIntersections(ray).get(0),
+                lower.findIntersections(ray).get(0))), "TC01: wrong intersections");
+
+        // TC02: the closest intersection is on the upper triangle
+        Intersectable.GeoPoint gp = mesh.findClosestGeoIntersection(ray, Double.POSITIVE_INFINITY);
+        assertEquals(new Point(0.25, 0.5, 1), gp.point, "TC02: wrong closest intersection");
+        assertEquals(1, gp.t, 1e-10, "TC02: wrong ray parameter");
+
+        // TC03: the maximum distance cuts the far intersection
+        assertEquals(1, mesh.findGeoIntersections(ray, 1.5).size(), "TC03: wrong amount of intersections");
+
+        // TC04: a ray that misses the mesh
+        assertNull(mesh.findIntersections(new Ray(new Point(3, 3, 2), new Vector(0, 0, -1))),
+                "TC04: found intersections of a ray that misses the mesh");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a ray through the shared diagonal does not slip between the triangles
+        ray = new Ray(new Point(0.5, 0.5, 0.5), new Vector(0, 0, -1));
+        gp = mesh.findClosestGeoIntersection(ray, Double.POSITIVE_INFINITY);
+        assertNotNull(gp, "TC11: the ray slipped through the shared edge");
+        assertEquals(new Point(0.5, 0.5, 0), gp.point, "TC11: wrong intersection on the shared edge");
+        // TC12: the shared diagonal is crossed once, not once by each of its triangles
+        assertEquals(List.of(new Point(0.5, 0.5, 0)), mesh.findIntersections(ray),
+                "TC12: wrong intersections on the shared edge");
+        // TC13: a vertex shared by both triangles of the square is crossed once
+        assertEquals(List.of(new Point(0, 0, 0)),
+                mesh.findIntersections(new Ray(new Point(0, 0, 0.5), new Vector(0, 0, -1))),
+                "TC13: wrong intersections on the shared vertex");
+
+        // TC14: a tiny triangle is hit although its determinant is below the accuracy
+        TriangleMesh tiny = new TriangleMesh(new double[]{0, 0, 0, 1e-7, 0, 0, 0, 1e-7, 0}, new int[]{0, 1, 2});
+        gp = tiny.findClosestGeoIntersection(new Ray(new Point(2e-8, 2e-8, 1), new Vector(0, 0, -1)),
+                Double.POSITIVE_INFINITY);
+        assertNotNull(gp, "TC14: a ray missed a tiny triangle");
+        assertEquals(new Vector(0, 0, 1), gp.getNormal(), "TC14: wrong normal of a tiny triangle");
+        assertEquals(new Vector(0, 0, 1), tiny.getNormal(new Point(2e-8, 2e-8, 0)),
+                "TC14: wrong normal of a point on a tiny triangle");
+        // TC15: a ray almost parallel to a huge triangle is rejected as by a single triangle, although its
+        // determinant is far above the accuracy
+        TriangleMesh huge = new TriangleMesh(new double[]{-1e8, -1e8, 0, 1e8, -1e8, 0, 0, 1e8, 0},
+                new int[]{0, 1, 2});
+        ray = new Ray(new Point(0, 0, -1e-6), new Vector(1, 0, 1e-13));
+        assertNull(new Triangle(new Point(-1e8, -1e8, 0), new Point(1e8, -1e8, 0), new Point(0, 1e8, 0))
+                .findIntersections(ray), "TC15: a single triangle is hit by an almost parallel ray");
+        assertNull(huge.findIntersections(ray), "TC15: a huge triangle is hit by an almost parallel ray");
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#transmittance(Ray, double)} of a transparent mesh.
+     */
+    @Test
+    void testTransmittance() {
+        TriangleMesh glass = new TriangleMesh(
+                new double[]{0, 0, 0, 1, 0, 0, 1, 1, 0, 0, 1, 0, 0, 0, 1, 4, 0, 1, 0, 4, 1},
+                new int[]{0, 1, 2, 0, 2, 3, 4, 5, 6});
+        glass.setMaterial(new Material().setkT(0.5));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a shadow ray through both layers of the mesh is attenuated by both
+        Ray ray = new Ray(new Point(0.25, 0.5, -1), new Vector(0, 0, 1));
+        assertEquals(new Double3(0.25), glass.transmittance(ray, 5), "TC01: wrong transmittance");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a shadow ray through the shared diagonal of the square is attenuated once, as beside it
+        ray = new Ray(new Point(0.5, 0.5, -1), new Vector(0, 0, 1));
+        assertEquals(new Double3(0.5), glass.transmittance(ray, 1.5), "TC11: a dark seam on the shared edge");
+    }
+
+    /**
+     * Test method for the hit record of {@link geometries.TriangleMesh#findClosestGeoIntersection(Ray, double)} -
+     * the barycentric coordinates and the filled normal
+     */
+    @Test
+    void testHitRecord() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the barycentric coordinates are those of the same triangle alone
+        Ray ray = new Ray(new Point(1, 2, 2), new Vector(0, 0, -1));
+        Intersectable.GeoPoint gp = mesh.findClosestGeoIntersection(ray, Double.POSITIVE_INFINITY);
+        Intersectable.GeoPoint expected = new Triangle(new Point(0, 0, 1), new Point(4, 0, 1), new Point(0, 4, 1))
+                .findClosestGeoIntersection(ray, Double.POSITIVE_INFINITY);
+        assertEquals(expected.u, gp.u, 1e-6, "TC01: wrong weight of the second vertex");
+        assertEquals(expected.v, gp.v, 1e-6, "TC01: wrong weight of the third vertex");
+
+        // TC02: the normal is filled by the intersector
+        assertEquals(new Vector(0, 0, 1), gp.getNormal(), "TC02: wrong normal");
+        assertTrue(gp.orient(ray).isFrontFace(), "TC02: the ray should hit the front face");
+    }
+}
@@ -59,4 +59,32 @@ class TriangleTests {
         assertNull(triangle.findIntersections(ray),"intersection point on the continuation of one of the edges shouldn't returned value");
     }
 
-}
\ No newline at end of file
+    /**
+     * Test method for the hit record of {@link geometries.Triangle#findClosestGeoIntersection(Ray, double)} -
+     * the barycentric coordinates, the filled normal and the side of the surface
+     */
+    @Test
+    void testHitRecord() throws IllegalArgumentException {
+        Point p1 = new Point(0, 0, 0), p2 = new Point(4, 0, 0), p3 = new Point(0, 4, 0);
+        Triangle triangle = new Triangle(p1, p2, p3);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the barycentric coordinates rebuild the intersection point
+        Ray ray = new Ray(new Point(1, 2, 1), new Vector(0, 0, -1));
+        Intersectable.GeoPoint gp = triangle.findClosestGeoIntersection(ray, Double.POSITIVE_INFINITY);
+        assertEquals(0.25, gp.u, 1e-10, "TC01: wrong weight of the second vertex");
+        assertEquals(0.5, gp.v, 1e-10, "TC01: wrong weight of the third vertex");
+        assertEquals(1, gp.t, 1e-10, "TC01: wrong ray parameter");
+
+        // TC02: the normal is filled by the intersector, and the ray hits the front face
+        assertEquals(triangle.getNormal(gp.point), gp.getNormal(), "TC02: wrong normal");
+        assertTrue(gp.orient(ray).isFrontFace(), "TC02: the ray should hit the front face");
+        assertEquals(-1, gp.getCosine(), 1e-10, "TC02: wrong cosine");
+
+        // TC03: a ray from below hits the back face
+        gp = triangle.findClosestGeoIntersection(new Ray(new Point(1, 1, -1), new Vector(0, 0, 1)),
+                Double.POSITIVE_INFINITY);
+        assertFalse(gp.orient(new Ray(new Point(1, 1, -1), new Vector(0, 0, 1))).isFrontFace(),
+                "TC03: the ray should hit the back face");
+    }
+}
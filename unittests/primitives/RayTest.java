@@ -55,4 +55,59 @@ class RayTest {
         assertEquals(new Point(1.5, 1.5, 1.5), ray.findClosestPoint(pointList3), "The last point is not the closest");
     }
 
-}
\ No newline at end of file
+    /**
+     * Test method for {@link Ray#Ray(Point, double, double, double)}.
+     */
+    @Test
+    void testRawDirectionConstructor() {
+        Point p0 = new Point(1, 2, 3);
+
+        // ============ Equivalence Partitions Tests ==============
+        //TC01: The direction is normalized as by the vector constructor
+        assertEquals(new Ray(p0, new Vector(1, -2, 2)), new Ray(p0, 1, -2, 2), "Bad raw direction ray");
+        assertEquals(1, new Ray(p0, 1, -2, 2).getDir().length(), 1e-12, "The direction is not normalized");
+
+        // =============== Boundary Values Tests ==================
+        //TC11: A zero direction is not allowed
+        assertThrows(IllegalArgumentException.class, () -> new Ray(p0, 0, 0, 0), "Zero direction is allowed");
+    }
+
+    /**
+     * Test method for {@link Ray#intersectsBox(double[], int, double, double)}.
+     */
+    @Test
+    void testIntersectsBox() throws IllegalArgumentException {
+        // a unit box at offset 6 of the array, after another box
+        double[] bounds = {0, 0, 0, 0, 0, 0, 1, 1, 1, 2, 2, 2};
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray crosses the box
+        assertTrue(new Ray(new Point(0, 0, 0), new Vector(1, 1, 1)).intersectsBox(bounds, 6, 0, 100),
+                "TC01: Ray should cross the box");
+        // TC02: Ray with a negative direction crosses the box
+        assertTrue(new Ray(new Point(3, 3, 3), new Vector(-1, -1, -1)).intersectsBox(bounds, 6, 0, 100),
+                "TC02: Ray should cross the box");
+        // TC03: Ray misses the box
+        assertFalse(new Ray(new Point(0, 0, 0), new Vector(1, 0, 0.1)).intersectsBox(bounds, 6, 0, 100),
+                "TC03: Ray should miss the box");
+        // TC04: the box is behind the ray
+        assertFalse(new Ray(new Point(3, 3, 3), new Vector(1, 1, 1)).intersectsBox(bounds, 6, 0, 100),
+                "TC04: the box is behind the ray");
+        // TC05: the box is beyond the maximal distance
+        assertFalse(new Ray(new Point(0, 0, 0), new Vector(1, 1, 1)).intersectsBox(bounds, 6, 0, 1),
+                "TC05: the box is beyond the maximal distance");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Ray parallel to an axis inside the slab of that axis
+        assertTrue(new Ray(new Point(1.5, 1.5, 0), new Vector(0, 0, 1)).intersectsBox(bounds, 6, 0, 100),
+                "TC11: Ray parallel to the axis should cross the box");
+        // TC12: Ray parallel to an axis outside the slab of that axis
+        assertFalse(new Ray(new Point(3, 1.5, 0), new Vector(0, 0, 1)).intersectsBox(bounds, 6, 0, 100),
+                "TC12: Ray parallel to the axis should miss the box");
+        // TC13: Ray parallel to an axis on the border of the slab
+        assertTrue(new Ray(new Point(1, 1.5, 0), new Vector(0, 0, 1)).intersectsBox(bounds, 6, 0, 100),
+                "TC13: Ray on the border of the box should cross it");
+        // TC14: Ray starts inside the box
+        assertTrue(new Ray(new Point(1.5, 1.5, 1.5), new Vector(1, 2, 3)).intersectsBox(bounds, 6, 0, 100),
+                "TC14: Ray starting inside should cross the box");
+    }
+}
@@ -125,5 +125,9 @@ class VectorTests {
         assertThrows(IllegalArgumentException.class,()->v.crossProduct(u),"ERROR: the normalized vector is not parallel to the original one");
         // TC03: TTest dot-product between vector and its normal
         assertTrue(v.dotProduct(u) >= 0,"ERROR: the normalized vector is opposite to the original one");
+        // =============== Boundary Values Tests ==================
+        // TC11: A unit vector is already normalized
+        Vector unit = new Vector(0, 0, 1);
+        assertSame(unit, unit.normalize(), "ERROR: a unit vector was normalized again");
     }
 }
\ No newline at end of file
@@ -1,9 +1,19 @@
 package renderer;
 
+import geometries.Sphere;
+import lighting.AmbientLight;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import primitives.Color;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
+import scene.Scene;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.testng.Assert.assertEquals;
@@ -52,4 +62,363 @@ class CameraTests {
 
     }
 
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link renderer.Camera#setVarianceSampling(int, int, double)}.
+     */
+    @Test
+    void testVarianceSampling() {
+        Scene scene = new Scene("variance").setBackground(new Color(0, 0, 255))
+                .setAmbientLight(new AmbientLight(new Color(255, 0, 0), 1));
+        Camera camera = new Camera(ZERO_POINT, new Vector(0, 1, 0), new Vector(0, 0, -1))
+                .setVPDistance(100).setVPSize(100, 100).setNss(16)
+                .setImageWriter(new ImageWriter("variance", 16, 16))
+                .setRayTracer(new RayTracerBasic(scene))
+                .setVarianceSampling(4, 64, 1);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a flat image - every pixel converges after the first pass
+        camera.renderImageSuperSampling();
+        assertEquals(4d, camera.getSamplesPerPixel(), 1e-9, "TC01: flat pixels were sampled again");
+
+        // TC02: an edge - the noisy pixels get more rays, within the average budget
+        scene.geometries.add(new Sphere(30d, new Point(0, 0, -100)));
+        camera.renderImageSuperSampling();
+        double samples = camera.getSamplesPerPixel();
+        assertTrue(samples > 4 && samples <= 16, "TC02: wrong amount of rays per pixel " + samples);
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a pass of a single ray has no variance
+        assertThrows(IllegalArgumentException.class, () -> camera.setVarianceSampling(1, 64, 1),
+                "TC11: a pass of a single ray is allowed");
+        // TC12: the maximal amount is less than the minimal amount
+        assertThrows(IllegalArgumentException.class, () -> camera.setVarianceSampling(8, 4, 1),
+                "TC12: maximal samples less than minimal samples is allowed");
+        // TC13: zero target error
+        assertThrows(IllegalArgumentException.class, () -> camera.setVarianceSampling(4, 64, 0),
+                "TC13: zero target error is allowed");
+    }
+
+    /**
+     * Creates a ray tracer of a vertical edge on the view plane at distance 1 from the camera - a ray left of the
+     * edge gets one color and a ray right of it gets another color. The traced rays are counted.
+     *
+     * @param edge  the X coordinate of the edge on the view plane
+     * @param left  the color left of the edge
+     * @param right the color right of the edge
+     * @param rays  the counter of the traced rays
+     * @return the ray tracer
+     */
+    private static RayTracerBase edgeTracer(double edge, Color left, Color right, AtomicInteger rays) {
+        return new RayTracerBase(new Scene("edge")) {
+            @Override
+            public Color traceRay(Ray ray) {
+                rays.incrementAndGet();
+                Vector direction = ray.getDir();
+                return direction.getX() / -direction.getZ() < edge ? left : right;
+            }
+        };
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#renderImageAdaptiveSuperSampling()} and
+     * {@link renderer.Camera#setAdaptiveThreshold(double)}.
+     */
+    @Test
+    void testAdaptiveSuperSampling() {
+        AtomicInteger rays = new AtomicInteger();
+        Color black = new Color(0, 0, 0);
+        Color red = new Color(255, 0, 0);
+        ImageWriter flatImage = new ImageWriter("adaptive flat", 16, 16);
+        Camera camera = new Camera(ZERO_POINT, new Vector(0, 1, 0), new Vector(0, 0, -1))
+                .setVPDistance(1).setVPSize(16, 16).setMaxLevelAdaptiveSS(3)
+                .setImageWriter(flatImage).setRayTracer(edgeTracer(100, red, black, rays));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a flat image costs about a ray per pixel - the corners of the pixels of the tile only
+        camera.renderImageAdaptiveSuperSampling();
+        assertEquals(17 * 17, rays.get(), "TC01: wrong amount of rays of a flat image");
+        assertTrue(red.difference(flatImage.getPixel(7, 7)) < 1e-9, "TC01: wrong color of a flat image");
+
+        // TC02: a pixel of an edge is refined down to the maximal level - three of its eight columns of cells are
+        // left of the edge, and the column of the edge is half covered
+        ImageWriter edgeImage = new ImageWriter("adaptive edge", 1, 1);
+        camera.setVPSize(1, 1).setImageWriter(edgeImage).setRayTracer(edgeTracer(-0.2, black, red, rays));
+        rays.set(0);
+        camera.renderImageAdaptiveSuperSampling();
+        assertEquals(255 * 5.5 / 8, edgeImage.getPixel(0, 0).getRed(), 1e-9, "TC02: the edge was not refined");
+        assertTrue(rays.get() > 4, "TC02: the edge pixel was not subdivided");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: corners that differ by the threshold exactly are not subdivided
+        Color dark = new Color(10, 0, 0);
+        camera.setRayTracer(edgeTracer(-0.2, black, dark, rays)).setAdaptiveThreshold(10);
+        rays.set(0);
+        camera.renderImageAdaptiveSuperSampling();
+        assertEquals(4, rays.get(), "TC11: a cell within the threshold was subdivided");
+        assertEquals(5d, edgeImage.getPixel(0, 0).getRed(), 1e-9, "TC11: wrong color of the pixel");
+
+        // TC12: corners that differ by a bit more than the threshold are subdivided
+        camera.setAdaptiveThreshold(9.99);
+        rays.set(0);
+        camera.renderImageAdaptiveSuperSampling();
+        assertTrue(rays.get() > 4, "TC12: a cell beyond the threshold was not subdivided");
+
+        // TC13: level 0 traces a single ray through the center of every pixel
+        camera.setVPSize(16, 16).setImageWriter(flatImage).setRayTracer(edgeTracer(0.6, black, red, rays))
+                .setMaxLevelAdaptiveSS(0);
+        rays.set(0);
+        camera.renderImageAdaptiveSuperSampling();
+        assertEquals(16 * 16, rays.get(), "TC13: wrong amount of rays of level 0");
+        assertTrue(black.difference(flatImage.getPixel(8, 0)) < 1e-9, "TC13: the ray is not through the center");
+
+        // TC14: zero threshold is allowed, a negative threshold is not
+        assertDoesNotThrow(() -> camera.setAdaptiveThreshold(0), "TC14: zero threshold is not allowed");
+        assertThrows(IllegalArgumentException.class, () -> camera.setAdaptiveThreshold(-1),
+                "TC14: negative threshold is allowed");
+    }
+
+    /**
+     * The color of a point of the view plane at distance 1 from the camera in an image of a red disc on a blue
+     * background
+     *
+     * @param x the X coordinate of the point
+     * @param y the Y coordinate of the point
+     * @return the color of the point
+     */
+    private static Color discColor(double x, double y) {
+        return (x - 0.3) * (x - 0.3) + (y + 0.2) * (y + 0.2) < 5.3 * 5.3 ? new Color(255, 0, 0)
+                : new Color(0, 0, 255);
+    }
+
+    /**
+     * Adaptive super-sampling of the disc image where every pixel is sampled on its own, without the samples of
+     * its neighbours - the reference of the shared lattice of the camera. It counts the samples of all the
+     * pixels, and collects the distinct lattice points sampled in every tile.
+     * The image is of pixels of size 1 on the view plane, with the default threshold.
+     */
+    private static class UnsharedAdaptiveSampling {
+        /**
+         * Resolution of the image
+         */
+        private final int nX, nY;
+        /**
+         * Amount of lattice cells along the side of a pixel
+         */
+        private final int scale;
+        /**
+         * Size of the side of a tile in pixels
+         */
+        private final int tileSize;
+        /**
+         * The distinct lattice points sampled in every tile, by the tile and the point
+         */
+        final Set<Long> points = new HashSet<>();
+        /**
+         * Amount of samples of all the pixels
+         */
+        int samples;
+
+        /**
+         * Constructor of the reference sampling
+         *
+         * @param nX       the resolution of the image by width
+         * @param nY       the resolution of the image by height
+         * @param level    the maximal level of the super-sampling
+         * @param tileSize the size of the side of a tile in pixels
+         */
+        UnsharedAdaptiveSampling(int nX, int nY, int level, int tileSize) {
+            this.nX = nX;
+            this.nY = nY;
+            this.scale = 1 << level;
+            this.tileSize = tileSize;
+        }
+
+        /**
+         * Calculates the color of a pixel
+         *
+         * @param col the column of the pixel
+         * @param row the row of the pixel
+         * @return the color of the pixel
+         */
+        Color pixel(int col, int row) {
+            int x = col * scale, y = row * scale;
+            return cell(col, row, x, y, scale, sample(col, row, x, y), sample(col, row, x + scale, y),
+                    sample(col, row, x, y + scale), sample(col, row, x + scale, y + scale));
+        }
+
+        /**
+         * Calculates the color of a cell of a pixel given its corners, subdividing it as the camera does
+         *
+         * @param col  the column of the pixel
+         * @param row  the row of the pixel
+         * @param x    the column of the top left corner of the cell in the lattice of the image
+         * @param y    the row of the top left corner of the cell in the lattice of the image
+         * @param size the size of the side of the cell in lattice cells
+         * @param c1   the color of the top left corner
+         * @param c2   the color of the top right corner
+         * @param c3   the color of the bottom left corner
+         * @param c4   the color of the bottom right corner
+         * @return the color of the cell
+         */
+        private Color cell(int col, int row, int x, int y, int size, Color c1, Color c2, Color c3, Color c4) {
+            if (size == 1 || c1.difference(c2) <= 1 && c1.difference(c3) <= 1 && c1.difference(c4) <= 1
+                    && c2.difference(c3) <= 1 && c2.difference(c4) <= 1 && c3.difference(c4) <= 1)
+                return c1.add(c2, c3, c4).reduce(4);
+            int half = size / 2;
+            Color top = sample(col, row, x + half, y);
+            Color left = sample(col, row, x, y + half);
+            Color center = sample(col, row, x + half, y + half);
+            Color right = sample(col, row, x + size, y + half);
+            Color bottom = sample(col, row, x + half, y + size);
+            return cell(col, row, x, y, half, c1, top, left, center)
+                    .add(cell(col, row, x + half, y, half, top, c2, center, right),
+                            cell(col, row, x, y + half, half, left, center, c3, bottom),
+                            cell(col, row, x + half, y + half, half, center, right, bottom, c4))
+                    .reduce(4);
+        }
+
+        /**
+         * Samples a point of the lattice of the image
+         *
+         * @param col the column of the sampling pixel
+         * @param row the row of the sampling pixel
+         * @param x   the column of the point in the lattice of the image
+         * @param y   the row of the point in the lattice of the image
+         * @return the color of the point
+         */
+        private Color sample(int col, int row, int x, int y) {
+            ++samples;
+            long tile = (long) (row / tileSize) * nX + col / tileSize;
+            points.add(tile << 40 | (long) y << 20 | x);
+            return discColor((double) x / scale - 0.5 - (nX - 1) / 2d, -((double) y / scale - 0.5 - (nY - 1) / 2d));
+        }
+    }
+
+    /**
+     * Test method for the samples of {@link renderer.Camera#renderImageAdaptiveSuperSampling()} shared by
+     * neighbouring pixels.
+     */
+    @Test
+    void testAdaptiveSharedSamples() {
+        AtomicInteger rays = new AtomicInteger();
+        RayTracerBase disc = new RayTracerBase(new Scene("disc")) {
+            @Override
+            public Color traceRay(Ray ray) {
+                rays.incrementAndGet();
+                Vector direction = ray.getDir();
+                return discColor(direction.getX() / -direction.getZ(), direction.getY() / -direction.getZ());
+            }
+        };
+        ImageWriter imageWriter = new ImageWriter("adaptive shared", 16, 16);
+        Camera camera = new Camera(ZERO_POINT, new Vector(0, 1, 0), new Vector(0, 0, -1))
+                .setVPDistance(1).setVPSize(16, 16).setImageWriter(imageWriter).setRayTracer(disc);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: tiles of a lattice in an array - the image is the image of pixels sampled on their own, and every
+        // lattice point of a tile is traced once
+        // TC02: a tile of a lattice too large for an array (2049 by 2049 points), in a map
+        int[][] cases = { { 3, 8 }, { 7, 16 } };
+        for (int[] c : cases) {
+            String tc = c[0] == 3 ? "TC01: " : "TC02: ";
+            UnsharedAdaptiveSampling unshared = new UnsharedAdaptiveSampling(16, 16, c[0], c[1]);
+            rays.set(0);
+            camera.setMaxLevelAdaptiveSS(c[0]).setTileSize(c[1]).renderImageAdaptiveSuperSampling();
+            for (int row = 0; row < 16; ++row)
+                for (int col = 0; col < 16; ++col)
+                    assertTrue(unshared.pixel(col, row).difference(imageWriter.getPixel(col, row)) < 1e-9,
+                            tc + "wrong pixel " + col + "," + row);
+            assertEquals(unshared.points.size(), rays.get(), tc + "a lattice point was traced twice");
+            assertTrue(rays.get() < unshared.samples, tc + "no sample is shared");
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: two adjacent pixels of a flat image share a side - three pairs of corners
+        camera.setImageWriter(new ImageWriter("adaptive adjacent", 2, 1)).setVPSize(2, 1).setTileSize(2)
+                .setMaxLevelAdaptiveSS(3);
+        rays.set(0);
+        camera.renderImageAdaptiveSuperSampling();
+        assertEquals(6, rays.get(), "TC11: wrong amount of rays of adjacent pixels");
+
+        // TC12: two adjacent pixels in different tiles share no sample
+        camera.setTileSize(1);
+        rays.set(0);
+        camera.renderImageAdaptiveSuperSampling();
+        assertEquals(8, rays.get(), "TC12: wrong amount of rays of pixels in different tiles");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#setCheckpoint(String, double, boolean)}.
+     *
+     * @param folder a temporary directory of the checkpoint file
+     */
+    @Test
+    void testCheckpoint(@TempDir Path folder) {
+        Scene scene = new Scene("checkpoint").setBackground(new Color(0, 0, 255));
+        scene.geometries.add(new Sphere(30d, new Point(0, 0, -100)).setEmission(new Color(255, 0, 0)));
+        RayTracerBase basic = new RayTracerBasic(scene);
+        // counts the traced rays, and fails as a crash after a limit
+        AtomicInteger rays = new AtomicInteger(), limit = new AtomicInteger(Integer.MAX_VALUE);
+        RayTracerBase tracer = new RayTracerBase(scene) {
+            @Override
+            public Color traceRay(Ray ray) {
+                if (rays.incrementAndGet() > limit.get())
+                    throw new IllegalStateException("crash");
+                return basic.traceRay(ray);
+            }
+        };
+        ImageWriter imageWriter = new ImageWriter("checkpoint", 32, 32);
+        Camera camera = new Camera(ZERO_POINT, new Vector(0, 1, 0), new Vector(0, 0, -1))
+                .setVPDistance(100).setVPSize(100, 100).setTileSize(8)
+                .setImageWriter(imageWriter).setRayTracer(tracer);
+        camera.renderImage();
+        Color[] expected = new Color[32 * 32];
+        for (int i = 0; i < expected.length; ++i)
+            expected[i] = imageWriter.getPixel(i % 32, i / 32);
+        String checkpoint = folder.resolve("render.checkpoint").toString();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a rendering crashes in its fifth tile, every completed tile is flushed
+        rays.set(0);
+        limit.set(300);
+        camera.setCheckpoint(checkpoint, 0, true);
+        assertThrows(IllegalStateException.class, camera::renderImage, "TC01: the rendering did not crash");
+
+        // TC02: the resumed rendering renders only the tiles that were not completed
+        limit.set(Integer.MAX_VALUE);
+        rays.set(0);
+        camera.renderImage();
+        assertEquals(32 * 32 - 4 * 64, rays.get(), "TC02: wrong amount of rays of the resumed rendering");
+        for (int i = 0; i < expected.length; ++i)
+            assertTrue(expected[i].difference(imageWriter.getPixel(i % 32, i / 32)) < 1e-3,
+                    "TC02: wrong pixel of the resumed rendering");
+
+        // TC03: resuming a complete checkpoint renders nothing
+        rays.set(0);
+        camera.renderImage();
+        assertEquals(0, rays.get(), "TC03: a complete checkpoint was rendered again");
+
+        // TC04: a checkpoint of another scene is not resumed
+        scene.setBackground(new Color(0, 255, 0));
+        rays.set(0);
+        camera.renderImage();
+        assertEquals(32 * 32, rays.get(), "TC04: a checkpoint of another scene was resumed");
+
+        // TC05: a new checkpoint is started when resuming is off
+        rays.set(0);
+        camera.setCheckpoint(checkpoint, 0, false).renderImage();
+        assertEquals(32 * 32, rays.get(), "TC05: the checkpoint was resumed");
+
+        // TC06: the image is not written into the checkpoint file after the rendering
+        Color rendered = imageWriter.getPixel(0, 0);
+        imageWriter.writePixel(0, 0, new Color(255, 255, 255));
+        camera.setCheckpoint(checkpoint, 0, true).renderImage();
+        assertTrue(rendered.difference(imageWriter.getPixel(0, 0)) < 1e-3,
+                "TC06: a pixel written after the rendering changed the checkpoint");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: negative interval
+        assertThrows(IllegalArgumentException.class, () -> camera.setCheckpoint(checkpoint, -1, true),
+                "TC11: negative interval is allowed");
+    }
+}
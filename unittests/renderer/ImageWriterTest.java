@@ -1,8 +1,23 @@
 package renderer;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import primitives.Color;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
 class ImageWriterTest {
     /**
      * Tests the writePixel method of the ImageWriter class with a grid pattern of colors.
@@ -25,4 +40,271 @@ class ImageWriterTest {
         imagewriter.writeToImage();
     }
 
-}
\ No newline at end of file
+    /**
+     * Tests the HDR pixel color matrix - writing, accumulating and reading pixels, and their conversion to 8 bits
+     */
+    @Test
+    public void testHdrPixels() {
+        ImageWriter imageWriter = new ImageWriter("hdr", 4, 2);
+        byte[] rgb = new byte[12];
+        float[] hdr = new float[12];
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: colors brighter than 255 are kept in the matrix and clamped in the image
+        imageWriter.writePixel(1, 1, new Color(300, 100, 0));
+        assertEquals(300, imageWriter.getPixel(1, 1).getRed(), 1e-3, "TC01: HDR color was clamped");
+        imageWriter.convertRow(1, rgb, 0, null, hdr);
+        assertArrayEquals(new byte[]{(byte) 255, 100, 0}, Arrays.copyOfRange(rgb, 3, 6), "TC01: bad 8-bit color");
+
+        // TC02: accumulated passes
+        imageWriter.addPixel(1, 1, new Color(100, 100, 100));
+        assertEquals(400, imageWriter.getPixel(1, 1).getRed(), 1e-3, "TC02: color was not accumulated");
+        imageWriter.setExposure(0.5).convertRow(1, rgb, 0, null, hdr);
+        assertArrayEquals(new byte[]{(byte) 200, 100, 50}, Arrays.copyOfRange(rgb, 3, 6),
+                "TC02: bad 8-bit color of accumulated passes");
+
+        // TC03: gamma conversion of a mid-gray
+        imageWriter.setExposure(1).writePixel(2, 0, new Color(64, 64, 64));
+        imageWriter.setGamma(2);
+        imageWriter.convertRow(0, rgb, 0, imageWriter.gammaTable(), hdr);
+        assertArrayEquals(new byte[]{(byte) 128, (byte) 128, (byte) 128}, Arrays.copyOfRange(rgb, 6, 9),
+                "TC03: bad gamma conversion");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: non-positive exposure or gamma
+        assertThrows(IllegalArgumentException.class, () -> imageWriter.setExposure(0), "TC11: zero exposure");
+        assertThrows(IllegalArgumentException.class, () -> imageWriter.setGamma(0), "TC11: zero gamma");
+    }
+
+    /**
+     * Tests the PNG file of {@link ImageWriter#writeToImage()} - read back by ImageIO - with an image of several
+     * blocks of rows, some of them encoded while the image is being written
+     */
+    @Test
+    public void testWriteToImage() throws IOException {
+        ImageWriter imageWriter = new ImageWriter("png encoder", 300, 700);
+        Random random = new Random(1);
+        // smooth areas and noise, so different filters are chosen
+        for (int y = 0; y < 700; ++y)
+            for (int x = 0; x < 300; ++x)
+                imageWriter.writePixel(x, y, y < 350 ? new Color(x % 256, y % 256, 100)
+                        : new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the first rows are encoded in the background, then a pixel of them is changed
+        imageWriter.startEncoding();
+        imageWriter.rowsCompleted(0, 400);
+        imageWriter.writePixel(5, 10, new Color(1, 2, 3));
+        imageWriter.writeToImage();
+
+        BufferedImage image = ImageIO.read(new File(System.getProperty("user.dir") + "/images/png encoder.png"));
+        assertEquals(300, image.getWidth(), "TC01: bad width");
+        assertEquals(700, image.getHeight(), "TC01: bad height");
+        for (int y = 0; y < 700; ++y)
+            for (int x = 0; x < 300; ++x) {
+                java.awt.Color expected = imageWriter.getPixel(x, y).getColor();
+                assertEquals(expected.getRGB(), image.getRGB(x, y), "TC01: bad pixel " + x + "," + y);
+            }
+    }
+
+    /**
+     * Tests the PNG file of {@link ImageWriter#writeToImage()} of a writer reused for a second frame, whose blocks
+     * of rows are completed out of order - a block encoded before the block above it must not depend on the rows of
+     * the previous frame
+     */
+    @Test
+    public void testWriteSecondFrame() throws IOException {
+        ImageWriter imageWriter = new ImageWriter("png second frame", 300, 700);
+        Random random = new Random(2);
+        int[] noise = new int[300];
+        for (int x = 0; x < 300; ++x)
+            noise[x] = random.nextInt(200);
+        // every column is of one color, so the upper row predicts a row best
+        for (int y = 0; y < 700; ++y)
+            for (int x = 0; x < 300; ++x)
+                imageWriter.writePixel(x, y, new Color(noise[x], 255 - noise[x], 100));
+        imageWriter.startEncoding();
+        imageWriter.rowsCompleted(0, 700);
+        imageWriter.writeToImage();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the second frame is slightly brighter, and its lower rows are completed first
+        imageWriter.startEncoding();
+        for (int y = 699; y >= 0; --y) {
+            for (int x = 0; x < 300; ++x)
+                imageWriter.writePixel(x, y, new Color(noise[x] + 20, 235 - noise[x], 120));
+            imageWriter.rowsCompleted(y, y + 1);
+        }
+        imageWriter.writeToImage();
+
+        BufferedImage image = ImageIO.read(new File(System.getProperty("user.dir") + "/images/png second frame.png"));
+        for (int y = 0; y < 700; ++y)
+            for (int x = 0; x < 300; ++x) {
+                java.awt.Color expected = imageWriter.getPixel(x, y).getColor();
+                assertEquals(expected.getRGB(), image.getRGB(x, y), "TC01: bad pixel " + x + "," + y);
+            }
+    }
+
+    /**
+     * Tests an out-of-core pixel color matrix - compared with a pixel color matrix on the heap, with an image of
+     * partial tiles, and written as a PNG file
+     *
+     * @param folder a temporary directory of the file
+     */
+    @Test
+    public void testOutOfCore(@TempDir Path folder) throws IOException {
+        ImageWriter mapped = new ImageWriter("out of core", 150, 100, true).setFolderPath(folder.toString());
+        ImageWriter heap = new ImageWriter("heap", 150, 100, false);
+        Random random = new Random(4);
+        for (int y = 0; y < 100; ++y)
+            for (int x = 0; x < 150; ++x) {
+                Color color = new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+                mapped.writePixel(x, y, color);
+                heap.writePixel(x, y, color);
+            }
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the pixels, also accumulated ones, are kept
+        mapped.addPixel(149, 99, new Color(300, 0, 0));
+        heap.addPixel(149, 99, new Color(300, 0, 0));
+        assertEquals(heap.getPixel(149, 99).getRed(), mapped.getPixel(149, 99).getRed(), 1e-3,
+                "TC01: bad accumulated pixel");
+        float[] expected = new float[150 * 3], actual = new float[150 * 3];
+        for (int y = 0; y < 100; ++y) {
+            heap.convertRow(y, expected, 0);
+            mapped.convertRow(y, actual, 0);
+            assertArrayEquals(expected, actual, "TC01: bad row " + y);
+        }
+
+        // TC02: the PNG file of the image
+        mapped.writeToImage();
+        BufferedImage image = ImageIO.read(folder.resolve("out of core.png").toFile());
+        for (int y = 0; y < 100; ++y)
+            for (int x = 0; x < 150; ++x)
+                assertEquals(heap.getPixel(x, y).getColor().getRGB(), image.getRGB(x, y),
+                        "TC02: bad pixel " + x + "," + y);
+    }
+
+    /**
+     * Tests the PPM, PFM and QOI files of {@link ImageWriter#writeToImage()} - read back and compared with the
+     * pixel color matrix
+     *
+     * @param folder a temporary directory of the files
+     */
+    @Test
+    public void testRawFormats(@TempDir Path folder) throws IOException {
+        ImageWriter imageWriter = new ImageWriter("raw", 70, 50).setFolderPath(folder.toString());
+        Random random = new Random(3);
+        // runs, small differences, repeated colors, noise and an HDR color
+        for (int y = 0; y < 50; ++y)
+            for (int x = 0; x < 70; ++x)
+                imageWriter.writePixel(x, y, y < 10 ? new Color(20, 30, 40)
+                        : y < 20 ? new Color(x, x + 2 * y, 100)
+                        : y < 30 ? new Color(x % 3 * 50, 0, 0)
+                        : new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+        imageWriter.writePixel(69, 49, new Color(510, 0, 0));
+        byte[] expected = new byte[70 * 50 * 3];
+        float[] hdr = new float[70 * 3];
+        for (int y = 0; y < 50; ++y)
+            imageWriter.convertRow(y, expected, y * 70 * 3, null, hdr);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: PPM - a text header and the 8-bit colors
+        imageWriter.setFormat(ImageWriter.Format.PPM).writeToImage();
+        byte[] ppm = Files.readAllBytes(folder.resolve("raw.ppm"));
+        byte[] header = "P6\n70 50\n255\n".getBytes(StandardCharsets.US_ASCII);
+        assertArrayEquals(header, Arrays.copyOf(ppm, header.length), "TC01: bad PPM header");
+        assertArrayEquals(expected, Arrays.copyOfRange(ppm, header.length, ppm.length), "TC01: bad PPM pixels");
+
+        // TC02: PFM - little-endian HDR colors, from the bottom row to the top
+        imageWriter.setFormat(ImageWriter.Format.PFM).writeToImage();
+        byte[] pfm = Files.readAllBytes(folder.resolve("raw.pfm"));
+        header = "PF\n70 50\n-1.0\n".getBytes(StandardCharsets.US_ASCII);
+        assertArrayEquals(header, Arrays.copyOf(pfm, header.length), "TC02: bad PFM header");
+        assertEquals(header.length + 70 * 50 * 12, pfm.length, "TC02: bad PFM size");
+        ByteBuffer floats = ByteBuffer.wrap(pfm, header.length, 70 * 50 * 12).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(2, floats.getFloat(header.length + 69 * 12), 1e-6, "TC02: bad HDR color");
+        assertEquals(20 / 255f, floats.getFloat(header.length + 49 * 70 * 12), 1e-6, "TC02: bad top row");
+
+        // TC03: QOI - decoded back to the 8-bit colors
+        imageWriter.setFormat(ImageWriter.Format.QOI).writeToImage();
+        assertArrayEquals(expected, decodeQoi(Files.readAllBytes(folder.resolve("raw.qoi")), 70, 50),
+                "TC03: bad QOI pixels");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: null format or folder
+        assertThrows(IllegalArgumentException.class, () -> imageWriter.setFormat(null), "TC11: null format");
+        assertThrows(IllegalArgumentException.class, () -> imageWriter.setFolderPath(null), "TC11: null folder");
+    }
+
+    /**
+     * Decodes a 3-channel QOI file
+     *
+     * @param  data the file
+     * @param  nX   the expected width
+     * @param  nY   the expected height
+     * @return      red, green and blue of every pixel in turn
+     */
+    private static byte[] decodeQoi(byte[] data, int nX, int nY) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        assertEquals(0x716f6966, in.getInt(), "bad QOI magic");
+        assertEquals(nX, in.getInt(), "bad QOI width");
+        assertEquals(nY, in.getInt(), "bad QOI height");
+        assertEquals(3, in.get(), "bad QOI channels");
+        in.get();
+        byte[] rgb = new byte[nX * nY * 3];
+        int[][] index = new int[64][];
+        int r = 0, g = 0, b = 0;
+        for (int i = 0; i < rgb.length; ) {
+            int op = in.get() & 0xFF;
+            int run = 1;
+            if (op == 0xFE) {
+                r = in.get() & 0xFF;
+                g = in.get() & 0xFF;
+                b = in.get() & 0xFF;
+            } else if (op >> 6 == 0) {
+                r = index[op][0];
+                g = index[op][1];
+                b = index[op][2];
+            } else if (op >> 6 == 1) {
+                r = r + (op >> 4 & 3) - 2 & 0xFF;
+                g = g + (op >> 2 & 3) - 2 & 0xFF;
+                b = b + (op & 3) - 2 & 0xFF;
+            } else if (op >> 6 == 2) {
+                int dg = (op & 0x3F) - 32, next = in.get() & 0xFF;
+                r = r + dg + (next >> 4) - 8 & 0xFF;
+                g = g + dg & 0xFF;
+                b = b + dg + (next & 0xF) - 8 & 0xFF;
+            } else
+                run = (op & 0x3F) + 1;
+            index[(r * 3 + g * 5 + b * 7 + 255 * 11) % 64] = new int[]{r, g, b};
+            for (; run > 0; --run, i += 3) {
+                rgb[i] = (byte) r;
+                rgb[i + 1] = (byte) g;
+                rgb[i + 2] = (byte) b;
+            }
+        }
+        assertArrayEquals(new byte[]{0, 0, 0, 0, 0, 0, 0, 1}, Arrays.copyOfRange(data, in.position(), data.length),
+                "bad QOI end marker");
+        return rgb;
+    }
+
+    /**
+     * Test method for {@link PngEncoder#adler32Combine(long, long, long)}
+     */
+    @Test
+    public void testAdler32Combine() {
+        byte[] data = new byte[100000];
+        new Random(2).nextBytes(data);
+        java.util.zip.Adler32 whole = new java.util.zip.Adler32(), first = new java.util.zip.Adler32(),
+                second = new java.util.zip.Adler32();
+        whole.update(data);
+        first.update(data, 0, 70000);
+        second.update(data, 70000, 30000);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the checksum of two parts is the checksum of the whole data
+        assertEquals(whole.getValue(), PngEncoder.adler32Combine(first.getValue(), second.getValue(), 30000),
+                "TC01: bad combined checksum");
+    }
+}
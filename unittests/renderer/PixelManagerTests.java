@@ -0,0 +1,80 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link PixelManager} class
+ */
+class PixelManagerTests {
+
+    /**
+     * Test method for {@link PixelManager#nextTile()}
+     */
+    @Test
+    void testNextTile() throws InterruptedException {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the tiles of several threads cover every pixel exactly once, including the partial tiles
+        // on the right and bottom borders
+        int nX = 100, nY = 70;
+        PixelManager pixelManager = new PixelManager(nY, nX, 16, 0);
+        AtomicIntegerArray covered = new AtomicIntegerArray(nX * nY);
+        List<Thread> threads = new LinkedList<>();
+        for (int t = 0; t < 4; ++t)
+            threads.add(new Thread(() -> {
+                PixelManager.Tile tile;
+                while ((tile = pixelManager.nextTile()) != null) {
+                    assertTrue(tile.toCol() - tile.fromCol() <= 16 && tile.toRow() - tile.fromRow() <= 16,
+                            "TC01: tile is too big");
+                    for (int row = tile.fromRow(); row < tile.toRow(); ++row)
+                        for (int col = tile.fromCol(); col < tile.toCol(); ++col)
+                            covered.incrementAndGet(row * nX + col);
+                    pixelManager.tileDone(tile);
+                }
+            }));
+        for (Thread thread : threads)
+            thread.start();
+        for (Thread thread : threads)
+            thread.join();
+        for (int i = 0; i < nX * nY; ++i)
+            assertEquals(1, covered.get(i), "TC01: pixel is not rendered exactly once");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a tile bigger than the image
+        PixelManager single = new PixelManager(5, 3, 32, 0);
+        assertEquals(new PixelManager.Tile(0, 0, 3, 5), single.nextTile(), "TC11: wrong single tile");
+        assertNull(single.nextTile(), "TC11: there should be no more tiles");
+    }
+
+    /**
+     * Test method for {@link PixelManager#progress()} and {@link PixelManager#etaSeconds()}
+     */
+    @Test
+    void testProgress() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the first row of tiles is done - 8 of the 12 rows of pixels
+        PixelManager pixelManager = new PixelManager(12, 16, 8, 0);
+        pixelManager.tileDone(pixelManager.nextTile());
+        pixelManager.tileDone(pixelManager.nextTile());
+        assertEquals(2d / 3, pixelManager.progress(), 1e-10, "TC01: wrong progress");
+        assertTrue(pixelManager.etaSeconds() > 0, "TC01: unfinished rendering has no time left");
+
+        // TC02: all the tiles are done, including the partial tiles of the bottom border
+        PixelManager.Tile tile;
+        while ((tile = pixelManager.nextTile()) != null)
+            pixelManager.tileDone(tile);
+        assertEquals(1, pixelManager.progress(), 1e-10, "TC02: wrong progress");
+        assertEquals(0, pixelManager.etaSeconds(), "TC02: finished rendering has time left");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: nothing was rendered yet
+        PixelManager fresh = new PixelManager(10, 15, 8, 0);
+        assertEquals(0, fresh.progress(), "TC11: wrong progress");
+        assertEquals(Double.POSITIVE_INFINITY, fresh.etaSeconds(), "TC11: wrong time left");
+    }
+}
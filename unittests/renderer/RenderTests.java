@@ -10,6 +10,10 @@ import lighting.AmbientLight;
 import primitives.*;
 import renderer.*;
 import scene.Scene;
+import scene.XmlSceneLoader;
+
+import java.io.IOException;
+import java.nio.file.Path;
 
 /** Test rendering a basic image
  * @author Dan */
@@ -75,17 +79,9 @@ public class RenderTests {
 
    /** Test for XML based scene - for bonus */
    @Test
-   public void basicRenderXml() throws IllegalArgumentException {
-      Scene  scene  = new Scene("XML Test scene");
-      // enter XML file name and parse from XML file into scene object
-      // using the code you added in appropriate packages
-      // ...
-      // NB: unit tests is not the correct place to put XML parsing code
-
-      Camera camera = new Camera(new Point(Double3.ZERO), new Vector(0, 0, -1), new Vector(0, 1, 0))     //
-              .setVPDistance(100)                                                                //
-              .setVPSize(500, 500).setImageWriter(new ImageWriter("xml render test", 1000, 1000))
-              .setRayTracer(new RayTracerBasic(scene));
+   public void basicRenderXml() throws IOException, IllegalArgumentException {
+      // the scene and the camera of the XML file - the scene of basicRenderTwoColorTest with all four triangles
+      Camera camera = new XmlSceneLoader(Path.of("xml", "basicRenderTestTwoColors.xml")).getCamera();
       camera.renderImage();
       camera.printGrid(100, new Color(YELLOW));
       camera.writeToImage();
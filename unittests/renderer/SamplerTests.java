@@ -0,0 +1,80 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link Sampler} implementations
+ */
+class SamplerTests {
+    /**
+     * The samplers under test
+     */
+    private final Sampler[] samplers = {new StratifiedSampler(), new HaltonSampler(), new BlueNoiseSampler()};
+
+    /**
+     * Test method for {@link Sampler#samplePixel(int, int, double[], double[])}
+     */
+    @Test
+    void testSamplePixel() {
+        for (Sampler sampler : samplers) {
+            String name = sampler.getClass().getSimpleName();
+            double[] x = new double[10], y = new double[10];
+            double[] x2 = new double[10], y2 = new double[10];
+            sampler.samplePixel(3, 7, x, y);
+
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: the samples are inside the pixel
+            for (int i = 0; i < x.length; ++i)
+                assertTrue(x[i] >= -0.5 && x[i] < 0.5 && y[i] >= -0.5 && y[i] < 0.5,
+                        "TC01: " + name + " sample is outside the pixel");
+
+            // TC02: the samples of a pixel are always the same
+            sampler.samplePixel(3, 7, x2, y2);
+            assertArrayEquals(x, x2, "TC02: " + name + " is not deterministic");
+            assertArrayEquals(y, y2, "TC02: " + name + " is not deterministic");
+
+            // TC03: another pixel gets other samples
+            sampler.samplePixel(7, 3, x2, y2);
+            assertNotEquals(x[0], x2[0], "TC03: " + name + " repeats the samples of another pixel");
+
+            // =============== Boundary Values Tests ==================
+            // TC11: a single sample
+            double[] one = new double[1], one2 = new double[1];
+            sampler.samplePixel(0, 0, one, one2);
+            assertTrue(one[0] >= -0.5 && one[0] < 0.5 && one2[0] >= -0.5 && one2[0] < 0.5,
+                    "TC11: " + name + " sample is outside the pixel");
+        }
+    }
+
+    /**
+     * Test method for {@link StratifiedSampler#samplePixel(int, int, double[], double[])}
+     */
+    @Test
+    void testStratified() {
+        Sampler sampler = new StratifiedSampler();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a square amount of samples - one sample in each cell of a 4x4 grid
+        double[] x = new double[16], y = new double[16];
+        sampler.samplePixel(5, 5, x, y);
+        boolean[] cells = new boolean[16];
+        for (int i = 0; i < 16; ++i)
+            cells[(int) ((y[i] + 0.5) * 4) * 4 + (int) ((x[i] + 0.5) * 4)] = true;
+        for (boolean cell : cells)
+            assertTrue(cell, "TC01: a cell of the grid has no sample");
+
+        // TC02: an amount that is not a square - one sample in each horizontal strip of equal height
+        x = new double[5];
+        y = new double[5];
+        sampler.samplePixel(5, 5, x, y);
+        // rows of 3 and 2 cells, the first row is 3/5 of the pixel high
+        for (int i = 0; i < 3; ++i)
+            assertTrue(y[i] < 0.1 && x[i] >= -0.5 + i / 3d && x[i] < -0.5 + (i + 1) / 3d,
+                    "TC02: a sample of the first row is outside its cell");
+        for (int i = 3; i < 5; ++i)
+            assertTrue(y[i] >= 0.1 && x[i] >= -0.5 + (i - 3) / 2d && x[i] < -0.5 + (i - 2) / 2d,
+                    "TC02: a sample of the second row is outside its cell");
+    }
+}
@@ -0,0 +1,191 @@
+package scene;
+
+import geometries.Intersectable.GeoPoint;
+import geometries.TriangleMesh;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MeshImporter class
+ */
+class MeshImporterTests {
+    /**
+     * Directory of the mesh files of the tests
+     */
+    @TempDir
+    Path folder;
+
+    /**
+     * A ray down the Z axis towards a point of the plane z = 0
+     *
+     * @param x X coordinate of the point
+     * @param y Y coordinate of the point
+     * @return the ray
+     */
+    private static Ray down(double x, double y) {
+        return new Ray(new Point(x, y, 1), new Vector(0, 0, -1));
+    }
+
+    /**
+     * Test method for {@link scene.MeshImporter#loadObj(Path)}.
+     */
+    @Test
+    void testLoadObj() throws IOException {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a quad (split into two triangles) and a relative triangle, among lines that are skipped
+        Path obj = folder.resolve("mesh.obj");
+        Files.writeString(obj, """
+                # a unit square and a triangle beside it
+                mtllib mesh.mtl
+                o square
+                v 0 0 0
+                v 1.0 0 0\r
+                v 1 1e0 0
+                v 0 1 0 1.0
+                vt 0 0
+                vn 0 0 1
+                usemtl red
+                f 1/1/1 2/1/1 3/1/1 4/1/1
+                o triangle
+                v 2 0 0
+                v 3 0 0
+                v\t2.5 1 0
+                f -3 -2 -1 # relative
+                """);
+        TriangleMesh mesh = MeshImporter.load(obj);
+        assertEquals(3, mesh.getTriangleCount(), "TC01: wrong amount of triangles");
+        assertEquals(new Point(0.25, 0.75, 0), mesh.findClosestGeoIntersection(down(0.25, 0.75),
+                Double.POSITIVE_INFINITY).point, "TC01: wrong quad");
+        assertNotNull(mesh.findIntersections(down(2.5, 0.5)), "TC01: wrong relative triangle");
+        assertNull(mesh.findIntersections(down(1.5, 0.5)), "TC01: a triangle between the faces");
+
+        // TC02: a file large enough to be parsed in several chunks - a grid of squares with relative indices
+        int n = 300;
+        StringBuilder text = new StringBuilder();
+        for (int y = 0; y < n; ++y)
+            for (int x = 0; x < n; ++x)
+                text.append("v ").append(x).append(".000000 ").append(y).append(".000000 0.000000\n")
+                        .append("v ").append(x + 1).append(".000000 ").append(y).append(".000000 0.000000\n")
+                        .append("v ").append(x + 1).append(".000000 ").append(y + 1).append(".000000 0.000000\n")
+                        .append("v ").append(x).append(".000000 ").append(y + 1).append(".000000 0.000000\n")
+                        .append("f -4 -3 -2 -1\n");
+        assertTrue(text.length() > 3 << 20, "TC02: the file should be larger than a few chunks");
+        Files.writeString(obj, text);
+        mesh = MeshImporter.loadObj(obj);
+        assertEquals(2 * n * n, mesh.getTriangleCount(), "TC02: wrong amount of triangles");
+        for (int i = 0; i < 100; ++i) {
+            double x = (i * 37 % n) + 0.3, y = (i * 53 % n) + 0.6;
+            GeoPoint gp = mesh.findClosestGeoIntersection(down(x, y), Double.POSITIVE_INFINITY);
+            assertNotNull(gp, "TC02: a hole in the grid at " + x + ", " + y);
+            assertEquals(new Point(x, y, 0), gp.point, "TC02: wrong intersection");
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a face of two vertices
+        Files.writeString(obj, "v 0 0 0\nv 1 0 0\nf 1 2\n");
+        assertThrows(IllegalArgumentException.class, () -> MeshImporter.loadObj(obj),
+                "TC11: loaded a face of two vertices");
+        // TC12: a vertex index out of the vertices
+        Files.writeString(obj, "v 0 0 0\nv 1 0 0\nv 0 1 0\nf 1 2 4\n");
+        assertThrows(IllegalArgumentException.class, () -> MeshImporter.loadObj(obj),
+                "TC12: loaded a face of a missing vertex");
+        // TC13: a malformed coordinate
+        Files.writeString(obj, "v 0 zero 0\nv 1 0 0\nv 0 1 0\nf 1 2 3\n");
+        assertThrows(IllegalArgumentException.class, () -> MeshImporter.loadObj(obj),
+                "TC13: loaded a malformed coordinate");
+    }
+
+    /**
+     * Creates a binary PLY file of a unit square - four vertices (with a color among their coordinates) and
+     * a quad face with a flag
+     *
+     * @param order the byte order
+     * @return the file
+     * @throws IOException if the file could not be written
+     */
+    private Path binaryPly(ByteOrder order) throws IOException {
+        String header = "ply\nformat binary_" + (order == ByteOrder.LITTLE_ENDIAN ? "little" : "big")
+                + "_endian 1.0\ncomment a unit square\nelement vertex 4\nproperty float x\nproperty uchar red\n"
+                + "property float y\nproperty double z\nelement face 1\nproperty list uchar int vertex_indices\n"
+                + "property uchar flags\nend_header\n";
+        ByteBuffer data = ByteBuffer.allocate(4 * 17 + 18).order(order);
+        float[][] vertices = {{0, 0}, {1, 0}, {1, 1}, {0, 1}};
+        for (float[] vertex : vertices)
+            data.putFloat(vertex[0]).put((byte) 200).putFloat(vertex[1]).putDouble(0);
+        data.put((byte) 4).putInt(0).putInt(1).putInt(2).putInt(3).put((byte) 7);
+
+        Path ply = folder.resolve("mesh-" + order + ".ply");
+        byte[] headerBytes = header.getBytes(StandardCharsets.US_ASCII);
+        byte[] file = new byte[headerBytes.length + data.capacity()];
+        System.arraycopy(headerBytes, 0, file, 0, headerBytes.length);
+        System.arraycopy(data.array(), 0, file, headerBytes.length, data.capacity());
+        return Files.write(ply, file);
+    }
+
+    /**
+     * Test method for {@link scene.MeshImporter#loadPly(Path)}.
+     */
+    @Test
+    void testLoadPly() throws IOException {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: binary files of both byte orders
+        for (ByteOrder order : new ByteOrder[]{ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN}) {
+            TriangleMesh mesh = MeshImporter.load(binaryPly(order));
+            assertEquals(2, mesh.getTriangleCount(), "TC01: wrong amount of triangles, " + order);
+            assertEquals(new Point(0.75, 0.25, 0), mesh.findClosestGeoIntersection(down(0.75, 0.25),
+                    Double.POSITIVE_INFINITY).point, "TC01: wrong square, " + order);
+        }
+
+        // TC02: an ASCII file, with an element that is skipped
+        Path ply = folder.resolve("ascii.ply");
+        Files.writeString(ply, """
+                ply
+                format ascii 1.0
+                element vertex 3
+                property float x
+                property float y
+                property float z
+                element edge 1
+                property int vertex1
+                property int vertex2
+                element face 1
+                property list uchar uint vertex_index
+                end_header
+                0 0 0
+                1 0 0
+                0 1 0
+                0 1
+                3 0 1 2
+                """);
+        TriangleMesh mesh = MeshImporter.loadPly(ply);
+        assertEquals(1, mesh.getTriangleCount(), "TC02: wrong amount of triangles");
+        assertNotNull(mesh.findIntersections(down(0.25, 0.25)), "TC02: wrong triangle");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a header without its end
+        Files.writeString(ply, "ply\nformat ascii 1.0\nelement vertex 0\n");
+        assertThrows(IllegalArgumentException.class, () -> MeshImporter.loadPly(ply),
+                "TC11: loaded a header without its end");
+        // TC12: a truncated binary file
+        Path binary = binaryPly(ByteOrder.LITTLE_ENDIAN);
+        byte[] file = Files.readAllBytes(binary);
+        Files.write(binary, java.util.Arrays.copyOf(file, file.length - 10));
+        assertThrows(IllegalArgumentException.class, () -> MeshImporter.loadPly(binary),
+                "TC12: loaded a truncated file");
+        // TC13: an unknown extension
+        assertThrows(IllegalArgumentException.class, () -> MeshImporter.load(folder.resolve("mesh.stl")),
+                "TC13: loaded an unknown format");
+    }
+}
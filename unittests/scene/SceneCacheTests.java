@@ -0,0 +1,194 @@
+package scene;
+
+import geometries.CompiledBvh;
+import geometries.Cylinder;
+import geometries.Geometries;
+import geometries.Intersectable.GeoPoint;
+import geometries.Plane;
+import geometries.Polygon;
+import geometries.Sphere;
+import geometries.Triangle;
+import geometries.TriangleMesh;
+import geometries.Tube;
+import lighting.AmbientLight;
+import lighting.DirectionalLight;
+import lighting.LightSource;
+import lighting.PointLight;
+import lighting.SpotLight;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import primitives.Color;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SceneCache class
+ */
+class SceneCacheTests {
+    /**
+     * Directory of the cache files of the tests
+     */
+    @TempDir
+    Path folder;
+
+    /**
+     * Creates a scene of all the kinds of geometries and lights, with a material shared by several geometries
+     *
+     * @return the scene
+     */
+    private static Scene scene() {
+        Material shiny = new Material().setkD(0.5).setkS(0.3).setnShininess(40).setkR(0.2);
+        Material glass = new Material().setkD(0.1).setkT(0.7);
+        Scene scene = new Scene("cached scene")
+                .setBackground(new Color(10, 20, 30))
+                .setAmbientLight(new AmbientLight(new Color(255, 255, 255), 0.1));
+        scene.geometries.add(
+                new Sphere(1, new Point(0, 0, -5)).setEmission(new Color(100, 0, 0)).setMaterial(shiny),
+                new Geometries(
+                        new Triangle(new Point(-3, -3, -8), new Point(3, -3, -8), new Point(0, 3, -8))
+                                .setMaterial(shiny),
+                        new Polygon(new Point(2, 2, -6), new Point(4, 2, -6), new Point(4, 4, -6),
+                                new Point(2, 4, -6)).setMaterial(glass)),
+                new Plane(new Point(0, -4, 0), new Vector(0, 1, 0.1)).setEmission(new Color(0, 30, 0)),
+                new Tube(0.5, new Ray(new Point(-4, 0, -6), new Vector(0, 1, 0))),
+                new Cylinder(new Ray(new Point(4, -2, -4), new Vector(0, 1, 1)), 0.5, 2).setMaterial(glass),
+                new TriangleMesh(new double[]{-2, 2, -7, -1, 2, -7, -1, 3, -7, -2, 3, -7},
+                        new int[]{0, 1, 2, 0, 2, 3}).setMaterial(shiny));
+        scene.lights.add(new PointLight(new Color(500, 300, 0), new Point(2, 5, 0)).setkL(0.01).setkQ(0.001));
+        scene.lights.add(new SpotLight(new Color(300, 300, 300), new Point(-2, 5, 0), new Vector(1, -1, -2))
+                .setkL(0.001));
+        scene.lights.add(new DirectionalLight(new Color(100, 100, 50), new Vector(0, -1, -1)));
+        return scene;
+    }
+
+    /**
+     * Asserts that two colors are equal
+     *
+     * @param expected the expected color
+     * @param actual   the actual color
+     * @param message  the message of the failure
+     */
+    private static void assertColor(Color expected, Color actual, String message) {
+        assertEquals(expected.getRed(), actual.getRed(), message);
+        assertEquals(expected.getGreen(), actual.getGreen(), message);
+        assertEquals(expected.getBlue(), actual.getBlue(), message);
+    }
+
+    /**
+     * Test method for {@link scene.SceneCache#save(Scene, Path)} and {@link scene.SceneCache#load(Path)}.
+     */
+    @Test
+    void testSaveLoad() throws IOException {
+        Scene scene = scene();
+        Path cache = folder.resolve("scene.cache");
+        SceneCache.save(scene, cache);
+        Scene loaded = SceneCache.load(cache);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the settings of the scene
+        assertEquals(scene.name, loaded.name, "TC01: wrong name");
+        assertColor(scene.background, loaded.background, "TC01: wrong background");
+        assertColor(scene.ambientLight.getIntensity(), loaded.ambientLight.getIntensity(),
+                "TC01: wrong ambient light");
+
+        // TC02: the lights light the same
+        assertEquals(scene.lights.size(), loaded.lights.size(), "TC02: wrong amount of lights");
+        Point lit = new Point(0.5, -1, -4);
+        for (int i = 0; i < scene.lights.size(); ++i) {
+            LightSource light = scene.lights.get(i);
+            LightSource copy = loaded.lights.get(i);
+            assertSame(light.getClass(), copy.getClass(), "TC02: wrong kind of light " + i);
+            assertColor(light.getIntensity(lit), copy.getIntensity(lit), "TC02: wrong intensity of light " + i);
+            assertEquals(light.getL(lit), copy.getL(lit), "TC02: wrong direction of light " + i);
+        }
+
+        // TC03: the geometries are loaded compiled and they are hit at the same points as the geometries of the
+        // scene, with the same materials - a shared material stays shared
+        assertInstanceOf(CompiledBvh.class, loaded.geometries, "TC03: the hierarchy was not cached");
+        assertFalse(scene.geometries instanceof CompiledBvh, "TC03: the geometries of the scene were changed");
+        Material shared = null;
+        int hits = 0;
+        for (int x = -10; x <= 10; ++x)
+            for (int y = -10; y <= 10; ++y) {
+                Ray ray = new Ray(new Point(0, 0, 0), new Vector(x * 0.05, y * 0.05, -1));
+                GeoPoint expected = scene.geometries.findClosestGeoIntersection(ray, Double.POSITIVE_INFINITY);
+                GeoPoint actual = loaded.geometries.findClosestGeoIntersection(ray, Double.POSITIVE_INFINITY);
+                if (expected == null) {
+                    assertNull(actual, "TC03: a hit of a ray that misses the scene");
+                    continue;
+                }
+                ++hits;
+                assertNotNull(actual, "TC03: a miss of a ray that hits the scene");
+                assertEquals(expected.point, actual.point, "TC03: wrong point");
+                assertSame(expected.geometry.getClass(), actual.geometry.getClass(), "TC03: wrong geometry");
+                assertColor(expected.geometry.getEmission(), actual.geometry.getEmission(), "TC03: wrong emission");
+                Material material = actual.geometry.getMaterial();
+                assertEquals(expected.geometry.getMaterial().kT, material.kT, "TC03: wrong material");
+                assertEquals(expected.geometry.getMaterial().nShininess, material.nShininess,
+                        "TC03: wrong material");
+                if (material.nShininess == 40) {
+                    assertTrue(shared == null || shared == material, "TC03: the shared material was copied");
+                    shared = material;
+                }
+            }
+        assertTrue(hits > 100, "TC03: the rays should hit most of the geometries");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a scene without a name, lights and geometries
+        SceneCache.save(new Scene(null), cache);
+        loaded = SceneCache.load(cache);
+        assertNull(loaded.name, "TC11: wrong name");
+        assertTrue(loaded.lights.isEmpty(), "TC11: wrong lights");
+        assertNull(loaded.geometries.findIntersections(new Ray(new Point(0, 0, 0), new Vector(0, 0, -1))),
+                "TC11: wrong geometries");
+    }
+
+    /**
+     * Test method for the errors of {@link scene.SceneCache#save(Scene, Path)} and
+     * {@link scene.SceneCache#load(Path)}.
+     */
+    @Test
+    void testErrors() throws IOException {
+        Path cache = folder.resolve("scene.cache");
+        SceneCache.save(scene(), cache);
+        byte[] file = Files.readAllBytes(cache);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a file that is not a cache
+        Path other = folder.resolve("other.cache");
+        Files.writeString(other, "not a scene cache");
+        assertThrows(IllegalArgumentException.class, () -> SceneCache.load(other), "TC01: loaded another file");
+
+        // TC02: a cache of another version
+        byte[] newer = file.clone();
+        ++newer[7];
+        Files.write(other, newer);
+        assertThrows(IllegalArgumentException.class, () -> SceneCache.load(other),
+                "TC02: loaded a cache of another version");
+
+        // TC03: a geometry the cache does not know is not saved, and the previous cache is kept
+        Scene scene = new Scene("unknown");
+        scene.geometries.add(new Sphere(1, new Point(0, 0, 0)) {
+        });
+        assertThrows(IllegalArgumentException.class, () -> SceneCache.save(scene, cache),
+                "TC03: saved an unknown geometry");
+        assertArrayEquals(file, Files.readAllBytes(cache), "TC03: the previous cache was changed");
+        try (var files = Files.list(folder)) {
+            assertEquals(2, files.count(), "TC03: a partial cache was left");
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a truncated cache
+        Files.write(other, Arrays.copyOf(file, file.length - 10));
+        assertThrows(IllegalArgumentException.class, () -> SceneCache.load(other), "TC11: loaded a truncated cache");
+    }
+}
@@ -0,0 +1,173 @@
+package scene;
+
+import geometries.Geometries;
+import geometries.Intersectable.GeoPoint;
+import geometries.Polygon;
+import geometries.Sphere;
+import geometries.Triangle;
+import geometries.TriangleMesh;
+import lighting.DirectionalLight;
+import lighting.PointLight;
+import lighting.SpotLight;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for XmlSceneLoader class
+ */
+class XmlSceneLoaderTests {
+    /**
+     * Directory of the scene files of the tests
+     */
+    @TempDir
+    Path folder;
+
+    /**
+     * Writes a scene file
+     *
+     * @param xml the content of the file
+     * @return the path of the file
+     * @throws IOException if the file could not be written
+     */
+    private Path file(String xml) throws IOException {
+        return Files.writeString(folder.resolve("scene.xml"), xml);
+    }
+
+    /**
+     * Finds the closest intersection of a ray from above the plane z = 0 straight down, with the geometries of a
+     * scene
+     *
+     * @param scene the scene
+     * @param x     X coordinate of the ray
+     * @param y     Y coordinate of the ray
+     * @return the intersection, null if there is none
+     */
+    private static GeoPoint down(Scene scene, double x, double y) {
+        return scene.geometries.findClosestGeoIntersection(new Ray(new Point(x, y, 10), new Vector(0, 0, -1)),
+                Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Test method for {@link scene.XmlSceneLoader#XmlSceneLoader(Path)}.
+     */
+    @Test
+    void testLoad() throws IOException {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a scene of all the kinds of elements
+        Files.writeString(folder.resolve("quad.obj"), "v 10 0 0\nv 11 0 0\nv 11 1 0\nv 10 1 0\nf 1 2 3 4\n");
+        XmlSceneLoader loader = new XmlSceneLoader(file("""
+                <?xml version="1.0"?>
+                <scene name="all" background="1 2 3">
+                    <!-- the settings -->
+                    <ambient-light color="100 100 100" k="0.5"/>
+                    <camera to="0 0 -1" up="0 1 0" distance="10" size="20 20" image="loader" resolution="8 8"/>
+                    <materials>
+                        <material id="matte" kd="0.5 0.6 0.7" shininess="20"/>
+                    </materials>
+                    <lights>
+                        <point-light color="10 20 30" position="0 0 5" kl="0.5"/>
+                        <spot-light color="10 20 30" position="0 0 5" direction="0 0 -1"/>
+                        <directional-light color="10 20 30" direction="0 0 -1"/>
+                    </lights>
+                    <geometries>
+                        <sphere center="0 0 0" radius="1" material="matte" emission="50 0 0"/>
+                        <geometries>
+                            <triangle p0="3 0 0" p1="4 0 0" p2="3 1 0" kt="0.3"/>
+                            <polygon vertices="5 0 0  6 0 0  6 1 0  5 1 0" material="matte"/>
+                        </geometries>
+                        <mesh emission="0 50 0">
+                            <vertex>7 0 0</vertex>
+                            <vertex>8 0 0</vertex>
+                            <vertex>8 1 0</vertex>
+                            <vertex>7 1 0</vertex>
+                            <face>0 1 2 3</face>
+                            <triangle p0="9 0 0" p1="9.5 0 0" p2="9 0.5 0"/>
+                        </mesh>
+                        <mesh file="quad.obj"/>
+                    </geometries>
+                </scene>
+                """));
+        Scene scene = loader.getScene();
+        assertEquals("all", scene.name, "TC01: wrong name");
+        assertEquals(3, scene.background.getBlue(), "TC01: wrong background");
+        assertEquals(50, scene.ambientLight.getIntensity().getRed(), "TC01: wrong ambient light");
+        assertNotNull(loader.getCamera(), "TC01: no camera");
+
+        assertEquals(3, scene.lights.size(), "TC01: wrong amount of lights");
+        assertInstanceOf(PointLight.class, scene.lights.get(0), "TC01: wrong point light");
+        assertEquals(0.5, ((PointLight) scene.lights.get(0)).getkL(), "TC01: wrong attenuation");
+        assertInstanceOf(SpotLight.class, scene.lights.get(1), "TC01: wrong spot light");
+        assertInstanceOf(DirectionalLight.class, scene.lights.get(2), "TC01: wrong directional light");
+        assertEquals(30, scene.lights.get(2).getIntensity(new Point(1, 1, 1)).getBlue(),
+                "TC01: wrong light intensity");
+
+        GeoPoint sphere = down(scene, 0, 0);
+        assertInstanceOf(Sphere.class, sphere.geometry, "TC01: wrong sphere");
+        assertEquals(new Point(0, 0, 1), sphere.point, "TC01: wrong sphere");
+        assertEquals(50, sphere.geometry.getEmission().getRed(), "TC01: wrong emission");
+        assertEquals(20, sphere.geometry.getMaterial().nShininess, "TC01: wrong material");
+        GeoPoint polygon = down(scene, 5.5, 0.5);
+        assertInstanceOf(Polygon.class, polygon.geometry, "TC01: wrong polygon");
+        assertSame(sphere.geometry.getMaterial(), polygon.geometry.getMaterial(), "TC01: the material is not shared");
+        GeoPoint triangle = down(scene, 3.25, 0.25);
+        assertInstanceOf(Triangle.class, triangle.geometry, "TC01: wrong triangle");
+        assertEquals(0.3, triangle.geometry.getMaterial().kT.getD2(), "TC01: wrong own material");
+
+        GeoPoint mesh = down(scene, 7.75, 0.25);
+        assertInstanceOf(TriangleMesh.class, mesh.geometry, "TC01: wrong mesh");
+        assertEquals(3, ((TriangleMesh) mesh.geometry).getTriangleCount(), "TC01: wrong faces of the mesh");
+        assertEquals(50, mesh.geometry.getEmission().getGreen(), "TC01: wrong emission of the mesh");
+        assertSame(mesh.geometry, down(scene, 9.1, 0.1).geometry, "TC01: wrong triangle of the mesh");
+        assertInstanceOf(TriangleMesh.class, down(scene, 10.5, 0.5).geometry, "TC01: wrong mesh file");
+        assertNull(down(scene, 4.75, 0.75), "TC01: a geometry out of the scene");
+
+        // TC02: an empty scene, without a camera
+        loader = new XmlSceneLoader(file("<scene/>"));
+        assertNull(loader.getCamera(), "TC02: a camera out of the scene");
+        assertNull(loader.getScene().name, "TC02: wrong name");
+        assertTrue(loader.getScene().lights.isEmpty(), "TC02: lights out of the scene");
+        assertInstanceOf(Geometries.class, loader.getScene().geometries, "TC02: no geometries");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: an unknown element - the error tells its line
+        Path unknown = file("<scene>\n<geometries>\n<cube/>\n</geometries>\n</scene>");
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> new XmlSceneLoader(unknown), "TC11: loaded an unknown element");
+        assertTrue(e.getMessage().contains("line 3"), "TC11: the error should tell the line");
+        // TC12: a malformed number
+        Path malformed = file("<scene><geometries><sphere center=\"0 0 x\" radius=\"1\"/></geometries></scene>");
+        assertThrows(IllegalArgumentException.class, () -> new XmlSceneLoader(malformed),
+                "TC12: loaded a malformed number");
+        // TC13: a point of two coordinates
+        Path coordinates = file("<scene><geometries><sphere center=\"0 0\" radius=\"1\"/></geometries></scene>");
+        assertThrows(IllegalArgumentException.class, () -> new XmlSceneLoader(coordinates),
+                "TC13: loaded a point of two coordinates");
+        // TC14: a missing attribute
+        Path missing = file("<scene><geometries><sphere center=\"0 0 0\"/></geometries></scene>");
+        assertThrows(IllegalArgumentException.class, () -> new XmlSceneLoader(missing),
+                "TC14: loaded a sphere without a radius");
+        // TC15: an unknown material
+        Path material = file("<scene><geometries><sphere center=\"0 0 0\" radius=\"1\" material=\"gold\"/>"
+                + "</geometries></scene>");
+        assertThrows(IllegalArgumentException.class, () -> new XmlSceneLoader(material),
+                "TC15: loaded an unknown material");
+        // TC16: a file that is not well-formed
+        Path broken = file("<scene><geometries></scene>");
+        assertThrows(IllegalArgumentException.class, () -> new XmlSceneLoader(broken),
+                "TC16: loaded a broken file");
+        // TC17: a face of a vertex out of the mesh
+        Path face = file("<scene><geometries><mesh><vertex>0 0 0</vertex><vertex>1 0 0</vertex>"
+                + "<vertex>0 1 0</vertex><face>0 1 3</face></mesh></geometries></scene>");
+        assertThrows(IllegalArgumentException.class, () -> new XmlSceneLoader(face),
+                "TC17: loaded a face of a missing vertex");
+    }
+}